@@ -0,0 +1,171 @@
+package benchmarks;
+
+import shapes.Shape;
+import sorts.Sort;
+
+/**
+ * Every sorting entry point in Sort, as a benchmark parameter. Each one sorts
+ * a fresh copy of the input and returns the result so JMH can consume it.
+ * <p>
+ * Plain algorithms sort the shapes with the comparator (the default mode).
+ * KEY_ algorithms sort a copy of the precomputed keys with the shapes carried
+ * along (-mK), and INDEX_ algorithms sort an identity index over the keys
+ * through the same overloads as -mC. PACKED_ algorithms pack two key columns
+ * and sort them with the row numbers, as for several -t keys; packing is part
+ * of the measurement, as it is of the time SortManager reports.
+ *
+ * @author NJobse
+ */
+public enum Algorithm {
+    BUBBLE(Family.COMPARATOR, 'B'),
+    INSERTION(Family.COMPARATOR, 'I'),
+    SELECTION(Family.COMPARATOR, 'S'),
+    MERGE(Family.COMPARATOR, 'M'),
+    QUICK(Family.COMPARATOR, 'Q'),
+    HEAP(Family.COMPARATOR, 'H'),
+    HEAP_4ARY(Family.COMPARATOR, '4'),
+    HEAP_8ARY(Family.COMPARATOR, '8'),
+    PARALLEL_MERGE(Family.COMPARATOR, 'P'),
+    NATURAL_MERGE(Family.COMPARATOR, 'T'),
+    RADIX(Family.COMPARATOR, 'R'),
+    SHELL(Family.COMPARATOR, 'L'),
+
+    KEY_BUBBLE(Family.KEY, 'B'),
+    KEY_INSERTION(Family.KEY, 'I'),
+    KEY_SELECTION(Family.KEY, 'S'),
+    KEY_MERGE(Family.KEY, 'M'),
+    KEY_QUICK(Family.KEY, 'Q'),
+    KEY_HEAP(Family.KEY, 'H'),
+    KEY_RADIX(Family.KEY, 'R'),
+    KEY_SHELL(Family.KEY, 'L'),
+
+    INDEX_BUBBLE(Family.INDEX, 'B'),
+    INDEX_INSERTION(Family.INDEX, 'I'),
+    INDEX_SELECTION(Family.INDEX, 'S'),
+    INDEX_MERGE(Family.INDEX, 'M'),
+    INDEX_QUICK(Family.INDEX, 'Q'),
+    INDEX_HEAP(Family.INDEX, 'H'),
+    INDEX_RADIX(Family.INDEX, 'R'),
+    INDEX_SHELL(Family.INDEX, 'L'),
+
+    PACKED_BUBBLE(Family.PACKED, 'B'),
+    PACKED_INSERTION(Family.PACKED, 'I'),
+    PACKED_SELECTION(Family.PACKED, 'S'),
+    PACKED_MERGE(Family.PACKED, 'M'),
+    PACKED_QUICK(Family.PACKED, 'Q'),
+    PACKED_HEAP(Family.PACKED, 'H'),
+    PACKED_RADIX(Family.PACKED, 'R'),
+    PACKED_SHELL(Family.PACKED, 'L'),
+
+    /** Finds only the ranks SortManager reports (-mR). */
+    MULTI_SELECT(Family.INDEX, 'X');
+
+    private enum Family { COMPARATOR, KEY, INDEX, PACKED }
+
+    private final Family family;
+    private final char type;
+
+    Algorithm(Family family, char type) {
+        this.family = family;
+        this.type = type;
+    }
+
+    /**
+     * Returns whether the algorithm takes O(n^2) time, which makes it
+     * impractical above a few tens of thousands of shapes.
+     *
+     * @return true for bubble, insertion and selection sort
+     */
+    public boolean isQuadratic() {
+        return type == 'B' || type == 'I' || type == 'S';
+    }
+
+    /**
+     * Sorts a copy of the input.
+     *
+     * @param in input to copy and sort
+     * @return the sorted copy, or the sorted index for INDEX_ and PACKED_
+     *         algorithms
+     */
+    public Object sort(SortInput in) {
+        switch (family) {
+            case KEY: return keySort(in);
+            case INDEX: return indexSort(in);
+            case PACKED: return packedSort(in);
+            default: return comparatorSort(in);
+        }
+    }
+
+    private Object comparatorSort(SortInput in) {
+        Shape[] a = in.shapes.clone();
+        switch (type) {
+            case 'B': Sort.bubbleSort(a, in.comparator); break;
+            case 'I': Sort.insertionSort(a, in.comparator); break;
+            case 'S': Sort.selectionSort(a, in.comparator); break;
+            case 'M': Sort.mergeSort(a, in.comparator); break;
+            case 'Q': Sort.quickSort(a, in.comparator); break;
+            case 'H': Sort.heapSort(a, in.comparator); break;
+            case '4': Sort.heapSort(a, in.comparator, 4); break;
+            case '8': Sort.heapSort(a, in.comparator, 8); break;
+            case 'P': Sort.parallelMergeSort(a, in.comparator); break;
+            case 'T': Sort.naturalMergeSort(a, in.comparator); break;
+            case 'L': Sort.shellSort(a, in.comparator); break;
+            // Radix sort reads the keys directly, as SortManager does for -sR
+            case 'R': Sort.radixSort(in.keys.clone(), a); break;
+            default: throw new IllegalStateException("No comparator sort '" + type + "'");
+        }
+        return a;
+    }
+
+    private Object keySort(SortInput in) {
+        Shape[] a = in.shapes.clone();
+        double[] keys = in.keys.clone();
+        switch (type) {
+            case 'B': Sort.bubbleSort(keys, a); break;
+            case 'I': Sort.insertionSort(keys, a); break;
+            case 'S': Sort.selectionSort(keys, a); break;
+            case 'M': Sort.mergeSort(keys, a); break;
+            case 'Q': Sort.quickSort(keys, a); break;
+            case 'H': Sort.heapSort(keys, a); break;
+            case 'R': Sort.radixSort(keys, a); break;
+            case 'L': Sort.shellSort(keys, a); break;
+            default: throw new IllegalStateException("No key sort '" + type + "'");
+        }
+        return a;
+    }
+
+    private Object indexSort(SortInput in) {
+        int[] index = Sort.identityIndex(in.keys.length);
+        switch (type) {
+            case 'B': Sort.bubbleSort(index, in.keys); break;
+            case 'I': Sort.insertionSort(index, in.keys); break;
+            case 'S': Sort.selectionSort(index, in.keys); break;
+            case 'M': Sort.mergeSort(index, in.keys); break;
+            case 'Q': Sort.quickSort(index, in.keys); break;
+            case 'H': Sort.heapSort(index, in.keys); break;
+            case 'R': Sort.radixSort(index, in.keys); break;
+            case 'L': Sort.shellSort(index, in.keys); break;
+            case 'X': Sort.multiSelect(index, in.keys, in.reportedRanks()); break;
+            default: throw new IllegalStateException("No index sort '" + type + "'");
+        }
+        return index;
+    }
+
+    private Object packedSort(SortInput in) {
+        int n = in.keys.length;
+        long[] keys = Sort.packKeys(in.columns, n);
+        int[] index = Sort.identityIndex(n);
+        switch (type) {
+            case 'B': Sort.bubbleSort(keys, index); break;
+            case 'I': Sort.insertionSort(keys, index); break;
+            case 'S': Sort.selectionSort(keys, index); break;
+            case 'M': Sort.mergeSort(keys, index); break;
+            case 'Q': Sort.quickSort(keys, index); break;
+            case 'H': Sort.heapSort(keys, index); break;
+            case 'R': Sort.radixSort(keys, index); break;
+            case 'L': Sort.shellSort(keys, index); break;
+            default: throw new IllegalStateException("No packed sort '" + type + "'");
+        }
+        return index;
+    }
+}
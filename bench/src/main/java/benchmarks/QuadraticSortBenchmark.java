@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the quadratic sorts (bubble, insertion and selection, in all
+ * four modes) at the sizes they can finish in reasonable time. Otherwise the
+ * same as {@link SortBenchmark}.
+ *
+ * @author NJobse
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuadraticSortBenchmark {
+    @Param({ "BUBBLE", "INSERTION", "SELECTION", "KEY_BUBBLE", "KEY_INSERTION", "KEY_SELECTION",
+            "INDEX_BUBBLE", "INDEX_INSERTION", "INDEX_SELECTION", "PACKED_BUBBLE", "PACKED_INSERTION",
+            "PACKED_SELECTION" })
+    public Algorithm algorithm;
+
+    /** Comparison type, as for SortManager's -t flag. */
+    @Param({ "H", "A", "V" })
+    public String compareType;
+
+    /** Stops at 1e4: a quadratic sort of 1e5 shapes takes tens of seconds per call. */
+    @Param({ "1000", "10000" })
+    public int size;
+
+    @Param({ "RANDOM", "SORTED", "REVERSE", "DUPLICATES" })
+    public SortInput.Distribution distribution;
+
+    private SortInput input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = new SortInput(size, compareType.charAt(0), distribution);
+    }
+
+    @Benchmark
+    public Object sort() {
+        // Returning the result keeps JMH from eliminating the sort
+        return algorithm.sort(input);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the O(n log n) sorts for every comparator, size and input
+ * distribution. Each invocation sorts a fresh copy of the input, and the copy
+ * is part of the measurement. Run with -prof gc for allocation rates.
+ * <p>
+ * The quadratic sorts are in {@link QuadraticSortBenchmark}, which stops at
+ * sizes they can finish.
+ *
+ * @author NJobse
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    /** Largest size a quadratic algorithm is allowed to run at. */
+    static final int QUADRATIC_LIMIT = 100_000;
+
+    @Param({ "MERGE", "QUICK", "HEAP", "HEAP_4ARY", "HEAP_8ARY", "PARALLEL_MERGE", "NATURAL_MERGE", "RADIX",
+            "SHELL", "KEY_MERGE", "KEY_QUICK", "KEY_HEAP", "KEY_RADIX", "KEY_SHELL",
+            "INDEX_MERGE", "INDEX_QUICK", "INDEX_HEAP", "INDEX_RADIX", "INDEX_SHELL",
+            "PACKED_MERGE", "PACKED_QUICK", "PACKED_HEAP", "PACKED_RADIX", "PACKED_SHELL", "MULTI_SELECT" })
+    public Algorithm algorithm;
+
+    /** Comparison type, as for SortManager's -t flag. */
+    @Param({ "H", "A", "V" })
+    public String compareType;
+
+    @Param({ "1000", "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "RANDOM", "SORTED", "REVERSE", "DUPLICATES" })
+    public SortInput.Distribution distribution;
+
+    private SortInput input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (algorithm.isQuadratic() && size > QUADRATIC_LIMIT) {
+            throw new IllegalStateException(algorithm + " is quadratic; skipping size " + size);
+        }
+        input = new SortInput(size, compareType.charAt(0), distribution);
+    }
+
+    @Benchmark
+    public Object sort() {
+        // Returning the result keeps JMH from eliminating the sort
+        return algorithm.sort(input);
+    }
+}
@@ -0,0 +1,115 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import shapes.BaseAreaCompare;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+
+/**
+ * Input for one benchmark combination: the shapes to sort, the comparator
+ * chosen by a -t letter, and the matching precomputed keys for the key and
+ * index sorts, plus a second key column for the packed multi-key sorts.
+ * Benchmarks sort copies, so one input serves every invocation.
+ *
+ * @author NJobse
+ */
+public class SortInput {
+    /** How the generated shapes are ordered before sorting. */
+    public enum Distribution {
+        /** Independent random shapes. */
+        RANDOM,
+        /** Already in sorted order. */
+        SORTED,
+        /** In exactly the reverse of sorted order. */
+        REVERSE,
+        /** Random order over only 16 distinct shapes, so most keys tie. */
+        DUPLICATES
+    }
+
+    private static final long SEED = 42;
+    private static final int DISTINCT_SHAPES = 16;
+
+    final Shape[] shapes;
+    final Comparator<Shape> comparator;
+    final double[] keys;
+    /** Keys of the packed sorts: the -t key, then volume for H and height otherwise, as -tHV, -tAH or -tVH. */
+    final double[][] columns;
+
+    /**
+     * Generates a reproducible input.
+     *
+     * @param size         number of shapes
+     * @param compareType  'H', 'A' or 'V', as for SortManager's -t flag
+     * @param distribution initial order of the shapes
+     */
+    public SortInput(int size, char compareType, Distribution distribution) {
+        comparator = comparator(compareType);
+        Random rnd = new Random(SEED);
+
+        Shape[] pool = null;
+        if (distribution == Distribution.DUPLICATES) {
+            pool = new Shape[DISTINCT_SHAPES];
+            for (int i = 0; i < pool.length; i++) {
+                pool[i] = randomShape(rnd);
+            }
+        }
+        shapes = new Shape[size];
+        for (int i = 0; i < size; i++) {
+            shapes[i] = pool != null ? pool[rnd.nextInt(pool.length)] : randomShape(rnd);
+        }
+        if (distribution == Distribution.SORTED) {
+            Arrays.sort(shapes, comparator);
+        } else if (distribution == Distribution.REVERSE) {
+            Arrays.sort(shapes, comparator.reversed());
+        }
+
+        keys = new double[size];
+        for (int i = 0; i < size; i++) {
+            // For A and V this also fills the shapes' cached values before timing starts
+            keys[i] = compareType == 'H' ? shapes[i].getHeight()
+                    : compareType == 'A' ? shapes[i].calcBaseArea() : shapes[i].calcVolume();
+        }
+        double[] thenKeys = new double[size];
+        for (int i = 0; i < size; i++) {
+            thenKeys[i] = compareType == 'H' ? shapes[i].calcVolume() : shapes[i].getHeight();
+        }
+        columns = new double[][] { keys, thenKeys };
+    }
+
+    /**
+     * Returns the sorted positions SortManager prints: the first, every
+     * 1000th and the last.
+     *
+     * @return ascending positions without duplicates
+     */
+    int[] reportedRanks() {
+        int n = shapes.length;
+        int[] ranks = new int[(n - 1) / 1000 + 2];
+        int count = 0;
+        for (int i = 0; i < n; i += 1000) {
+            ranks[count++] = i;
+        }
+        if (ranks[count - 1] != n - 1) {
+            ranks[count++] = n - 1;
+        }
+        return Arrays.copyOf(ranks, count);
+    }
+
+    private static Comparator<Shape> comparator(char compareType) {
+        switch (compareType) {
+            case 'H': return Comparator.naturalOrder();
+            case 'A': return new BaseAreaCompare();
+            case 'V': return new VolumeCompare();
+            default:
+                throw new IllegalArgumentException("Unknown comparison type '" + compareType + "'");
+        }
+    }
+
+    private static Shape randomShape(Random rnd) {
+        return ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextDouble() * 99, 1 + rnd.nextDouble() * 49);
+    }
+}
@@ -0,0 +1,62 @@
+package appDomain;
+
+import java.io.IOException;
+
+import managers.BinaryShapeFile;
+
+/**
+ * Command-line entry point for converting shape files to the binary format.
+ * <pre>
+ * -i&lt;file&gt;        input shape file, text or binary (required)
+ * -o&lt;file&gt;        output binary file (required)
+ * -l&lt;layout&gt;      R (rows, default) or C (columns)
+ * </pre>
+ * Example: -i/tmp/shapes100m.txt -o/tmp/shapes100m.bin -lC
+ *
+ * @author NJobse
+ */
+public class ConvertDriver {
+    public static void main(String[] args) {
+        String inputFile = null;
+        String outputFile = null;
+        BinaryShapeFile.Layout layout = BinaryShapeFile.Layout.ROWS;
+
+        try {
+            for (String s : args) {
+                if (s.length() < 3 || s.charAt(0) != '-') {
+                    throw new IllegalArgumentException("Unrecognized argument '" + s + "'");
+                }
+                String value = s.substring(2);
+                switch (Character.toLowerCase(s.charAt(1))) {
+                    case 'i': inputFile = value; break;
+                    case 'o': outputFile = value; break;
+                    case 'l': layout = parseLayout(Character.toUpperCase(value.charAt(0))); break;
+                    default:
+                        throw new IllegalArgumentException("Unrecognized argument '" + s
+                                + "'. Valid flags are '-i', '-o', '-l'.");
+                }
+            }
+            if (inputFile == null || outputFile == null) {
+                throw new IllegalArgumentException("Missing required '-i<file>' or '-o<file>'.");
+            }
+
+            long startTime = System.nanoTime();
+            long count = BinaryShapeFile.convert(inputFile, outputFile, layout);
+            System.out.printf("Converted %d shapes to %s (%s) in %.1f seconds%n", count, outputFile,
+                    layout.name().toLowerCase(), (System.nanoTime() - startTime) / 1e9);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error converting file: " + e.getMessage());
+        }
+    }
+
+    private static BinaryShapeFile.Layout parseLayout(char c) {
+        switch (c) {
+            case 'R': return BinaryShapeFile.Layout.ROWS;
+            case 'C': return BinaryShapeFile.Layout.COLUMNS;
+            default:
+                throw new IllegalArgumentException("Invalid layout '" + c + "'. Use 'R' or 'C'.");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package appDomain;
+
+import java.io.IOException;
+
+import managers.BinaryShapeFile;
+import managers.ShapeGenerator;
+import shapes.ShapeTable;
+
+/**
+ * Command-line entry point for writing synthetic shape files.
+ * <pre>
+ * -o&lt;file&gt;        output file (required)
+ * -n&lt;count&gt;       number of shapes (required)
+ * -s&lt;seed&gt;        random seed (default 1)
+ * -r&lt;order&gt;[n]    R (random, default), S (sorted), V (reverse), F[n] (n distinct shapes,
+ *                 default 16) or W[n] (sawtooth of sorted runs of n, default 1000)
+ * -t&lt;key&gt;         key the order refers to: H, A or V (default V)
+ * -k&lt;mix&gt;         shape mix, e.g. -kCylinder:3,Cone:1 (unlisted kinds get weight 0)
+ * -h&lt;min&gt;:&lt;max&gt;   height range (default 1:25000)
+ * -d&lt;min&gt;:&lt;max&gt;   radius / edge length range (default 1:25000)
+ * -f&lt;format&gt;      T (text, default), R (binary rows) or C (binary columns)
+ * </pre>
+ * Example: -o/tmp/shapes100m.txt -n100000000 -rW5000 -tA -s7
+ *
+ * @author NJobse
+ */
+public class GeneratorDriver {
+    public static void main(String[] args) {
+        String fileName = null;
+        long count = -1;
+        long seed = 1;
+        ShapeGenerator.Order order = ShapeGenerator.Order.RANDOM;
+        int orderParameter = 0;
+        char keyType = 'V';
+        String mix = null;
+        double[] heights = { 1, 25000 }, dimensions = { 1, 25000 };
+        char format = 'T';
+
+        try {
+            for (String s : args) {
+                if (s.length() < 3 || s.charAt(0) != '-') {
+                    throw new IllegalArgumentException("Unrecognized argument '" + s + "'");
+                }
+                String value = s.substring(2);
+                switch (Character.toLowerCase(s.charAt(1))) {
+                    case 'o': fileName = value; break;
+                    case 'n': count = Long.parseLong(value); break;
+                    case 's': seed = Long.parseLong(value); break;
+                    case 't': keyType = Character.toUpperCase(value.charAt(0)); break;
+                    case 'k': mix = value; break;
+                    case 'h': heights = parseRange(value); break;
+                    case 'd': dimensions = parseRange(value); break;
+                    case 'f': format = Character.toUpperCase(value.charAt(0)); break;
+                    case 'r':
+                        order = parseOrder(Character.toUpperCase(value.charAt(0)));
+                        orderParameter = value.length() > 1 ? Integer.parseInt(value.substring(1)) : 0;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unrecognized argument '" + s
+                                + "'. Valid flags are '-o', '-n', '-s', '-r', '-t', '-k', '-h', '-d', '-f'.");
+                }
+            }
+            if (fileName == null || count < 0) {
+                throw new IllegalArgumentException("Missing required '-o<file>' or '-n<count>'.");
+            }
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Count " + count + " does not fit the file header.");
+            }
+
+            ShapeGenerator generator = new ShapeGenerator(seed);
+            if (mix != null) {
+                applyMix(generator, mix);
+            }
+            generator.setHeightRange(heights[0], heights[1]);
+            generator.setDimensionRange(dimensions[0], dimensions[1]);
+            generator.setOrder(order, orderParameter);
+            generator.setKeyType(keyType);
+
+            long startTime = System.nanoTime();
+            switch (format) {
+                case 'T': generator.write(fileName, (int) count); break;
+                case 'R': generator.writeBinary(fileName, (int) count, BinaryShapeFile.Layout.ROWS); break;
+                case 'C': generator.writeBinary(fileName, (int) count, BinaryShapeFile.Layout.COLUMNS); break;
+                default:
+                    throw new IllegalArgumentException("Invalid format '" + format + "'. Use 'T', 'R' or 'C'.");
+            }
+            System.out.printf("Wrote %d shapes to %s in %.1f seconds%n", count, fileName,
+                    (System.nanoTime() - startTime) / 1e9);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Error writing file: " + e.getMessage());
+        }
+    }
+
+    private static ShapeGenerator.Order parseOrder(char c) {
+        switch (c) {
+            case 'R': return ShapeGenerator.Order.RANDOM;
+            case 'S': return ShapeGenerator.Order.SORTED;
+            case 'V': return ShapeGenerator.Order.REVERSE;
+            case 'F': return ShapeGenerator.Order.FEW_DISTINCT;
+            case 'W': return ShapeGenerator.Order.SAWTOOTH;
+            default:
+                throw new IllegalArgumentException("Invalid order '" + c
+                        + "'. Use 'R', 'S', 'V', 'F' or 'W'.");
+        }
+    }
+
+    private static double[] parseRange(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid range '" + value + "'. Use <min>:<max>.");
+        }
+        return new double[] { Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+    }
+
+    /**
+     * Applies a mix like "Cylinder:3,Cone:1". Kinds not listed get weight 0.
+     */
+    private static void applyMix(ShapeGenerator generator, String mix) {
+        for (byte k = 0; k < 7; k++) {
+            generator.setWeight(k, 0);
+        }
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            byte kind = ShapeTable.kindOf(parts[0].trim());
+            if (kind < 0) {
+                throw new IllegalArgumentException("Unknown shape type '" + parts[0] + "' in mix.");
+            }
+            generator.setWeight(kind, parts.length > 1 ? Double.parseDouble(parts[1]) : 1);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package managers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import sorts.SortStats;
+
+/**
+ * Results of a batch run (-x): one row per (-t, -s) pair, written as CSV or
+ * JSON for scripts and spreadsheets.
+ * <p>
+ * Besides the time, each row records whether the output is in order and a
+ * checksum of the sorted keys. Every correct sort of the same file by the
+ * same key produces the same key sequence, so rows with equal compare types
+ * must have equal checksums.
+ *
+ * @author NJobse
+ */
+public class BatchReport {
+    /** The outcome of one (-t, -s) pair. */
+    public static class Result {
+        /** Result status values. */
+        public static final String OK = "ok", SKIPPED = "skipped", ERROR = "error";
+
+        private final char compareType;
+        private final char sortType;
+        private final String algorithm;
+        private final char sortMode;
+        private final int shapes;
+        private String status = OK;
+        private String note = "";
+        private double timeMs = Double.NaN;
+        private boolean sorted;
+        private long checksum;
+        private double first = Double.NaN, last = Double.NaN;
+        private boolean counted;
+        private long comparisons, swaps, writes, allocations, allocatedElements;
+        private int maxDepth;
+
+        /**
+         * Creates the result of a pair that has not run yet.
+         *
+         * @param compareType 'H', 'A' or 'V'
+         * @param sortType    the -s letter
+         * @param algorithm   name of the sorting algorithm
+         * @param sortMode    the -m letter, or '\0' for comparator sorting
+         * @param shapes      number of shapes sorted
+         */
+        public Result(char compareType, char sortType, String algorithm, char sortMode, int shapes) {
+            this.compareType = compareType;
+            this.sortType = sortType;
+            this.algorithm = algorithm;
+            this.sortMode = sortMode;
+            this.shapes = shapes;
+        }
+
+        /**
+         * Marks the pair as not run.
+         *
+         * @param status SKIPPED or ERROR
+         * @param note   the reason
+         */
+        public void fail(String status, String note) {
+            this.status = status;
+            this.note = note;
+        }
+
+        /**
+         * Records the time of the sort and checks its output.
+         *
+         * @param timeMs     time taken by the sort
+         * @param sortedKeys the sort keys in output order
+         */
+        public void finish(double timeMs, double[] sortedKeys) {
+            this.timeMs = timeMs;
+            sorted = true;
+            long hash = 17;
+            for (int i = 0; i < sortedKeys.length; i++) {
+                // Keys are ordered descending, like the Shape comparators
+                if (i > 0 && Double.compare(sortedKeys[i - 1], sortedKeys[i]) < 0)
+                    sorted = false;
+                hash = 31 * hash + Double.doubleToLongBits(sortedKeys[i]);
+            }
+            checksum = hash;
+            if (sortedKeys.length > 0) {
+                first = sortedKeys[0];
+                last = sortedKeys[sortedKeys.length - 1];
+            }
+        }
+
+        /**
+         * Copies the current SortStats counters into the result.
+         */
+        public void recordCounters() {
+            counted = true;
+            comparisons = SortStats.getComparisons();
+            swaps = SortStats.getSwaps();
+            writes = SortStats.getWrites();
+            allocations = SortStats.getAllocations();
+            allocatedElements = SortStats.getAllocatedElements();
+            maxDepth = SortStats.getMaxDepth();
+        }
+
+        public char getCompareType() {
+            return compareType;
+        }
+
+        public char getSortType() {
+            return sortType;
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getNote() {
+            return note;
+        }
+
+        public double getTimeMs() {
+            return timeMs;
+        }
+
+        public boolean isSorted() {
+            return sorted;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        private String mode() {
+            return sortMode == '\0' ? "" : String.valueOf(sortMode);
+        }
+
+        private Object[] values() {
+            boolean ok = OK.equals(status);
+            return new Object[] { String.valueOf(compareType), String.valueOf(sortType), algorithm, mode(),
+                    shapes, status, ok ? String.format(Locale.ROOT, "%.4f", timeMs) : null, ok ? sorted : null,
+                    ok ? String.format("%016x", checksum) : null, ok ? first : null, ok ? last : null,
+                    counted ? comparisons : null, counted ? swaps : null, counted ? writes : null,
+                    counted ? allocations : null, counted ? allocatedElements : null,
+                    counted ? maxDepth : null, note };
+        }
+    }
+
+    private static final String[] COLUMNS = { "compare", "sort", "algorithm", "mode", "shapes", "status",
+            "time_ms", "sorted", "checksum", "first", "last", "comparisons", "swaps", "writes", "allocations",
+            "allocated_elements", "max_depth", "note" };
+    // Columns written as JSON strings; the others are numbers or booleans
+    private static final String TEXT_COLUMNS = ",compare,sort,algorithm,mode,status,checksum,note,";
+
+    private final String fileName;
+    private final List<Result> results = new ArrayList<>();
+
+    /**
+     * Creates an empty report.
+     *
+     * @param fileName the shape file the batch sorted
+     */
+    public BatchReport(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public void add(Result result) {
+        results.add(result);
+    }
+
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Returns whether all completed pairs with the same compare type produced
+     * the same sorted keys.
+     *
+     * @return true if the checksums agree
+     */
+    public boolean checksumsAgree() {
+        for (Result a : results) {
+            for (Result b : results) {
+                if (a.compareType == b.compareType && Result.OK.equals(a.status) && Result.OK.equals(b.status)
+                        && a.checksum != b.checksum) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the report to a file, as JSON if the name ends in ".json" and as
+     * CSV otherwise.
+     *
+     * @param outputFile path of the report
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String outputFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)) {
+            if (outputFile.toLowerCase(Locale.ROOT).endsWith(".json")) {
+                writeJson(out);
+            } else {
+                writeCsv(out);
+            }
+        }
+    }
+
+    /**
+     * Writes a header line and one line per pair. Values that do not apply
+     * (e.g. the time of a skipped pair) are left empty.
+     *
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write('\n');
+        for (Result r : results) {
+            Object[] values = r.values();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0)
+                    out.write(',');
+                if (values[i] != null)
+                    out.write(csv(String.valueOf(values[i])));
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes an object with the file name and an array of one object per
+     * pair. Values that do not apply are null.
+     *
+     * @param out destination
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"file\": " + json(fileName) + ",\n  \"results\": [");
+        for (int r = 0; r < results.size(); r++) {
+            Object[] values = results.get(r).values();
+            out.write(r == 0 ? "\n    {" : ",\n    {");
+            for (int i = 0; i < values.length; i++) {
+                out.write((i > 0 ? ", " : "") + json(COLUMNS[i]) + ": ");
+                Object v = values[i];
+                if (v == null || (v instanceof Double && !Double.isFinite((Double) v))) {
+                    out.write("null");
+                } else if (TEXT_COLUMNS.contains("," + COLUMNS[i] + ",")) {
+                    out.write(json(String.valueOf(v)));
+                } else {
+                    out.write(String.valueOf(v));
+                }
+            }
+            out.write('}');
+        }
+        out.write("\n  ]\n}\n");
+        out.flush();
+    }
+
+    private static String csv(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+            return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
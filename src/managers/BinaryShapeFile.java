@@ -0,0 +1,455 @@
+package managers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Compact binary shape files, loaded by memory mapping instead of parsing.
+ * <p>
+ * All values are little-endian:
+ * <pre>
+ * offset  size  field
+ * 0       4     magic 0x89 'S' 'H' 'P' (no text shape file starts with 0x89)
+ * 4       4     format version, currently 1
+ * 8       4     layout: 0 = rows, 1 = columns
+ * 12      4     record size in bytes, 17
+ * 16      8     number of shapes n
+ * 24      8     reserved, 0
+ * 32            data
+ * </pre>
+ * In the row layout the data is n records of a kind byte (the ShapeTable
+ * kind code), the height and the radius or edge length as doubles. In the
+ * column layout it is n kind bytes, zero padding to a multiple of 8, n
+ * heights and n dimensions, which load into a ShapeTable with three bulk
+ * copies. Doubles are stored bit for bit, so a converted file loads exactly
+ * the values of the text file it came from.
+ * <p>
+ * FileManager's fast and parallel loaders and ShapeReader recognise the
+ * format by its magic number, so a binary file can be passed anywhere a
+ * text file is accepted.
+ *
+ * @author NJobse
+ */
+public final class BinaryShapeFile {
+    /** Format version written to and accepted from the header. */
+    public static final int VERSION = 1;
+    /** Bytes before the first record or column. */
+    public static final int HEADER_BYTES = 32;
+    /** Bytes per shape: a kind byte and two doubles. */
+    public static final int RECORD_BYTES = 17;
+
+    /** How the records are stored after the header. */
+    public enum Layout {
+        /** One 17-byte record per shape. */
+        ROWS,
+        /** A kind column, then a height column, then a dimension column. */
+        COLUMNS
+    }
+
+    private static final byte[] MAGIC = { (byte) 0x89, 'S', 'H', 'P' };
+    // Records mapped at once by the loaders; keeps each mapping well under 2 GB
+    private static final int LOAD_RECORDS = 1 << 24;
+    // Records mapped at once by a Cursor, which should not hold much memory
+    private static final int CURSOR_RECORDS = 1 << 16;
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    private BinaryShapeFile() {
+    }
+
+    /**
+     * Returns whether a file starts with the binary format's magic number.
+     *
+     * @param fileName path of the file
+     * @return true for a binary shape file, false for anything else,
+     *         including a file that cannot be read
+     */
+    public static boolean isBinary(String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return isBinary(channel);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static boolean isBinary(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // read until full or end of file
+        }
+        return !magic.hasRemaining() && Arrays.equals(magic.array(), MAGIC);
+    }
+
+    /**
+     * Loads a binary shape file into a ShapeTable.
+     *
+     * @param fileName the path to the binary file
+     * @return a table with one row per shape, in file order
+     * @throws IOException if the file cannot be read or is not a valid binary shape file
+     */
+    public static ShapeTable loadShapeTable(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            Header header = new Header(channel);
+            int n = header.count;
+            byte[] kind = new byte[n];
+            double[] height = new double[n];
+            double[] dimension = new double[n];
+            for (int first = 0; first < n; first += LOAD_RECORDS) {
+                read(channel, header, first, Math.min(LOAD_RECORDS, n - first), kind, height, dimension, first);
+            }
+            return new ShapeTable(kind, height, dimension);
+        }
+    }
+
+    /**
+     * Loads a binary shape file into a Shape array.
+     *
+     * @param fileName the path to the binary file
+     * @return the shapes in file order
+     * @throws IOException if the file cannot be read or is not a valid binary shape file
+     */
+    public static Shape[] loadShapes(String fileName) throws IOException {
+        ShapeTable table = loadShapeTable(fileName);
+        Shape[] shapes = new Shape[table.size()];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = table.toShape(i);
+        }
+        return shapes;
+    }
+
+    /**
+     * Converts a shape file to the binary format. The input may be a text
+     * file or another binary file (to change its layout).
+     *
+     * @param inputFile  the shape file to read
+     * @param outputFile the binary file to write, replaced if it exists
+     * @param layout     layout of the output
+     * @return the number of shapes written
+     * @throws IOException if the input is invalid or a file cannot be read or written
+     */
+    public static long convert(String inputFile, String outputFile, Layout layout) throws IOException {
+        long count;
+        try (ShapeReader reader = new ShapeReader(inputFile)) {
+            count = reader.getDeclaredCount();
+        }
+        if (count < 0 && layout == Layout.COLUMNS) {
+            // The column offsets depend on the count, so count the rows first
+            try (ShapeReader reader = new ShapeReader(inputFile)) {
+                while (reader.readRow()) {
+                    // count only
+                }
+                count = reader.getCount();
+            }
+        }
+        try (ShapeReader reader = new ShapeReader(inputFile); Writer out = new Writer(outputFile, layout, count)) {
+            while (reader.readRow()) {
+                out.write(reader.getKind(), reader.getHeight(), reader.getDimension());
+            }
+            return out.getCount();
+        }
+    }
+
+    /**
+     * Reads records first .. first + count - 1 into the arrays, starting at
+     * offset, mapping only that part of the file.
+     */
+    private static void read(FileChannel channel, Header header, long first, int count, byte[] kind,
+            double[] height, double[] dimension, int offset) throws IOException {
+        if (header.layout == Layout.ROWS) {
+            ByteBuffer buf = map(channel, HEADER_BYTES + first * RECORD_BYTES, (long) count * RECORD_BYTES);
+            for (int i = 0, p = 0; i < count; i++, p += RECORD_BYTES) {
+                kind[offset + i] = buf.get(p);
+                height[offset + i] = buf.getDouble(p + 1);
+                dimension[offset + i] = buf.getDouble(p + 9);
+            }
+        } else {
+            long n = header.count;
+            long heights = heightsOffset(n);
+            map(channel, HEADER_BYTES + first, count).get(kind, offset, count);
+            map(channel, heights + first * 8, count * 8L).asDoubleBuffer().get(height, offset, count);
+            map(channel, heights + n * 8 + first * 8, count * 8L).asDoubleBuffer().get(dimension, offset, count);
+        }
+        for (int i = offset; i < offset + count; i++) {
+            if (kind[i] < ShapeTable.CYLINDER || kind[i] > ShapeTable.OCTAGONAL_PRISM) {
+                throw new IOException("Unknown shape kind code " + kind[i] + " in record " + (first + i - offset));
+            }
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        return buf;
+    }
+
+    /**
+     * Returns the offset of the height column in the column layout.
+     */
+    private static long heightsOffset(long n) {
+        return HEADER_BYTES + ((n + 7) & ~7L);
+    }
+
+    private static long fileSize(Layout layout, long n) {
+        return layout == Layout.ROWS ? HEADER_BYTES + n * RECORD_BYTES : heightsOffset(n) + n * 16;
+    }
+
+    /**
+     * The parsed and checked header of a binary shape file.
+     */
+    static final class Header {
+        final Layout layout;
+        final int count;
+
+        Header(FileChannel channel) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && channel.read(buf, buf.position()) > 0) {
+                // read until full or end of file
+            }
+            if (buf.hasRemaining()) {
+                throw new IOException("Binary shape file header is truncated");
+            }
+            byte[] magic = new byte[MAGIC.length];
+            buf.position(0);
+            buf.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a binary shape file");
+            }
+            int version = buf.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary shape file version " + version);
+            }
+            int layoutCode = buf.getInt(8);
+            if (layoutCode < 0 || layoutCode >= Layout.values().length) {
+                throw new IOException("Unknown binary shape file layout " + layoutCode);
+            }
+            layout = Layout.values()[layoutCode];
+            if (buf.getInt(12) != RECORD_BYTES) {
+                throw new IOException("Unsupported record size " + buf.getInt(12));
+            }
+            long n = buf.getLong(16);
+            if (n < 0 || n > Integer.MAX_VALUE - 8) {
+                throw new IOException("Invalid shape count " + n + (n < 0 ? " (the file was not closed)" : ""));
+            }
+            count = (int) n;
+            long expected = fileSize(layout, n);
+            if (channel.size() < expected) {
+                throw new IOException("Binary shape file is truncated: expected " + expected + " bytes but found "
+                        + channel.size());
+            }
+        }
+    }
+
+    /**
+     * Sequential reader over the records of a binary shape file that maps
+     * only a small window at a time. Used by ShapeReader.
+     */
+    static final class Cursor {
+        private final FileChannel channel;
+        private final Header header;
+        private final byte[] kind;
+        private final double[] height;
+        private final double[] dimension;
+        private long nextBatch; // first record of the next window
+        private int size;       // records in the current window
+        private int pos;        // index of the next record in the window
+
+        Cursor(FileChannel channel) throws IOException {
+            this.channel = channel;
+            header = new Header(channel);
+            int window = Math.max(1, Math.min(CURSOR_RECORDS, header.count));
+            kind = new byte[window];
+            height = new double[window];
+            dimension = new double[window];
+        }
+
+        int getCount() {
+            return header.count;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return false at the end of the file
+         */
+        boolean next() throws IOException {
+            if (pos == size) {
+                long remaining = header.count - nextBatch;
+                if (remaining <= 0) {
+                    return false;
+                }
+                size = (int) Math.min(kind.length, remaining);
+                read(channel, header, nextBatch, size, kind, height, dimension, 0);
+                nextBatch += size;
+                pos = 0;
+            }
+            pos++;
+            return true;
+        }
+
+        byte getKind() {
+            return kind[pos - 1];
+        }
+
+        double getHeight() {
+            return height[pos - 1];
+        }
+
+        double getDimension() {
+            return dimension[pos - 1];
+        }
+    }
+
+    /**
+     * Streams shapes into a new binary shape file.
+     * <p>
+     * The header is written when the writer is closed. Until then the count
+     * field holds -1, so a file whose writer never closed is rejected by the
+     * loaders instead of being read short.
+     */
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final Layout layout;
+        private final long expectedCount;
+        private final ByteBuffer[] buffers;  // rows: one buffer; columns: kinds, heights, dimensions
+        private final long[] positions;      // file offset each buffer is drained to
+        private long count;
+
+        /**
+         * Creates (or replaces) a binary shape file.
+         *
+         * @param fileName      the path of the file
+         * @param layout        row or column layout
+         * @param expectedCount number of shapes that will be written; may be
+         *                      -1 (unknown) for the row layout only
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(String fileName, Layout layout, long expectedCount) throws IOException {
+            if (expectedCount > Integer.MAX_VALUE - 8 || (expectedCount < 0 && layout == Layout.COLUMNS)) {
+                throw new IllegalArgumentException("Invalid shape count " + expectedCount + " for " + layout);
+            }
+            this.layout = layout;
+            this.expectedCount = expectedCount;
+            if (layout == Layout.ROWS) {
+                buffers = new ByteBuffer[] { buffer(WRITE_BUFFER - WRITE_BUFFER % RECORD_BYTES) };
+                positions = new long[] { HEADER_BYTES };
+            } else {
+                buffers = new ByteBuffer[] { buffer(WRITE_BUFFER / 8), buffer(WRITE_BUFFER), buffer(WRITE_BUFFER) };
+                long heights = heightsOffset(expectedCount);
+                positions = new long[] { HEADER_BYTES, heights, heights + expectedCount * 8 };
+            }
+            channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                writeHeader(-1);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static ByteBuffer buffer(int capacity) {
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Appends one shape.
+         *
+         * @param kind      kind code (see the constants in ShapeTable)
+         * @param height    height of the shape
+         * @param dimension radius or edge length of the shape
+         * @throws IOException if the file cannot be written
+         */
+        public void write(byte kind, double height, double dimension) throws IOException {
+            if (expectedCount >= 0 && count == expectedCount) {
+                throw new IOException("More than the expected " + expectedCount + " shapes written");
+            }
+            if (layout == Layout.ROWS) {
+                ByteBuffer buf = buffers[0];
+                if (buf.remaining() < RECORD_BYTES) {
+                    drain(0);
+                }
+                buf.put(kind).putDouble(height).putDouble(dimension);
+            } else {
+                if (!buffers[0].hasRemaining()) {
+                    drain(0);
+                }
+                if (!buffers[1].hasRemaining()) {
+                    drain(1);
+                    drain(2);
+                }
+                buffers[0].put(kind);
+                buffers[1].putDouble(height);
+                buffers[2].putDouble(dimension);
+            }
+            count++;
+        }
+
+        /**
+         * Appends one Shape object.
+         *
+         * @param shape the shape to write
+         * @throws IOException if the file cannot be written
+         */
+        public void write(Shape shape) throws IOException {
+            write(ShapeTable.kindOf(shape), shape.getHeight(), ShapeTable.dimensionOf(shape));
+        }
+
+        /**
+         * Returns the number of shapes written so far.
+         *
+         * @return shapes written
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Flushes the buffers, writes the header and closes the file.
+         *
+         * @throws IOException if the file cannot be written, or fewer shapes
+         *                     than expected were written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                for (int i = 0; i < buffers.length; i++) {
+                    drain(i);
+                }
+                if (expectedCount >= 0 && count != expectedCount) {
+                    throw new IOException("Expected " + expectedCount + " shapes but " + count + " were written");
+                }
+                writeHeader(count);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void writeHeader(long n) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(MAGIC).putInt(VERSION).putInt(layout.ordinal()).putInt(RECORD_BYTES).putLong(n).putLong(0);
+            buf.flip();
+            long pos = 0;
+            while (buf.hasRemaining()) {
+                pos += channel.write(buf, pos);
+            }
+        }
+
+        private void drain(int i) throws IOException {
+            ByteBuffer buf = buffers[i];
+            buf.flip();
+            while (buf.hasRemaining()) {
+                positions[i] += channel.write(buf, positions[i]);
+            }
+            buf.clear();
+        }
+    }
+}
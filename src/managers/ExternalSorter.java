@@ -0,0 +1,320 @@
+package managers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * External merge sort for shape files that do not fit in memory.
+ * <p>
+ * The file is streamed with a {@link ShapeReader} in chunks that fit the
+ * memory budget. Each chunk is sorted in memory by the caller's sort routine
+ * and spilled to a temporary run file of fixed 17-byte records (kind, height,
+ * dimension). The runs are then merged through a heap, at most
+ * {@link #MAX_FAN_IN} at a time, and the sorted shapes are returned as an
+ * iterator over the final merge. When the whole file fits in one chunk
+ * nothing is spilled.
+ *
+ * @author NJobse
+ */
+public class ExternalSorter {
+    /** Rough heap cost of one loaded shape: the object, its reference and sort scratch. */
+    public static final int BYTES_PER_SHAPE = 96;
+    /** Most runs merged in one pass. */
+    public static final int MAX_FAN_IN = 128;
+
+    private static final int IO_BUFFER = 1 << 16;
+
+    private final Comparator<Shape> comparator;
+    private final Consumer<Shape[]> sorter;
+    private final int chunkSize;
+    private int runCount;
+    private long shapeCount;
+
+    /**
+     * Creates an external sorter.
+     *
+     * @param comparator  order of the output; must match the order used by sorter
+     * @param sorter      sorts one in-memory chunk, e.g. with an algorithm from Sort
+     * @param budgetBytes memory budget for a chunk of shapes
+     */
+    public ExternalSorter(Comparator<Shape> comparator, Consumer<Shape[]> sorter, long budgetBytes) {
+        this.comparator = comparator;
+        this.sorter = sorter;
+        this.chunkSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, budgetBytes / BYTES_PER_SHAPE));
+    }
+
+    /**
+     * Sorts a shape file.
+     *
+     * @param fileName the path to the file containing shape data
+     * @return the shapes in sorted order; close it to delete the temporary runs
+     * @throws IOException if the file cannot be read or a run cannot be written
+     */
+    public SortedShapes sort(String fileName) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try (ShapeReader reader = new ShapeReader(fileName)) {
+            Shape[] chunk = new Shape[chunkSize];
+            while (true) {
+                int n = 0;
+                Shape shape;
+                while (n < chunkSize && (shape = reader.read()) != null) {
+                    chunk[n++] = shape;
+                }
+                if (n == 0) {
+                    break;
+                }
+                Shape[] sorted = n == chunk.length ? chunk : Arrays.copyOf(chunk, n);
+                sorter.accept(sorted);
+                if (runs.isEmpty() && n < chunkSize) {
+                    // Everything fit in memory: no need to spill
+                    runCount = 1;
+                    shapeCount = reader.getCount();
+                    return new SortedShapes(Arrays.asList(sorted).iterator(), runs);
+                }
+                runs.add(writeRun(sorted));
+                Arrays.fill(chunk, null);
+            }
+            shapeCount = reader.getCount();
+        } catch (IOException | RuntimeException e) {
+            deleteAll(runs);
+            throw e;
+        }
+        runCount = runs.size();
+
+        // Merge in passes until one heap can take every remaining run. The
+        // runs written so far in a pass are deleted too if the pass fails
+        List<Path> merged = new ArrayList<>();
+        try {
+            while (runs.size() > MAX_FAN_IN) {
+                merged = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                    List<Path> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+                    merged.add(mergeToRun(group));
+                    deleteAll(group);
+                }
+                runs = merged;
+            }
+            return new SortedShapes(new MergeIterator(runs), runs);
+        } catch (IOException | RuntimeException e) {
+            deleteAll(runs);
+            deleteAll(merged);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of sorted runs produced by the last call to sort.
+     *
+     * @return runs written (1 when the input fit in memory)
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Returns the number of shapes read by the last call to sort.
+     *
+     * @return shapes in the sorted stream
+     */
+    public long getShapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * Returns how many shapes are sorted in memory at a time.
+     *
+     * @return chunk size in shapes
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    private Path writeRun(Shape[] sorted) throws IOException {
+        Path run = Files.createTempFile("shapes-run", ".bin");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            for (Shape shape : sorted) {
+                writeRecord(out, shape);
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(run);
+            throw e;
+        }
+        return run;
+    }
+
+    private Path mergeToRun(List<Path> group) throws IOException {
+        Path run = Files.createTempFile("shapes-run", ".bin");
+        try (MergeIterator merge = new MergeIterator(group);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            while (merge.hasNext()) {
+                writeRecord(out, merge.next());
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(run);
+            throw e;
+        }
+        return run;
+    }
+
+    private static void writeRecord(DataOutputStream out, Shape shape) throws IOException {
+        out.writeByte(ShapeTable.kindOf(shape));
+        out.writeDouble(shape.getHeight());
+        out.writeDouble(ShapeTable.dimensionOf(shape));
+    }
+
+    private static void deleteAll(List<Path> runs) {
+        for (Path run : runs) {
+            delete(run);
+        }
+    }
+
+    private static void delete(Path run) {
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException e) {
+            // Best effort: the temp directory is cleaned by the OS eventually
+        }
+    }
+
+    /**
+     * Sorted output of an external sort. Closing it deletes the temporary runs.
+     */
+    public static class SortedShapes implements Iterator<Shape>, Closeable {
+        private final Iterator<Shape> source;
+        private final List<Path> runs;
+
+        SortedShapes(Iterator<Shape> source, List<Path> runs) {
+            this.source = source;
+            this.runs = runs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return source.hasNext();
+        }
+
+        @Override
+        public Shape next() {
+            return source.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (source instanceof Closeable) {
+                ((Closeable) source).close();
+            }
+            deleteAll(runs);
+        }
+    }
+
+    /**
+     * One open run and its current (smallest unread) shape.
+     */
+    private static class RunCursor {
+        private final DataInputStream in;
+        private final int order; // position of the run in the input, for stable ties
+        private Shape current;
+
+        RunCursor(Path run, int order) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER));
+            this.order = order;
+        }
+
+        /**
+         * Reads the next record into current.
+         *
+         * @return false at the end of the run
+         */
+        boolean advance() throws IOException {
+            byte kind;
+            try {
+                kind = in.readByte();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            double height = in.readDouble();
+            double dimension = in.readDouble();
+            current = ShapeTable.createShape(kind, height, dimension);
+            return true;
+        }
+    }
+
+    /**
+     * k-way merge of sorted runs through a heap of run cursors. Equal shapes
+     * come out in run order, so the merge is stable when the chunk sort is.
+     */
+    private class MergeIterator implements Iterator<Shape>, Closeable {
+        private final PriorityQueue<RunCursor> heap;
+        private final List<RunCursor> open = new ArrayList<>();
+
+        MergeIterator(List<Path> runs) throws IOException {
+            heap = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                int c = comparator.compare(a.current, b.current);
+                return c != 0 ? c : Integer.compare(a.order, b.order);
+            });
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    RunCursor cursor = new RunCursor(runs.get(i), i);
+                    open.add(cursor);
+                    if (cursor.advance()) {
+                        heap.add(cursor);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Shape next() {
+            RunCursor cursor = heap.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            Shape shape = cursor.current;
+            try {
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return shape;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunCursor cursor : open) {
+                cursor.in.close();
+            }
+        }
+    }
+}
@@ -3,6 +3,10 @@ package managers;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 import shapes.*;
 
 /**
@@ -78,4 +82,195 @@ public class FileManager {
         }
         return shapes;
     }
+
+    /**
+     * Loads a shape file (same format as {@link #loadShapes(String)}) straight
+     * into a columnar ShapeTable, without creating a Shape object per line.
+     * Lines with an unknown shape type are reported and skipped.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @return a ShapeTable with one row per shape, or null if an error occurs.
+     */
+    public static ShapeTable loadShapeTable(String fileName) {
+        ShapeTable table = null;
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            // Read the first line: Number of shapes in the file
+            int numShapes = Integer.parseInt(br.readLine().trim());
+            table = new ShapeTable(numShapes);
+
+            for (int i = 0; i < numShapes; i++) {
+                String[] tokens = br.readLine().trim().split("\\s+");
+                byte kind = ShapeTable.kindOf(tokens[0]);
+                if (kind < 0) {
+                    System.err.println("Unknown shape type: " + tokens[0]);
+                    continue;
+                }
+                table.add(kind, Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+        return table;
+    }
+
+    /**
+     * Loads a shape file like {@link #loadShapes(String)}, but reads it as
+     * memory-mapped bytes with {@link ShapeParser} instead of splitting Strings.
+     * Values are bit-identical to the String-based loader. An unknown shape
+     * type is treated as an error. Binary shape files ({@link BinaryShapeFile})
+     * are detected by their magic number and loaded by memory mapping; the
+     * other fast and parallel loaders detect them too.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @return an array of Shape objects loaded from the file, or null if an error occurs.
+     */
+    public static Shape[] loadShapesFast(String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (BinaryShapeFile.isBinary(channel)) {
+                return BinaryShapeFile.loadShapes(fileName);
+            }
+            ShapeParser parser = new ShapeParser(channel);
+            Shape[] shapes = new Shape[readHeader(parser)];
+            parseRows(parser, 0, shapes.length, shapes, null);
+            return shapes;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads a shape file into a ShapeTable using the byte-level
+     * {@link ShapeParser}.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @return a ShapeTable with one row per shape, or null if an error occurs.
+     */
+    public static ShapeTable loadShapeTableFast(String fileName) {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            if (BinaryShapeFile.isBinary(channel)) {
+                return BinaryShapeFile.loadShapeTable(fileName);
+            }
+            ShapeParser parser = new ShapeParser(channel);
+            ShapeTable table = new ShapeTable(readHeader(parser));
+            parseRows(parser, 0, table.capacity(), null, table);
+            table.setSize(table.capacity());
+            return table;
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads a shape file in parallel on the common ForkJoinPool. The file is
+     * split into line-aligned byte ranges that are parsed concurrently, each
+     * straight into its slice of the result. The number of shapes found must
+     * match the count in the first line.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @return an array of Shape objects loaded from the file, or null if an error occurs.
+     */
+    public static Shape[] loadShapesParallel(String fileName) {
+        return loadShapesParallel(fileName, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a shape file in parallel on the given pool.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @param pool     pool that parses the file
+     * @return an array of Shape objects loaded from the file, or null if an error occurs.
+     */
+    public static Shape[] loadShapesParallel(String fileName, ForkJoinPool pool) {
+        try {
+            if (BinaryShapeFile.isBinary(fileName)) {
+                return BinaryShapeFile.loadShapes(fileName);
+            }
+            return ParallelShapeLoader.loadShapes(fileName, pool);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads a shape file into a ShapeTable in parallel on the common ForkJoinPool.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @return a ShapeTable with one row per shape, or null if an error occurs.
+     */
+    public static ShapeTable loadShapeTableParallel(String fileName) {
+        return loadShapeTableParallel(fileName, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a shape file into a ShapeTable in parallel on the given pool.
+     * 
+     * @param fileName the path to the file containing shape data
+     * @param pool     pool that parses the file
+     * @return a ShapeTable with one row per shape, or null if an error occurs.
+     */
+    public static ShapeTable loadShapeTableParallel(String fileName, ForkJoinPool pool) {
+        try {
+            if (BinaryShapeFile.isBinary(fileName)) {
+                return BinaryShapeFile.loadShapeTable(fileName);
+            }
+            return ParallelShapeLoader.loadShapeTable(fileName, pool);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the shape count from the first line.
+     * 
+     * @param parser parser positioned at the start of the file
+     * @return number of shapes declared in the file
+     * @throws IOException if the file is empty or the count is negative
+     */
+    private static int readHeader(ShapeParser parser) throws IOException {
+        if (!parser.nextLine()) {
+            throw new IOException("File is empty");
+        }
+        int numShapes = parser.readInt();
+        if (numShapes < 0) {
+            throw new IOException("Invalid shape count " + numShapes);
+        }
+        return numShapes;
+    }
+
+    /**
+     * Parses the next count lines into rows first .. first + count - 1 of
+     * either a Shape array or a ShapeTable.
+     * 
+     * @param parser parser positioned before the first line to read
+     * @param first  first row to write
+     * @param count  number of lines to parse
+     * @param shapes destination array, or null
+     * @param table  destination table, or null
+     * @throws IOException if the input ends early or has an unknown shape type
+     */
+    static void parseRows(ShapeParser parser, int first, int count, Shape[] shapes, ShapeTable table)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (!parser.nextLine()) {
+                throw new IOException("Expected " + count + " shapes but found " + i);
+            }
+            byte kind = parser.readKind();
+            if (kind < 0) {
+                throw new IOException("Unknown shape type '" + parser.tokenString() + "' on line "
+                        + parser.getLineNumber());
+            }
+            double height = parser.readDouble();
+            double secondValue = parser.readDouble();
+            if (shapes != null) {
+                shapes[first + i] = ShapeTable.createShape(kind, height, secondValue);
+            } else {
+                table.set(first + i, kind, height, secondValue);
+            }
+        }
+    }
 }
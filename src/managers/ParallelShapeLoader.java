@@ -0,0 +1,191 @@
+package managers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Loads a shape file on a ForkJoinPool.
+ * <p>
+ * The data lines are split into byte ranges that start and end on line
+ * boundaries. A first parallel pass counts the shapes in each range, which
+ * gives every range its first row in the output; a second pass parses each
+ * range with its own {@link ShapeParser} straight into that slice of a Shape
+ * array or ShapeTable. The total is checked against the header count.
+ *
+ * @author NJobse
+ */
+class ParallelShapeLoader {
+    // Smallest range worth handing to a worker
+    private static final long MIN_CHUNK = 1 << 20;
+    // Ranges per worker, so uneven ranges still balance out
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final FileChannel channel;
+    private final long[] bounds; // range i is [bounds[i], bounds[i + 1])
+    private final int[] firstRow;
+    private final int numShapes;
+
+    private ParallelShapeLoader(FileChannel channel, int parallelism) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+
+        long dataStart = lineEnd(channel, 0, size);
+        ShapeParser header = new ShapeParser(channel, 0, dataStart, ShapeParser.DEFAULT_WINDOW);
+        if (!header.nextLine()) {
+            throw new IOException("File is empty");
+        }
+        numShapes = header.readInt();
+        if (numShapes < 0) {
+            throw new IOException("Invalid shape count " + numShapes);
+        }
+
+        long chunk = Math.max(MIN_CHUNK, (size - dataStart) / ((long) parallelism * CHUNKS_PER_THREAD) + 1);
+        int chunks = (int) Math.max(1, (size - dataStart + chunk - 1) / chunk);
+        bounds = new long[chunks + 1];
+        bounds[0] = dataStart;
+        for (int i = 1; i < chunks; i++) {
+            bounds[i] = Math.max(bounds[i - 1], lineEnd(channel, dataStart + i * chunk - 1, size));
+        }
+        bounds[chunks] = size;
+        firstRow = new int[chunks + 1];
+    }
+
+    /**
+     * Loads a shape file into a Shape array using the given pool.
+     *
+     * @param fileName the path to the file containing shape data
+     * @param pool     pool that parses the ranges
+     * @return the shapes in file order
+     * @throws IOException if the file cannot be read or does not match its header
+     */
+    static Shape[] loadShapes(String fileName, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ParallelShapeLoader loader = new ParallelShapeLoader(channel, pool.getParallelism());
+            loader.countRows(pool);
+            Shape[] shapes = new Shape[loader.numShapes];
+            loader.parse(pool, shapes, null);
+            return shapes;
+        }
+    }
+
+    /**
+     * Loads a shape file into a ShapeTable using the given pool.
+     *
+     * @param fileName the path to the file containing shape data
+     * @param pool     pool that parses the ranges
+     * @return a table with one row per shape, in file order
+     * @throws IOException if the file cannot be read or does not match its header
+     */
+    static ShapeTable loadShapeTable(String fileName, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ParallelShapeLoader loader = new ParallelShapeLoader(channel, pool.getParallelism());
+            loader.countRows(pool);
+            ShapeTable table = new ShapeTable(loader.numShapes);
+            loader.parse(pool, null, table);
+            table.setSize(loader.numShapes);
+            return table;
+        }
+    }
+
+    /**
+     * Counts the shapes in every range and turns the counts into first rows.
+     *
+     * @param pool pool that scans the ranges
+     * @throws IOException if the total does not match the header count
+     */
+    private void countRows(ForkJoinPool pool) throws IOException {
+        invoke(pool, new ChunkTask(0, bounds.length - 1, null, null));
+        // firstRow[i + 1] holds the count of range i until the prefix sum below
+        for (int i = 1; i < firstRow.length; i++) {
+            firstRow[i] += firstRow[i - 1];
+        }
+        int total = firstRow[firstRow.length - 1];
+        if (total != numShapes) {
+            throw new IOException("Header declares " + numShapes + " shapes but file contains " + total);
+        }
+    }
+
+    private void parse(ForkJoinPool pool, Shape[] shapes, ShapeTable table) throws IOException {
+        invoke(pool, new ChunkTask(0, bounds.length - 1, shapes, table));
+    }
+
+    private static void invoke(ForkJoinPool pool, ChunkTask task) throws IOException {
+        try {
+            pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the offset just after the first newline at or after pos, or end
+     * if there is none.
+     */
+    private static long lineEnd(FileChannel channel, long pos, long end) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        while (pos < end) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return end;
+    }
+
+    /**
+     * Counts (when both destinations are null) or parses the ranges lo .. hi - 1,
+     * splitting until each task owns a single range.
+     */
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo, hi;
+        private final Shape[] shapes;
+        private final ShapeTable table;
+
+        ChunkTask(int lo, int hi, Shape[] shapes, ShapeTable table) {
+            this.lo = lo;
+            this.hi = hi;
+            this.shapes = shapes;
+            this.table = table;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ChunkTask(lo, mid, shapes, table), new ChunkTask(mid, hi, shapes, table));
+                return;
+            }
+            try {
+                ShapeParser parser = new ShapeParser(channel, bounds[lo], bounds[lo + 1], ShapeParser.DEFAULT_WINDOW);
+                if (shapes == null && table == null) {
+                    int count = 0;
+                    while (parser.nextLine()) {
+                        count++;
+                    }
+                    firstRow[lo + 1] = count;
+                } else {
+                    FileManager.parseRows(parser, firstRow[lo], firstRow[lo + 1] - firstRow[lo], shapes, table);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package managers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * On-disk cache of sorted permutations (-c), so that sorting the same data
+ * by the same key again only needs to load the file, validate the cached
+ * permutation and apply it.
+ * <p>
+ * Entries are keyed by a 64-bit hash of the shapes themselves (kind,
+ * height and dimension of every row, in order) plus the comparison type.
+ * Any change to the data gives a new key, so a stale entry is never found;
+ * a text file and its binary conversion share entries. Each entry holds
+ * the sorted row order as little-endian ints after a 24-byte header:
+ * <pre>
+ * magic 0x89 'P' 'R' 'M' | int version | long content hash | int count | int comparison type
+ * </pre>
+ * A loaded permutation is only used if it matches its header, contains
+ * every row exactly once and puts the keys in order; otherwise the entry is
+ * deleted and treated as a miss. The directory is kept under a size limit
+ * by deleting the least recently used entries, with recency tracked by the
+ * file modification time, which every hit refreshes.
+ *
+ * @author NJobse
+ */
+public class PermutationCache {
+    /** Entry format version. */
+    public static final int VERSION = 1;
+    /** File name suffix of cache entries. */
+    public static final String SUFFIX = ".perm";
+
+    private static final byte[] MAGIC = { (byte) 0x89, 'P', 'R', 'M' };
+    private static final int HEADER_BYTES = 24;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Creates a cache in the given directory, which is created when the first
+     * entry is stored.
+     *
+     * @param directory cache directory
+     * @param maxBytes  total size of the entries kept; the newest entry is
+     *                  kept even if it alone is larger
+     */
+    public PermutationCache(String directory, long maxBytes) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the default cache directory, under java.io.tmpdir.
+     *
+     * @return path of the default directory
+     */
+    public static String defaultDirectory() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "shape-sort-cache").toString();
+    }
+
+    /**
+     * Hashes the rows of a table.
+     *
+     * @param table the loaded shapes
+     * @return content hash
+     */
+    public static long contentHash(ShapeTable table) {
+        long h = 0;
+        for (int i = 0; i < table.size(); i++) {
+            h = mixRow(h, table.getKind(i), table.getHeight(i), table.getDimension(i));
+        }
+        return finish(h, table.size());
+    }
+
+    /**
+     * Hashes an array of shapes. Gives the same value as
+     * {@link #contentHash(ShapeTable)} for the same rows.
+     *
+     * @param shapes the loaded shapes
+     * @return content hash
+     */
+    public static long contentHash(Shape[] shapes) {
+        long h = 0;
+        for (Shape shape : shapes) {
+            h = mixRow(h, ShapeTable.kindOf(shape), shape.getHeight(), ShapeTable.dimensionOf(shape));
+        }
+        return finish(h, shapes.length);
+    }
+
+    private static long mixRow(long h, byte kind, double height, double dimension) {
+        long x = Double.doubleToRawLongBits(height) * 0x9E3779B97F4A7C15L;
+        long y = Double.doubleToRawLongBits(dimension) * 0xC2B2AE3D27D4EB4FL;
+        return (Long.rotateLeft(h, 23) ^ x ^ Long.rotateLeft(y, 31) ^ kind) * 0x165667B19E3779F9L;
+    }
+
+    private static long finish(long h, long n) {
+        h ^= n * 0x27D4EB2F165667C5L;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Returns the file that holds the entry for a key.
+     *
+     * @param contentHash hash of the shapes
+     * @param compareType 'H', 'A' or 'V'
+     * @return path of the entry, which may not exist
+     */
+    public Path pathFor(long contentHash, char compareType) {
+        return directory.resolve(String.format("%016x-%c%s", contentHash, compareType, SUFFIX));
+    }
+
+    /**
+     * Looks up the sorted order of the shapes by the given key.
+     *
+     * @param contentHash hash of the shapes
+     * @param compareType 'H', 'A' or 'V'
+     * @param keys        sort key of every row; the permutation must order
+     *                    them descending, like the Shape comparators
+     * @return the rows in sorted order, or null if there is no valid entry
+     */
+    public int[] load(long contentHash, char compareType, double[] keys) {
+        Path path = pathFor(contentHash, compareType);
+        int[] permutation;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            permutation = read(channel, contentHash, compareType, keys.length);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            permutation = null;
+        }
+        if (permutation == null || !isSortedPermutation(permutation, keys)) {
+            delete(path);
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only the eviction order is affected
+        }
+        return permutation;
+    }
+
+    private static int[] read(FileChannel channel, long contentHash, char compareType, int n) throws IOException {
+        if (channel.size() != HEADER_BYTES + 4L * n) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                return null;
+            }
+        }
+        if (header.getInt(4) != VERSION || header.getLong(8) != contentHash || header.getInt(16) != n
+                || header.getInt(20) != compareType) {
+            return null;
+        }
+        int[] permutation = new int[n];
+        channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, 4L * n).order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer().get(permutation);
+        return permutation;
+    }
+
+    /**
+     * Checks that every row appears exactly once and that the keys descend.
+     */
+    private static boolean isSortedPermutation(int[] permutation, double[] keys) {
+        boolean[] seen = new boolean[keys.length];
+        for (int i = 0; i < permutation.length; i++) {
+            int row = permutation[i];
+            if (row < 0 || row >= keys.length || seen[row]) {
+                return false;
+            }
+            seen[row] = true;
+            if (i > 0 && Double.compare(keys[permutation[i - 1]], keys[row]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the sorted order of the shapes, replacing any entry for the same
+     * key, then evicts the least recently used entries over the size limit.
+     *
+     * @param contentHash hash of the shapes
+     * @param compareType 'H', 'A' or 'V'
+     * @param permutation the rows in sorted order
+     * @return path of the entry
+     * @throws IOException if the entry cannot be written
+     */
+    public Path store(long contentHash, char compareType, int[] permutation) throws IOException {
+        Files.createDirectories(directory);
+        Path path = pathFor(contentHash, compareType);
+        // Write to a temporary file and rename it, so readers never see a partial entry
+        Path temp = Files.createTempFile(directory, "perm", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(MAGIC).putInt(VERSION).putLong(contentHash).putInt(permutation.length)
+                        .putInt(compareType).flip();
+                long position = writeFully(channel, header, 0);
+                ByteBuffer body = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < permutation.length; ) {
+                    int n = Math.min(body.capacity() / 4, permutation.length - i);
+                    body.clear();
+                    body.asIntBuffer().put(permutation, i, n);
+                    body.limit(4 * n);
+                    position = writeFully(channel, body, position);
+                    i += n;
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            delete(temp);
+        }
+        evict(path);
+        return path;
+    }
+
+    /**
+     * Deletes the least recently used entries until the total size is within
+     * the limit, never deleting the given entry.
+     */
+    private void evict(Path keep) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    entries.add(new Entry(path, Files.getLastModifiedTime(path).toMillis(), Files.size(path)));
+                } catch (IOException e) {
+                    // Removed by another process
+                }
+            }
+        }
+        // Newest first
+        entries.sort((a, b) -> Long.compare(b.lastUsed, a.lastUsed));
+        long total = 0;
+        for (Entry entry : entries) {
+            if (total + entry.size > maxBytes && !entry.path.equals(keep)) {
+                delete(entry.path);
+            } else {
+                total += entry.size;
+            }
+        }
+    }
+
+    private static class Entry {
+        final Path path;
+        final long lastUsed;
+        final long size;
+
+        Entry(Path path, long lastUsed, long size) {
+            this.path = path;
+            this.lastUsed = lastUsed;
+            this.size = size;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Left for the next eviction
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) {
+                throw new IOException("Unexpected end of cache entry");
+            }
+        }
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,461 @@
+package managers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import shapes.ShapeTable;
+
+/**
+ * Generates synthetic shape files for scale testing.
+ * <p>
+ * Rows are produced one at a time from a seeded random generator and written
+ * through a small buffer, so a file of any size takes constant memory and the
+ * same settings always give the same bytes. Values are written with three
+ * decimals, like the sample files, and the keys used for ordering are computed
+ * from the written (rounded) values with the ShapeTable formulas, so an
+ * ordered file stays ordered after it is loaded.
+ * <p>
+ * Orders (see {@link Order}) are relative to one sort key: height, base area
+ * or volume, in the descending order the comparators sort into.
+ *
+ * @author NJobse
+ */
+public class ShapeGenerator {
+    /** Order of the generated rows. */
+    public enum Order {
+        /** Independent random shapes. */
+        RANDOM,
+        /** Already in sorted (descending) order. */
+        SORTED,
+        /** In ascending order, the reverse of sorted. */
+        REVERSE,
+        /** Random picks from a small pool of distinct shapes. */
+        FEW_DISTINCT,
+        /** Consecutive sorted runs of a fixed length. */
+        SAWTOOTH
+    }
+
+    private static final int KINDS = 7;
+    private static final int WRITE_BUFFER = 1 << 20;
+
+    private final long seed;
+    private final double[] weights = new double[KINDS];
+    private double minHeight = 1, maxHeight = 25000;
+    private double minDimension = 1, maxDimension = 25000;
+    private Order order = Order.RANDOM;
+    private int orderParameter;
+    private char keyType = 'V';
+
+    // Generator state
+    private SplittableRandom rnd;
+    private long row;
+    private double keyMin, keyMax;
+    private double previousKey;
+    private byte[] poolKind;
+    private double[] poolHeight, poolDimension;
+
+    // Current row, as written (rounded to three decimals)
+    private byte kind;
+    private double height;
+    private double dimension;
+
+    /**
+     * Creates a generator with an even shape mix, heights and dimensions in
+     * [1, 25000] and random order.
+     *
+     * @param seed random seed; equal seeds and settings give identical files
+     */
+    public ShapeGenerator(long seed) {
+        this.seed = seed;
+        Arrays.fill(weights, 1);
+    }
+
+    /**
+     * Sets the relative weight of a shape kind in the mix. A weight of 0 leaves
+     * the kind out.
+     *
+     * @param kind   kind code from ShapeTable
+     * @param weight relative weight, 0 or more
+     */
+    public void setWeight(byte kind, double weight) {
+        if (kind < 0 || kind >= KINDS || !(weight >= 0)) {
+            throw new IllegalArgumentException("Invalid weight " + weight + " for kind " + kind);
+        }
+        weights[kind] = weight;
+    }
+
+    /**
+     * Sets the range of generated heights.
+     *
+     * @param min smallest height, greater than 0
+     * @param max largest height
+     */
+    public void setHeightRange(double min, double max) {
+        checkRange(min, max);
+        minHeight = min;
+        maxHeight = max;
+    }
+
+    /**
+     * Sets the range of generated radii and edge lengths.
+     *
+     * @param min smallest dimension, greater than 0
+     * @param max largest dimension
+     */
+    public void setDimensionRange(double min, double max) {
+        checkRange(min, max);
+        minDimension = min;
+        maxDimension = max;
+    }
+
+    /**
+     * Sets the order of the generated rows.
+     *
+     * @param order     row order
+     * @param parameter pool size for FEW_DISTINCT or run length for SAWTOOTH
+     *                  (0 for the default of 16 or 1000); ignored otherwise
+     */
+    public void setOrder(Order order, int parameter) {
+        if (parameter < 0) {
+            throw new IllegalArgumentException("Invalid order parameter " + parameter);
+        }
+        this.order = order;
+        this.orderParameter = parameter;
+    }
+
+    /**
+     * Sets the sort key the order refers to.
+     *
+     * @param keyType 'H' (height), 'A' (base area) or 'V' (volume)
+     */
+    public void setKeyType(char keyType) {
+        if ("HAV".indexOf(keyType) == -1) {
+            throw new IllegalArgumentException("Invalid key type '" + keyType + "'");
+        }
+        this.keyType = keyType;
+    }
+
+    /**
+     * Restarts the sequence from the seed. Called by {@link #write}; call it
+     * before pulling rows with {@link #nextRow(long)}.
+     */
+    public void reset() {
+        double total = 0;
+        for (double w : weights) {
+            total += w;
+        }
+        if (total <= 0) {
+            throw new IllegalStateException("Every shape kind has weight 0");
+        }
+        rnd = new SplittableRandom(seed);
+        row = 0;
+        computeKeyRange();
+        if (order == Order.FEW_DISTINCT) {
+            int size = orderParameter > 0 ? orderParameter : 16;
+            poolKind = new byte[size];
+            poolHeight = new double[size];
+            poolDimension = new double[size];
+            for (int i = 0; i < size; i++) {
+                randomRow();
+                poolKind[i] = kind;
+                poolHeight[i] = height;
+                poolDimension[i] = dimension;
+            }
+        }
+    }
+
+    /**
+     * Writes a shape file in the text format read by FileManager: a count
+     * line, then one "Type height dimension" line per shape.
+     *
+     * @param fileName output file, replaced if it exists
+     * @param count    number of shapes
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String fileName, int count) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        reset();
+        byte[][] names = new byte[KINDS][];
+        for (byte k = 0; k < KINDS; k++) {
+            names[k] = (ShapeTable.kindName(k) + " ").getBytes(StandardCharsets.US_ASCII);
+        }
+        try (FileChannel out = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER);
+            buffer.put(Integer.toString(count).getBytes(StandardCharsets.US_ASCII)).put((byte) '\n');
+            for (int i = 0; i < count; i++) {
+                nextRow(count);
+                // Longest line: a 15-character name and two values below 1e12 with 3 decimals
+                if (buffer.remaining() < 64) {
+                    drain(out, buffer);
+                }
+                buffer.put(names[kind]);
+                putFixed3(buffer, height);
+                buffer.put((byte) ' ');
+                putFixed3(buffer, dimension);
+                buffer.put((byte) '\n');
+            }
+            drain(out, buffer);
+        }
+    }
+
+    /**
+     * Writes the same shapes as {@link #write(String, int)} in the binary
+     * format of {@link BinaryShapeFile}. Values are rounded to 3 decimals as
+     * in the text file, so both files load identically.
+     *
+     * @param fileName output file, replaced if it exists
+     * @param count    number of shapes
+     * @param layout   row or column layout
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(String fileName, int count, BinaryShapeFile.Layout layout) throws IOException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        reset();
+        try (BinaryShapeFile.Writer out = new BinaryShapeFile.Writer(fileName, layout, count)) {
+            for (int i = 0; i < count; i++) {
+                nextRow(count);
+                out.write(kind, height, dimension);
+            }
+        }
+    }
+
+    /**
+     * Generates the next row. Use {@link #getKind()}, {@link #getHeight()}
+     * and {@link #getDimension()} to read it.
+     *
+     * @param count total rows in the file, which SORTED and REVERSE spread
+     *              the key range over
+     */
+    public void nextRow(long count) {
+        long position = row++;
+        switch (order) {
+            case SORTED:
+                orderedRow(position, count, true);
+                break;
+            case REVERSE:
+                orderedRow(position, count, false);
+                break;
+            case SAWTOOTH: {
+                int run = orderParameter > 0 ? orderParameter : 1000;
+                orderedRow(position % run, run, true);
+                break;
+            }
+            case FEW_DISTINCT: {
+                int i = rnd.nextInt(poolKind.length);
+                kind = poolKind[i];
+                height = poolHeight[i];
+                dimension = poolDimension[i];
+                break;
+            }
+            default:
+                randomRow();
+        }
+    }
+
+    public byte getKind() {
+        return kind;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public double getDimension() {
+        return dimension;
+    }
+
+    private void randomRow() {
+        kind = pickKind(Double.NaN);
+        height = round3(minHeight + rnd.nextDouble() * (maxHeight - minHeight));
+        dimension = round3(minDimension + rnd.nextDouble() * (maxDimension - minDimension));
+    }
+
+    /**
+     * Generates row j of a run of n rows whose keys sweep the key range in
+     * one direction. Each row aims for a random key inside its own slice of
+     * the range and solves for the dimension (and height, for volume) that
+     * gives it. If rounding would put the key out of order, the previous row
+     * is repeated instead, so keys never go backwards.
+     */
+    private void orderedRow(long j, long n, boolean descending) {
+        double fraction = (j + rnd.nextDouble()) / n;
+        if (descending) {
+            fraction = 1 - fraction;
+        }
+        // Areas and volumes span orders of magnitude, so sweep them on a log
+        // scale; a linear sweep would leave almost every row at the top end
+        double target = keyType == 'H' ? keyMin + (keyMax - keyMin) * fraction
+                : keyMin * Math.pow(keyMax / keyMin, fraction);
+
+        byte k = pickKind(target);
+        double c = keyCoefficient(k);
+        // Keep the target inside what this kind can reach
+        target = Math.max(minKey(k), Math.min(maxKey(k), target));
+        double h, d;
+        switch (keyType) {
+            case 'H':
+                h = target;
+                d = minDimension + rnd.nextDouble() * (maxDimension - minDimension);
+                break;
+            case 'A':
+                h = minHeight + rnd.nextDouble() * (maxHeight - minHeight);
+                d = Math.sqrt(target / c);
+                break;
+            default: {
+                // volume = c * d^2 * h: pick h from the heights that allow a valid d
+                double hLow = Math.max(minHeight, target / (c * maxDimension * maxDimension));
+                double hHigh = Math.min(maxHeight, target / (c * minDimension * minDimension));
+                h = hLow + rnd.nextDouble() * Math.max(0, hHigh - hLow);
+                d = Math.sqrt(target / (c * h));
+            }
+        }
+        h = round3(Math.max(minHeight, Math.min(maxHeight, h)));
+        d = round3(Math.max(minDimension, Math.min(maxDimension, d)));
+
+        double key = key(k, h, d);
+        if (j > 0 && (descending ? key > previousKey : key < previousKey)) {
+            return; // keep the previous row
+        }
+        kind = k;
+        height = h;
+        dimension = d;
+        previousKey = key;
+    }
+
+    /**
+     * Picks a kind by weight, among the kinds that can reach the target key
+     * (any kind when target is NaN or none can reach it).
+     */
+    private byte pickKind(double target) {
+        double total = 0;
+        for (byte k = 0; k < KINDS; k++) {
+            total += reachable(k, target) ? weights[k] : 0;
+        }
+        boolean any = total > 0;
+        if (!any) {
+            for (double w : weights) {
+                total += w;
+            }
+        }
+        double pick = rnd.nextDouble() * total;
+        byte last = 0;
+        for (byte k = 0; k < KINDS; k++) {
+            double w = !any || reachable(k, target) ? weights[k] : 0;
+            if (w > 0) {
+                last = k;
+                if (pick < w) {
+                    return k;
+                }
+                pick -= w;
+            }
+        }
+        return last; // rounding left pick at the very top
+    }
+
+    private boolean reachable(byte k, double target) {
+        return Double.isNaN(target) || (target >= minKey(k) && target <= maxKey(k));
+    }
+
+    /**
+     * Returns c such that the key of a kind is about c * d^2 (base area),
+     * c * d^2 * h (volume), or 1 for height.
+     */
+    private double keyCoefficient(byte k) {
+        switch (keyType) {
+            case 'H': return 1;
+            case 'A': return ShapeTable.baseArea(k, 1);
+            default:  return ShapeTable.volume(k, ShapeTable.baseArea(k, 1), 1);
+        }
+    }
+
+    private double minKey(byte k) {
+        switch (keyType) {
+            case 'H': return minHeight;
+            case 'A': return keyCoefficient(k) * minDimension * minDimension;
+            default:  return keyCoefficient(k) * minDimension * minDimension * minHeight;
+        }
+    }
+
+    private double maxKey(byte k) {
+        switch (keyType) {
+            case 'H': return maxHeight;
+            case 'A': return keyCoefficient(k) * maxDimension * maxDimension;
+            default:  return keyCoefficient(k) * maxDimension * maxDimension * maxHeight;
+        }
+    }
+
+    private void computeKeyRange() {
+        keyMin = Double.MAX_VALUE;
+        keyMax = 0;
+        for (byte k = 0; k < KINDS; k++) {
+            if (weights[k] > 0) {
+                keyMin = Math.min(keyMin, minKey(k));
+                keyMax = Math.max(keyMax, maxKey(k));
+            }
+        }
+    }
+
+    /**
+     * Computes a sort key exactly as the loaders and Shape classes do.
+     */
+    private double key(byte k, double h, double d) {
+        switch (keyType) {
+            case 'H': return h;
+            case 'A': return ShapeTable.baseArea(k, d);
+            default:  return ShapeTable.volume(k, ShapeTable.baseArea(k, d), h);
+        }
+    }
+
+    /**
+     * Rounds to three decimals. The result is the double that parsing the
+     * written text gives back.
+     */
+    private static double round3(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+
+    /**
+     * Writes a non-negative value with exactly three decimals.
+     */
+    private static void putFixed3(ByteBuffer buffer, double v) {
+        long m = Math.round(v * 1000);
+        putLong(buffer, m / 1000);
+        buffer.put((byte) '.');
+        int frac = (int) (m % 1000);
+        buffer.put((byte) ('0' + frac / 100));
+        buffer.put((byte) ('0' + frac / 10 % 10));
+        buffer.put((byte) ('0' + frac % 10));
+    }
+
+    private static void putLong(ByteBuffer buffer, long v) {
+        if (v >= 10) {
+            putLong(buffer, v / 10);
+        }
+        buffer.put((byte) ('0' + v % 10));
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void checkRange(double min, double max) {
+        if (!(min > 0) || !(max >= min) || max > 1e12) {
+            throw new IllegalArgumentException("Invalid range " + min + " to " + max);
+        }
+    }
+}
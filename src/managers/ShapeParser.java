@@ -0,0 +1,343 @@
+package managers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import shapes.ShapeTable;
+
+/**
+ * Byte-level parser for shape files.
+ * <p>
+ * Reads a range of a file through memory-mapped windows and parses it line by
+ * line without creating Strings: shape types are matched against their ASCII
+ * bytes and numbers are parsed by hand. Decimal values take an exact fast path
+ * when the result is guaranteed to be correctly rounded and fall back to
+ * {@link Double#parseDouble(String)} otherwise, so values are always
+ * bit-identical to {@link FileManager#loadShapes(String)}.
+ *
+ * @author NJobse
+ */
+public class ShapeParser {
+    /** Default size of each mapped window of the file. */
+    public static final int DEFAULT_WINDOW = 64 << 20;
+
+    private static final byte[][] KIND_BYTES = new byte[7][];
+    static {
+        for (byte k = 0; k < KIND_BYTES.length; k++) {
+            KIND_BYTES[k] = ShapeTable.kindName(k).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    // Largest integer below which every long converts to double exactly
+    private static final long MAX_EXACT = 1L << 53;
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+
+    private ByteBuffer buf;
+    private long windowStart; // file offset of buf index 0
+    private int next;         // buf index where the next line starts
+    private int lineStart;    // start of the current line
+    private int pos;          // cursor within the current line
+    private int lineEnd;      // end of the current line (exclusive)
+    private int tokenStart;   // bounds of the last token read
+    private int tokenEnd;
+    private long lineNumber;
+
+    /**
+     * Creates a parser over a whole file.
+     *
+     * @param channel open channel of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public ShapeParser(FileChannel channel) throws IOException {
+        this(channel, 0, channel.size(), DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a parser over a byte range of a file. The range should start at
+     * the beginning of a line and end just after a newline (or at end of file).
+     *
+     * @param channel    open channel of the file
+     * @param start      first byte of the range
+     * @param end        end of the range (exclusive)
+     * @param windowSize number of bytes mapped at a time
+     * @throws IOException if the file cannot be mapped
+     */
+    public ShapeParser(FileChannel channel, long start, long end, int windowSize) throws IOException {
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        map(start);
+    }
+
+    /**
+     * Advances to the next non-blank line.
+     *
+     * @return true if a line is available, false at the end of the range
+     * @throws IOException if the file cannot be mapped
+     */
+    public boolean nextLine() throws IOException {
+        while (true) {
+            int limit = buf.limit();
+            int i = next;
+            while (i < limit && buf.get(i) != '\n') {
+                i++;
+            }
+            if (i == limit && windowStart + limit < end) {
+                // The line continues past this window: remap starting at the line
+                if (next == 0) {
+                    throw new IOException("Line " + (lineNumber + 1) + " is longer than the read window");
+                }
+                map(windowStart + next);
+                continue;
+            }
+            if (next >= limit) {
+                return false;
+            }
+            lineStart = next;
+            pos = next;
+            lineEnd = i;
+            next = i + 1;
+            lineNumber++;
+            if (skipWhitespace()) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the current line, counted from the start of the range.
+     *
+     * @return line number (1-based)
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Moves the cursor back to the start of the current line, so it can be
+     * parsed again (e.g. after checking whether it is a header).
+     */
+    public void rewindLine() {
+        pos = lineStart;
+    }
+
+    /**
+     * Returns true if the current line has another token.
+     *
+     * @return whether a token follows the cursor
+     */
+    public boolean hasToken() {
+        return skipWhitespace();
+    }
+
+    /**
+     * Reads a shape type token.
+     *
+     * @return the ShapeTable kind code, or -1 if the token is not a known shape
+     * @throws NumberFormatException if the line has no more tokens
+     */
+    public byte readKind() {
+        nextToken();
+        int length = tokenEnd - tokenStart;
+        for (byte k = 0; k < KIND_BYTES.length; k++) {
+            byte[] name = KIND_BYTES[k];
+            if (name.length == length && matches(name)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads an integer token, as {@link Integer#parseInt(String)} would.
+     *
+     * @return the parsed value
+     * @throws NumberFormatException if the token is missing or not an integer
+     */
+    public int readInt() {
+        nextToken();
+        int i = tokenStart;
+        boolean negative = buf.get(i) == '-';
+        if (negative || buf.get(i) == '+') {
+            i++;
+        }
+        long value = 0;
+        if (i == tokenEnd || tokenEnd - i > 10) {
+            return Integer.parseInt(tokenString());
+        }
+        for (; i < tokenEnd; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) {
+                return Integer.parseInt(tokenString()); // throws with the usual message
+            }
+            value = value * 10 + d;
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(tokenString());
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a decimal token, as {@link Double#parseDouble(String)} would.
+     * <p>
+     * Plain decimals with at most 53 bits of significand and a power of ten up
+     * to 22 are converted with a single exact multiply or divide, which IEEE-754
+     * rounds correctly. Anything else is handed to Double.parseDouble.
+     *
+     * @return the parsed value
+     * @throws NumberFormatException if the token is missing or not a number
+     */
+    public double readDouble() {
+        nextToken();
+        int i = tokenStart;
+        byte b = buf.get(i);
+        boolean negative = b == '-';
+        if (negative || b == '+') {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0; // digits after the decimal point
+        boolean dot = false;
+        for (; i < tokenEnd; i++) {
+            b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= MAX_EXACT / 10) {
+                    return slowDouble(); // too many significant digits for the fast path
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return slowDouble();
+        }
+
+        int exponent = 0;
+        if (i < tokenEnd) {
+            if (b != 'e' && b != 'E') {
+                return slowDouble(); // e.g. a type suffix such as "1.0d"
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < tokenEnd && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negativeExponent = buf.get(i) == '-';
+                i++;
+            }
+            if (i == tokenEnd || tokenEnd - i > 3) {
+                return slowDouble();
+            }
+            for (; i < tokenEnd; i++) {
+                int d = buf.get(i) - '0';
+                if (d < 0 || d > 9) {
+                    return slowDouble();
+                }
+                exponent = exponent * 10 + d;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        int power = exponent - scale;
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (power >= 0 && power < POW10.length) {
+            value = mantissa * POW10[power];
+        } else if (power < 0 && -power < POW10.length) {
+            value = mantissa / POW10[-power];
+        } else {
+            return slowDouble();
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Returns the last token read as a String (used for error messages).
+     *
+     * @return token text
+     */
+    public String tokenString() {
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(tokenStart + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(tokenString());
+    }
+
+    private boolean matches(byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (buf.get(tokenStart + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the cursor past whitespace on the current line.
+     *
+     * @return true if a token follows
+     */
+    private boolean skipWhitespace() {
+        while (pos < lineEnd && isWhitespace(buf.get(pos))) {
+            pos++;
+        }
+        return pos < lineEnd;
+    }
+
+    private void nextToken() {
+        if (!skipWhitespace()) {
+            throw new NumberFormatException("Missing value on line " + lineNumber);
+        }
+        tokenStart = pos;
+        while (pos < lineEnd && !isWhitespace(buf.get(pos))) {
+            pos++;
+        }
+        tokenEnd = pos;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        // Same set of characters that String.trim() removes
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Maps the window that begins at the given file offset.
+     *
+     * @param offset file offset of the new window
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(long offset) throws IOException {
+        long length = Math.min(windowSize, end - offset);
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.max(length, 0));
+        windowStart = offset;
+        next = 0;
+        lineStart = 0;
+        pos = 0;
+        lineEnd = 0;
+    }
+}
@@ -0,0 +1,234 @@
+package managers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Pull-based streaming reader for shape files.
+ * <p>
+ * Shapes are parsed one line at a time through a small mapped window, so
+ * memory use does not grow with the file. The count header is optional: a
+ * first line holding a single integer is reported by
+ * {@link #getDeclaredCount()} but never used to decide how much to read.
+ * Errors are reported with their line number instead of ending the read
+ * silently.
+ * <p>
+ * Callers can pull rows without allocating ({@link #readRow()} and the
+ * getters), pull Shape objects ({@link #read()}), iterate, or use
+ * {@link #stream()}.
+ * <p>
+ * Binary shape files (see {@link BinaryShapeFile}) are recognised by their
+ * magic number and read record by record in the same way; their declared
+ * count comes from the binary header.
+ *
+ * @author NJobse
+ */
+public class ShapeReader implements Iterator<Shape>, Closeable {
+    // Bytes of the file mapped at a time
+    private static final int WINDOW = 4 << 20;
+
+    private final FileChannel channel;
+    private final ShapeParser parser;         // null for a binary file
+    private final BinaryShapeFile.Cursor binary; // null for a text file
+    private int declaredCount = -1;
+    private long count;
+    private boolean lineReady; // current parser line is a data line not yet read
+    private boolean finished;
+    private Shape pending;     // look-ahead for hasNext()
+
+    private byte kind;
+    private double height;
+    private double dimension;
+
+    /**
+     * Opens a shape file for streaming.
+     *
+     * @param fileName the path to the file containing shape data
+     * @throws IOException if the file cannot be opened
+     */
+    public ShapeReader(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        try {
+            if (BinaryShapeFile.isBinary(channel)) {
+                binary = new BinaryShapeFile.Cursor(channel);
+                parser = null;
+                declaredCount = binary.getCount();
+            } else {
+                binary = null;
+                parser = new ShapeParser(channel, 0, channel.size(), WINDOW);
+                readHeader();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the first line is a count header. Any other first line
+     * is left in place as the first data line.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void readHeader() throws IOException {
+        if (!parser.nextLine()) {
+            finished = true;
+            return;
+        }
+        try {
+            int n = parser.readInt();
+            if (n >= 0 && !parser.hasToken()) {
+                declaredCount = n;
+                return;
+            }
+        } catch (NumberFormatException e) {
+            // Not a header, so the file starts with shape data
+        }
+        parser.rewindLine();
+        lineReady = true;
+    }
+
+    /**
+     * Reads the next shape into this reader's row fields without creating a
+     * Shape object. Use {@link #getKind()}, {@link #getHeight()} and
+     * {@link #getDimension()} to access it.
+     *
+     * @return true if a shape was read, false at the end of the file
+     * @throws IOException if the file cannot be read or a line is invalid
+     */
+    public boolean readRow() throws IOException {
+        if (binary != null) {
+            if (!binary.next()) {
+                return false;
+            }
+            kind = binary.getKind();
+            height = binary.getHeight();
+            dimension = binary.getDimension();
+            count++;
+            return true;
+        }
+        if (!lineReady) {
+            if (finished || !parser.nextLine()) {
+                finished = true;
+                return false;
+            }
+        }
+        lineReady = false;
+        try {
+            kind = parser.readKind();
+            if (kind < 0) {
+                throw new IOException("Unknown shape type '" + parser.tokenString() + "' on line "
+                        + parser.getLineNumber());
+            }
+            height = parser.readDouble();
+            dimension = parser.readDouble();
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value on line " + parser.getLineNumber() + ": " + e.getMessage(), e);
+        }
+        count++;
+        return true;
+    }
+
+    /**
+     * Reads the next shape.
+     *
+     * @return the next Shape, or null at the end of the file
+     * @throws IOException if the file cannot be read or a line is invalid
+     */
+    public Shape read() throws IOException {
+        if (pending != null) {
+            Shape shape = pending;
+            pending = null;
+            return shape;
+        }
+        return readRow() ? ShapeTable.createShape(kind, height, dimension) : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pending == null) {
+            try {
+                pending = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return pending != null;
+    }
+
+    @Override
+    public Shape next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Shape shape = pending;
+        pending = null;
+        return shape;
+    }
+
+    /**
+     * Returns a sequential stream of the remaining shapes. Closing the stream
+     * closes this reader.
+     *
+     * @return stream of shapes
+     */
+    public Stream<Shape> stream() {
+        Spliterator<Shape> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public byte getKind() {
+        return kind;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    public double getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns the count from the header line.
+     *
+     * @return declared number of shapes, or -1 if the file has no header
+     */
+    public int getDeclaredCount() {
+        return declaredCount;
+    }
+
+    /**
+     * Returns the number of shapes read so far.
+     *
+     * @return shapes read
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
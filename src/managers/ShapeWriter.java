@@ -0,0 +1,255 @@
+package managers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Buffered writer for complete shape files, the counterpart of ShapeReader.
+ * <p>
+ * Text output is the input format: a count line, then one
+ * "Type height dimension" line per shape, formatted straight into a large
+ * byte array that is written to a FileChannel. Numbers are formatted without printf
+ * or String.format and without a Locale. Like the input files, values get up
+ * to three decimals without trailing zeros, or up to {@value #MAX_DECIMALS}
+ * if three are not enough to read back the same double; a value that needs
+ * more is written with Double.toString. Either way the text reads back bit
+ * for bit.
+ * <p>
+ * Binary output is the row layout of {@link BinaryShapeFile}.
+ *
+ * @author NJobse
+ */
+public class ShapeWriter implements Closeable {
+    /** Most decimals written when they are enough, as in the input files. */
+    public static final int DECIMALS = 3;
+    /** Most decimals tried before falling back to Double.toString. */
+    public static final int MAX_DECIMALS = 9;
+
+    private static final int WRITE_BUFFER = 4 << 20;
+    // Longest line: a 16-character name and two values from Double.toString (at most 24 characters)
+    private static final int MAX_LINE = 80;
+    private static final long MAX_EXACT = 1L << 53;
+    private static final double[] POW10 = new double[MAX_DECIMALS + 1];
+    private static final long[] POW10_LONG = new long[MAX_DECIMALS + 1];
+    private static final byte[] DIGIT_PAIRS = new byte[200]; // "00" to "99"
+    private static final byte[][] NAMES = new byte[ShapeTable.OCTAGONAL_PRISM + 1][];
+
+    static {
+        POW10[0] = 1;
+        POW10_LONG[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+            POW10_LONG[i] = POW10_LONG[i - 1] * 10;
+        }
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+        for (byte k = 0; k < NAMES.length; k++) {
+            NAMES[k] = (ShapeTable.kindName(k) + " ").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final FileChannel channel;            // null for binary output
+    private final byte[] buffer;
+    private int position;                         // bytes used in buffer
+    private final BinaryShapeFile.Writer binary;  // null for text output
+    private final int expectedCount;
+    private long count;
+
+    /**
+     * Creates (or replaces) a shape file.
+     *
+     * @param fileName      the path of the file
+     * @param binary        true for the binary format, false for text
+     * @param expectedCount number of shapes that will be written, which
+     *                      goes in the header
+     * @throws IOException if the file cannot be created
+     */
+    public ShapeWriter(String fileName, boolean binary, int expectedCount) throws IOException {
+        if (expectedCount < 0) {
+            throw new IllegalArgumentException("Invalid count " + expectedCount);
+        }
+        this.expectedCount = expectedCount;
+        if (binary) {
+            this.binary = new BinaryShapeFile.Writer(fileName, BinaryShapeFile.Layout.ROWS, expectedCount);
+            channel = null;
+            buffer = null;
+        } else {
+            this.binary = null;
+            channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = new byte[WRITE_BUFFER];
+            putFixed(expectedCount, 0);
+            buffer[position++] = '\n';
+        }
+    }
+
+    /**
+     * Appends one shape.
+     *
+     * @param kind      kind code (see the constants in ShapeTable)
+     * @param height    height of the shape
+     * @param dimension radius or edge length of the shape
+     * @throws IOException if the file cannot be written
+     */
+    public void write(byte kind, double height, double dimension) throws IOException {
+        if (binary != null) {
+            binary.write(kind, height, dimension);
+        } else {
+            if (count == expectedCount) {
+                throw new IOException("More than the expected " + expectedCount + " shapes written");
+            }
+            if (WRITE_BUFFER - position < MAX_LINE) {
+                drain();
+            }
+            byte[] name = NAMES[kind];
+            System.arraycopy(name, 0, buffer, position, name.length);
+            position += name.length;
+            putDouble(height);
+            buffer[position++] = ' ';
+            putDouble(dimension);
+            buffer[position++] = '\n';
+        }
+        count++;
+    }
+
+    /**
+     * Appends one Shape object.
+     *
+     * @param shape the shape to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Shape shape) throws IOException {
+        write(ShapeTable.kindOf(shape), shape.getHeight(), ShapeTable.dimensionOf(shape));
+    }
+
+    /**
+     * Returns the number of shapes written so far.
+     *
+     * @return shapes written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Flushes the buffer and closes the file.
+     *
+     * @throws IOException if the file cannot be written, or fewer shapes
+     *                     than expected were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (binary != null) {
+            binary.close();
+            return;
+        }
+        try {
+            drain();
+            if (count != expectedCount) {
+                throw new IOException("Expected " + expectedCount + " shapes but " + count + " were written");
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a value that parses back to exactly the same double.
+     */
+    private void putDouble(double v) {
+        double a = Math.abs(v);
+        if (a < MAX_EXACT) {
+            // Fewest decimals d (at least DECIMALS) such that a is the double nearest to m / 10^d
+            for (int d = DECIMALS; d <= MAX_DECIMALS; d++) {
+                double scaled = a * POW10[d];
+                if (scaled >= MAX_EXACT) {
+                    break;
+                }
+                long m = Math.round(scaled);
+                if (m / POW10[d] == a) {
+                    if (Double.doubleToRawLongBits(v) < 0) {
+                        buffer[position++] = '-';
+                    }
+                    putFixed(m, d);
+                    return;
+                }
+            }
+        }
+        String s = Double.toString(v);
+        for (int i = 0; i < s.length(); i++) {
+            buffer[position++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes m / 10^decimals with at most the given number of decimals.
+     */
+    private void putFixed(long m, int decimals) {
+        long whole = m / POW10_LONG[decimals];
+        putWhole(whole);
+        if (decimals > 0) {
+            buffer[position] = '.';
+            putDigits((int) (m - whole * POW10_LONG[decimals]), position + 1, position + decimals);
+            // Drop trailing zeros but keep one decimal, e.g. 5181.35 and 5000.0
+            while (decimals > 1 && buffer[position + decimals] == '0') {
+                decimals--;
+            }
+            position += decimals + 1;
+        }
+    }
+
+    private void putWhole(long v) {
+        if (v > Integer.MAX_VALUE) {
+            // Rare: split off the low 9 digits so the rest is done in int arithmetic
+            long high = v / 1_000_000_000;
+            putWhole(high);
+            putDigits((int) (v - high * 1_000_000_000), position, position + 8);
+            position += 9;
+            return;
+        }
+        int n = (int) v;
+        int digits = 1;
+        for (int i = 1; i < POW10_LONG.length && n >= POW10_LONG[i]; i++) {
+            digits++;
+        }
+        putDigits(n, position, position + digits - 1);
+        position += digits;
+    }
+
+    /**
+     * Writes the last digits of n into buffer[first .. last], right to left,
+     * padding with leading zeros.
+     */
+    private void putDigits(int n, int first, int last) {
+        int i = last;
+        // Two digits per division
+        while (i > first) {
+            int q = n / 100;
+            int r = n - q * 100;
+            buffer[i--] = DIGIT_PAIRS[2 * r + 1];
+            buffer[i--] = DIGIT_PAIRS[2 * r];
+            n = q;
+        }
+        if (i == first) {
+            buffer[i] = (byte) ('0' + n % 10);
+        }
+    }
+
+    private void drain() throws IOException {
+        ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        position = 0;
+    }
+}
@@ -1,17 +1,77 @@
 package managers;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import shapes.Shape;
+import shapes.ShapeTable;
 import shapes.VolumeCompare;
+import sorts.InputProfile;
 import sorts.Sort;
+import sorts.SortStats;
 import shapes.BaseAreaCompare;
 
 public class SortManager {
+    // Sorting methods accepted by -s, and those that also have key/index kernels (-mK, -mC)
+    private static final String SORT_METHODS = "BISMQHPRTLA";
+    private static final String KEY_SORT_METHODS = "BISMQHRLA";
+    private static final String SORT_METHODS_HELP = "'B' (Bubble), 'I' (Insertion), 'S' (Selection), "
+            + "'M' (Merge), 'Q' (Quick), 'H' (Heap), 'P' (Parallel Merge), 'R' (Radix), 'T' (Natural Merge), "
+            + "'L' (Shell) or 'A' (Adaptive: chosen from a sample of the input)";
+
     private Shape[] shapes;
+    private ShapeTable table;
     private String fileName;
     private char compareType = '\0';
     private char sortType = '\0';
+    private char sortMode = '\0';
+    private long memoryBudgetMB = 0; // external mode budget; 0 = half the max heap
+    private boolean countOperations = false; // -v: print SortStats counters after the timing line
+    private boolean batch = false;           // -x: run every -t/-s pair given
+    private String batchReportFile = null;   // -x<file>: where the batch summary goes; stdout if null
+    private int batchThreads = 0;            // -j<n>: concurrent batch pairs; 0 = one per processor
+    private String compareTypes = "";        // every -t letter given, for batch mode
+    private String keyOrder = null;          // -tVH: key letters in priority order; null for a single key
+    private String sortTypes = "";           // every -s letter given, for batch mode
+    private String outputFile = null;        // -o<file>: every sorted shape is written here
+    private String cacheDirectory = null;    // -c[<dir>]: permutation cache, default dir if no name
+    private PermutationCache cache;
+    private long contentHash;                // cache key of the loaded shapes
+
+    // Batch mode skips bubble, insertion and selection sort above this many shapes
+    private static final int QUADRATIC_LIMIT = 100_000;
+    // Size limit of the permutation cache directory (-c)
+    private static final long CACHE_MAX_BYTES = 512L << 20;
+    // Adaptive (-sA): insertion sort up to this many shapes
+    private static final int ADAPTIVE_INSERTION_LIMIT = 32;
+    // Adaptive (-sA): nearly sorted below these sampled inversion and descent ratios
+    private static final double ADAPTIVE_SORTED_INVERSIONS = 0.02;
+    private static final double ADAPTIVE_SORTED_DESCENTS = 1.0 / 128;
+
+    /**
+     * Returns the sorting methods batch mode (-x) runs when no -s is given,
+     * which are also the only ones it accepts.
+     *
+     * @param sortMode '\0' (default), 'K' or 'C'
+     * @return method letters, as for -s
+     */
+    public static String getBatchMethods(char sortMode) {
+        // Adaptive sorting picks one of the others per input, so a batch has no use for it
+        return ((sortMode == 'K' || sortMode == 'C') ? KEY_SORT_METHODS : SORT_METHODS).replace("A", "");
+    }
 
     /**
      * Main constructor that takes all CLI arguments, parses them,
@@ -42,15 +102,24 @@ public class SortManager {
                     return;
                 }
             } else if (s.startsWith("-t") || s.startsWith("-T")) {
-                // e.g. "-Tv", "-ta", "-tH", etc.
+                // e.g. "-Tv", "-ta", "-tH", or "-tVH" (volume, ties by height)
                 if (s.length() > 2) {
-                    char c = Character.toUpperCase(s.charAt(2));
-                    if (c != 'H' && c != 'A' && c != 'V') {
-                        System.err.println("Error! Invalid comparison type '" + c + "'. Use 'H' (Height), 'A' (Base Area), or 'V' (Volume).");
-                        return;
+                    String letters = s.substring(2).toUpperCase(Locale.ROOT);
+                    for (int i = 0; i < letters.length(); i++) {
+                        char c = letters.charAt(i);
+                        if (c != 'H' && c != 'A' && c != 'V') {
+                            System.err.println("Error! Invalid comparison type '" + c + "'. Use 'H' (Height), 'A' (Base Area), or 'V' (Volume).");
+                            return;
+                        }
+                        if (letters.indexOf(c) != i) {
+                            System.err.println("Error! Comparison type '" + c + "' appears twice in '-t" + letters + "'.");
+                            return;
+                        }
                     }
-                    compareType = c;
+                    compareType = letters.charAt(0);
                     compareProvided = true;
+                    keyOrder = letters.length() > 1 ? letters : null;
+                    if (compareTypes.indexOf(compareType) == -1) compareTypes += compareType;
                 } else {
                     System.err.println("Error! Missing comparison type after '-t'. Use 'H', 'A', or 'V'.");
                     return;
@@ -59,23 +128,84 @@ public class SortManager {
                 // e.g. "-sB", "-sQ", "-sM", etc.
                 if (s.length() > 2) {
                     char c = Character.toUpperCase(s.charAt(2));
-                    // Allowed methods: B, I, S, M, Q, H
-                    if ("BISMQH".indexOf(c) == -1) {
+                    if (SORT_METHODS.indexOf(c) == -1) {
                         System.err.println("Error! Invalid sorting method '" + c 
-                            + "'. Use 'B' (Bubble), 'I' (Insertion), 'S' (Selection), "
-                            + "'M' (Merge), 'Q' (Quick), or 'H' (Heap).");
+                            + "'. Use " + SORT_METHODS_HELP + ".");
                         return;
                     }
                     sortType = c;
                     sortProvided = true;
+                    if (sortTypes.indexOf(c) == -1) sortTypes += c;
+                } else {
+                    System.err.println("Error! Missing sorting method after '-s'. Use " + SORT_METHODS_HELP + ".");
+                    return;
+                }
+            } else if (s.startsWith("-m") || s.startsWith("-M")) {
+                // e.g. "-mK" (optional sorting mode)
+                if (s.length() > 2) {
+                    char c = Character.toUpperCase(s.charAt(2));
+                    // Allowed modes: K, C, E, R
+                    if ("KCER".indexOf(c) == -1) {
+                        System.err.println("Error! Invalid sorting mode '" + c
+                            + "'. Use 'K' (Precomputed keys), 'C' (Columnar table), 'E' (External) "
+                            + "or 'R' (Report ranks only).");
+                        return;
+                    }
+                    sortMode = c;
+                } else {
+                    System.err.println("Error! Missing sorting mode after '-m'. Use 'K', 'C', 'E' or 'R'.");
+                    return;
+                }
+            } else if (s.startsWith("-b") || s.startsWith("-B")) {
+                // e.g. "-b512" (memory budget in MB for external mode)
+                try {
+                    memoryBudgetMB = Long.parseLong(s.substring(2));
+                } catch (NumberFormatException e) {
+                    memoryBudgetMB = -1;
+                }
+                // Larger budgets would overflow when converted to bytes
+                if (memoryBudgetMB <= 0 || memoryBudgetMB > Long.MAX_VALUE >> 20) {
+                    System.err.println("Error! Invalid memory budget '" + s.substring(2)
+                        + "'. Use a positive number of megabytes up to " + (Long.MAX_VALUE >> 20)
+                        + ", e.g. '-b512'.");
+                    return;
+                }
+            } else if (s.equalsIgnoreCase("-v")) {
+                // Count comparisons, swaps, writes, scratch and recursion depth
+                countOperations = true;
+            } else if (s.startsWith("-x") || s.startsWith("-X")) {
+                // e.g. "-x" or "-xresults.csv" (batch: every -t/-s pair, summary to stdout or a file)
+                batch = true;
+                if (s.length() > 2) {
+                    batchReportFile = stripQuotes(s.substring(2));
+                }
+            } else if (s.startsWith("-j") || s.startsWith("-J")) {
+                // e.g. "-j4" (batch pairs run at once)
+                try {
+                    batchThreads = Integer.parseInt(s.substring(2));
+                } catch (NumberFormatException e) {
+                    batchThreads = -1;
+                }
+                if (batchThreads <= 0) {
+                    System.err.println("Error! Invalid thread count '" + s.substring(2)
+                        + "'. Use a positive number, e.g. '-j4'.");
+                    return;
+                }
+            } else if (s.startsWith("-o") || s.startsWith("-O")) {
+                // e.g. "-osorted.txt" or "-osorted.bin" (write every sorted shape, binary for .bin)
+                if (s.length() > 2) {
+                    outputFile = stripQuotes(s.substring(2));
                 } else {
-                    System.err.println("Error! Missing sorting method after '-s'. Use 'B', 'I', 'S', 'M', 'Q', or 'H'.");
+                    System.err.println("Error! Missing file name after '-o'. Please provide a valid file path.");
                     return;
                 }
+            } else if (s.startsWith("-c") || s.startsWith("-C")) {
+                // e.g. "-c" or "-c/var/cache/shapes" (reuse the sorted order of data sorted before)
+                cacheDirectory = s.length() > 2 ? stripQuotes(s.substring(2)) : PermutationCache.defaultDirectory();
             } else {
                 // Unrecognized argument
                 System.err.println("Error: Unrecognized argument '" + s 
-                                   + "'. Valid flags are '-f', '-t', '-s' (or uppercase).");
+                                   + "'. Valid flags are '-f', '-t', '-s', '-m', '-b', '-v', '-x', '-j', '-o', '-c' (or uppercase).");
                 return;
             }
         }
@@ -85,23 +215,102 @@ public class SortManager {
             System.err.println("Error: Missing required file name argument '-f'.");
             return;
         }
+        if (outputFile != null) {
+            if (batch || sortMode == 'R') {
+                System.err.println("Error: Output file '-o' cannot be combined with "
+                    + (batch ? "'-x'" : "'-mR'") + ", which does not produce one sorted order.");
+                return;
+            }
+            if (Paths.get(outputFile).toAbsolutePath().normalize()
+                    .equals(Paths.get(fileName).toAbsolutePath().normalize())) {
+                System.err.println("Error: Output file '" + outputFile + "' is the input file.");
+                return;
+            }
+        }
+        if (keyOrder != null && (batch || sortMode == 'E' || sortMode == 'R' || cacheDirectory != null)) {
+            System.err.println("Error: Multi-key ordering '-t" + keyOrder + "' cannot be combined with "
+                + (batch ? "'-x'" : cacheDirectory != null ? "'-c'" : "'-m" + sortMode + "'")
+                + ". Use the default mode, '-mK' or '-mC'.");
+            return;
+        }
+        if (cacheDirectory != null) {
+            if (batch || sortMode == 'E' || sortMode == 'R') {
+                System.err.println("Error: Permutation cache '-c' cannot be combined with "
+                    + (batch ? "'-x'" : "'-m" + sortMode + "'") + ".");
+                return;
+            }
+            cache = new PermutationCache(cacheDirectory, CACHE_MAX_BYTES);
+        }
+        // Batch mode runs every given -t with every given -s (all of them if none are given)
+        if (batch) {
+            runBatch();
+            return;
+        }
         if (!compareProvided) {
-            System.err.println("Error: Missing required comparison type argument '-t'. Use 'H', 'A', or 'V'.");
+            System.err.println("Error: Missing required comparison type argument '-t'. Use 'H', 'A', or 'V', "
+                + "or several in priority order, e.g. 'VH'.");
             return;
         }
-        if (!sortProvided) {
-            System.err.println("Error: Missing required sorting method argument '-s'. Use 'B', 'I', 'S', 'M', 'Q', or 'H'.");
+        // Rank mode selects the reported rows instead of sorting, so -s is optional
+        if (!sortProvided && sortMode != 'R') {
+            System.err.println("Error: Missing required sorting method argument '-s'. Use " + SORT_METHODS_HELP + ".");
+            return;
+        }
+        if ((sortMode == 'K' || sortMode == 'C') && KEY_SORT_METHODS.indexOf(sortType) == -1) {
+            System.err.println("Error: Sorting method '" + sortType + "' is not available with '-m" + sortMode
+                + "'. Use one of " + KEY_SORT_METHODS + ".");
+            return;
+        }
+        if (keyOrder != null && KEY_SORT_METHODS.indexOf(sortType) == -1) {
+            System.err.println("Error: Sorting method '" + sortType + "' is not available with multi-key ordering '-t"
+                + keyOrder + "'. Use one of " + KEY_SORT_METHODS + ".");
+            return;
+        }
+
+        // External mode streams the file and never holds all of it in memory
+        if (sortMode == 'E') {
+            if (sortType == 'A') {
+                System.err.println("Error: Adaptive sorting '-sA' cannot be combined with '-mE', which sorts "
+                    + "each run as it is read. Choose a sorting method.");
+                return;
+            }
+            runExternalSorting();
+            return;
+        }
+
+        // Columnar, rank and multi-key modes load a ShapeTable and never create Shape objects
+        if (sortMode == 'C' || sortMode == 'R' || keyOrder != null) {
+            table = FileManager.loadShapeTableParallel(fileName);
+            if (table == null || table.size() == 0) {
+                System.err.println("Error: No shapes loaded from file '" + fileName + "'. "
+                    + "Ensure the file exists and contains valid shape data.");
+                return;
+            }
+            if (sortType == 'A' && sortMode != 'R') {
+                chooseSortType();
+            }
+            if (keyOrder != null) {
+                runMultiKeySorting();
+            } else if (sortMode == 'R') {
+                runRankSelection();
+            } else {
+                runColumnarSorting();
+            }
             return;
         }
 
         // Load shapes
-        shapes = FileManager.loadShapes(fileName);
+        shapes = FileManager.loadShapesParallel(fileName);
         if (shapes == null || shapes.length == 0) {
             System.err.println("Error: No shapes loaded from file '" + fileName + "'. "
                 + "Ensure the file exists and contains valid shape data.");
             return;
         }
 
+        if (sortType == 'A') {
+            chooseSortType();
+        }
+
         // Perform sorting (and print results)
         runSorting();
     }
@@ -110,26 +319,564 @@ public class SortManager {
      * Runs sorting and prints the results along with benchmarking time.
      */
     private void runSorting() {
+        if (cache != null && runCachedSorting()) return;
         double elapsedTimeMs = benchmarkSorting(); // measure time
         if (elapsedTimeMs == -1) return; // exit if sorting fails
 
-        // Sort (again, so we can show final sorted array)
-        sortShapes();
+        // Sort (again, so we can show final sorted array); only this run is counted
+        startCounting();
+        Shape[] sorted = sortShapes();
+        SortStats.setEnabled(false);
         System.out.printf("Sorting algorithm: %s | Time taken: %.4f milliseconds%n", 
                           getSortName(sortType), elapsedTimeMs);
+        printCounters();
+        if (sorted != null) {
+            if (cache != null) {
+                // Comparator sorts do not report where each shape came from, so the
+                // cached order is the stable order by key, which any algorithm agrees with
+                int[] order = Sort.identityIndex(shapes.length);
+                Sort.mergeSort(order, extractKeys(shapes));
+                storePermutation(order);
+            }
+            writeOutput(sorted);
+        }
     }
 
     /**
-     * Performs sorting but does not measure time (sorting only).
+     * Looks the loaded shapes up in the permutation cache (-c). On a hit the
+     * cached order is validated and applied instead of sorting, and the time
+     * reported covers hashing the shapes and loading, validating and
+     * applying the order.
+     *
+     * @return true if the cache held a valid order and the results were printed
+     */
+    private boolean runCachedSorting() {
+        boolean columnar = sortMode == 'C';
+        // Like the sort timings, the time excludes computing the keys
+        double[] keys = columnar ? getKeyColumn() : extractKeys(shapes);
+        long startTime = System.nanoTime();
+        contentHash = columnar ? PermutationCache.contentHash(table) : PermutationCache.contentHash(shapes);
+        int[] order = cache.load(contentHash, compareType, keys);
+        if (order == null) {
+            return false;
+        }
+        Shape[] sorted = null;
+        if (!columnar) {
+            sorted = new Shape[order.length];
+            for (int i = 0; i < order.length; i++) {
+                sorted[i] = shapes[order[i]];
+            }
+        }
+        long endTime = System.nanoTime();
+
+        if (columnar) {
+            printKeySortedElements(order, keys);
+        } else {
+            printKeySortedElements(sorted);
+        }
+        System.out.printf("Sorting algorithm: Cached permutation | Time taken: %.4f milliseconds%n",
+                          (endTime - startTime) / 1_000_000.0);
+        System.out.println("Permutation cache: hit " + cache.pathFor(contentHash, compareType));
+        if (columnar) {
+            writeOutput(order);
+        } else {
+            writeOutput(sorted);
+        }
+        return true;
+    }
+
+    /**
+     * Stores the sorted order in the permutation cache (-c) after a miss.
+     *
+     * @param order row indices in sorted order
+     */
+    private void storePermutation(int[] order) {
+        try {
+            Path path = cache.store(contentHash, compareType, order);
+            System.out.println("Permutation cache: miss, stored " + path);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not store the sorted order in the cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sorts an index array over the table's key column, then prints the
+     * results and the time taken by the sort.
+     */
+    private void runColumnarSorting() {
+        if (cache != null && runCachedSorting()) return;
+        double[] keys = getKeyColumn();
+        int[] index = Sort.identityIndex(table.size());
+
+        long startTime = System.nanoTime();
+        executeIndexSort(index, keys);
+        long endTime = System.nanoTime();
+
+        printKeySortedElements(index, keys);
+        System.out.printf("Sorting algorithm: %s | Time taken: %.4f milliseconds%n",
+                          getSortName(sortType), (endTime - startTime) / 1_000_000.0);
+        if (countOperations) {
+            // Count a second, untimed run so the timing above is not affected
+            startCounting();
+            executeIndexSort(Sort.identityIndex(table.size()), keys);
+            SortStats.setEnabled(false);
+            printCounters();
+        }
+        if (cache != null) {
+            storePermutation(index);
+        }
+        writeOutput(index);
+    }
+
+    /**
+     * Sorts the table by several keys (-tVH): the key columns are packed into
+     * one 128-bit key per row (see Sort.packKeys), and the selected algorithm
+     * sorts the packed keys with the row numbers, comparing one key instead
+     * of one per column. Rows equal on every key stay in file order, whatever
+     * the algorithm. The time covers packing and sorting; -mK and -mC make no
+     * difference, as the keys are always precomputed.
      */
-    private void sortShapes() {
+    private void runMultiKeySorting() {
+        int n = table.size();
+        double[][] columns = new double[keyOrder.length()][];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = getKeyColumn(keyOrder.charAt(c));
+        }
+
+        long startTime = System.nanoTime();
+        long[] packed = Sort.packKeys(columns, n);
+        long packedTime = System.nanoTime();
+        int[] index = Sort.identityIndex(n);
+        executePackedSort(packed, index);
+        long endTime = System.nanoTime();
+
+        printKeySortedElements(index, columns);
+        System.out.printf("Sorting algorithm: %s | Time taken: %.4f milliseconds%n",
+                          getSortName(sortType), (endTime - startTime) / 1_000_000.0);
+        StringBuilder keys = new StringBuilder();
+        for (char c : keyOrder.toCharArray()) {
+            keys.append(getComparisonType(c)).append(", then ");
+        }
+        System.out.printf("Sort keys: %sfile order | Packing took %.4f milliseconds%n",
+                          keys, (packedTime - startTime) / 1_000_000.0);
+        if (countOperations) {
+            // Untimed; counts packing (which ranks the columns) and sorting
+            startCounting();
+            executePackedSort(Sort.packKeys(columns, n), Sort.identityIndex(n));
+            SortStats.setEnabled(false);
+            printCounters();
+        }
+        writeOutput(index);
+    }
+
+    /**
+     * Replaces -sA with the algorithm that suits the loaded input, judged from
+     * a sample of its order in the sort's own comparison (see InputProfile),
+     * and prints the sample and the reason for the choice. Radix sort wins on
+     * every unordered input measured, in every mode, as its time depends on
+     * neither the order nor the cost of a comparison; nearly sorted input is
+     * merged from its runs instead, which takes close to n comparisons, and
+     * tiny input goes to insertion sort. Quick sort is never chosen, as radix
+     * sort beat it on every input measured.
+     */
+    private void chooseSortType() {
+        InputProfile profile;
+        if (keyOrder != null) {
+            double[][] columns = new double[keyOrder.length()][];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = getKeyColumn(keyOrder.charAt(c));
+            }
+            profile = InputProfile.sample(table.size(), (i, j) -> {
+                int order = 0;
+                for (int c = 0; order == 0 && c < columns.length; c++) {
+                    order = Double.compare(columns[c][j], columns[c][i]);
+                }
+                return order;
+            });
+        } else if (table != null) {
+            profile = InputProfile.sample(getKeyColumn(), table.size());
+        } else {
+            profile = InputProfile.sample(shapes, getComparator());
+        }
+
+        String reason;
+        if (profile.size() <= ADAPTIVE_INSERTION_LIMIT) {
+            sortType = 'I';
+            reason = "too few shapes for the overhead of the other algorithms to pay off";
+        } else if (profile.inversionRatio() <= ADAPTIVE_SORTED_INVERSIONS
+                && profile.descentRatio() <= ADAPTIVE_SORTED_DESCENTS) {
+            // Natural merge sort has no key kernel; merge sort skips merging halves already in order
+            sortType = sortMode == '\0' && keyOrder == null ? 'T' : 'M';
+            reason = "the input is nearly sorted, so merging its existing runs takes few comparisons";
+        } else {
+            sortType = 'R';
+            reason = "the input is not nearly sorted, and radix sort's time does not depend on its order";
+        }
+        System.out.printf("Adaptive: %,d shapes, about %,d run(s), %.1f%% inversions, %.1f%% duplicates "
+                          + "| Sampling took %.4f milliseconds (%,d comparisons)%n",
+                          profile.size(), profile.estimatedRuns(), profile.inversionRatio() * 100,
+                          profile.duplicateRatio() * 100, profile.nanos() / 1_000_000.0, profile.comparisons());
+        System.out.printf("Adaptive: chose %s: %s%n", getSortName(sortType), reason);
+    }
+
+    /**
+     * Finds only the rows the report prints (first, every 1000th and last)
+     * with a multi-rank quickselect over the table's key column. The report
+     * is identical to that of a stable full sort.
+     */
+    private void runRankSelection() {
+        double[] keys = getKeyColumn();
+        int[] index = Sort.identityIndex(table.size());
+        int[] ranks = getReportedRanks(table.size());
+
+        long startTime = System.nanoTime();
+        Sort.multiSelect(index, keys, ranks);
+        long endTime = System.nanoTime();
+
+        printKeySortedElements(index, keys);
+        System.out.printf("Sorting algorithm: Multi-select (%d ranks) | Time taken: %.4f milliseconds%n",
+                          ranks.length, (endTime - startTime) / 1_000_000.0);
+        if (countOperations) {
+            startCounting();
+            Sort.multiSelect(Sort.identityIndex(table.size()), keys, ranks);
+            SortStats.setEnabled(false);
+            printCounters();
+        }
+    }
+
+    /**
+     * Sorts the file with an external merge sort: chunks that fit the memory
+     * budget are sorted with the selected algorithm and spilled to disk, and
+     * the report is printed from the merged stream.
+     */
+    private void runExternalSorting() {
         Comparator<Shape> comparator = getComparator();
         if (comparator == null) return;
 
+        long budget = memoryBudgetMB > 0 ? memoryBudgetMB << 20 : Runtime.getRuntime().maxMemory() / 2;
+        ExternalSorter sorter = new ExternalSorter(comparator, arr -> executeSort(arr, comparator), budget);
+
+        // The file is sorted only once here, so with -v the time includes counting,
+        // and with -o it includes writing the output while the runs are merged
+        startCounting();
+        long startTime = System.nanoTime();
+        long written = 0;
+        try (ExternalSorter.SortedShapes sorted = sorter.sort(fileName);
+                ShapeWriter out = outputFile == null || !sorted.hasNext() ? null
+                        : openOutput((int) sorter.getShapeCount())) {
+            if (!sorted.hasNext()) {
+                System.err.println("Error: No shapes loaded from file '" + fileName + "'. "
+                    + "Ensure the file exists and contains valid shape data.");
+                return;
+            }
+            printKeySortedElements(out == null ? sorted : new Iterator<Shape>() {
+                @Override
+                public boolean hasNext() {
+                    return sorted.hasNext();
+                }
+
+                @Override
+                public Shape next() {
+                    Shape shape = sorted.next();
+                    try {
+                        out.write(shape);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return shape;
+                }
+            });
+            written = out == null ? 0 : out.getCount();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error: External sort of '" + fileName + "' failed: " + e.getMessage());
+            return;
+        } finally {
+            SortStats.setEnabled(false);
+        }
+        long endTime = System.nanoTime();
+
+        System.out.printf("Sorting algorithm: %s (external, %d run(s) of up to %d shapes) | Time taken: %.4f milliseconds%n",
+                          getSortName(sortType), sorter.getRunCount(), sorter.getChunkSize(),
+                          (endTime - startTime) / 1_000_000.0);
+        printCounters();
+        if (outputFile != null) {
+            System.out.printf("Output: %d shapes written to %s while merging%n", written, outputFile);
+        }
+    }
+
+    /**
+     * Loads the file once and sorts it with every -t/-s pair (-x), each on its
+     * own copy of the shapes (or index over the table). Pairs run on one
+     * thread per processor unless -j says otherwise, so their times include
+     * some contention; use -j1 for clean times. Parallel merge sort already
+     * uses every core and runs alone afterwards, and with -v everything runs
+     * on one thread because the counters are shared. Quadratic sorts are
+     * skipped above QUADRATIC_LIMIT shapes. Prints one timing line per pair,
+     * then writes the summary as CSV to stdout, or to the -x file (JSON if it
+     * ends in ".json").
+     */
+    private void runBatch() {
+        if (sortMode == 'E' || sortMode == 'R') {
+            System.err.println("Error: Batch mode '-x' cannot be combined with '-m" + sortMode
+                + "'. Use the default mode, '-mK' or '-mC'.");
+            return;
+        }
+        String methods = getBatchMethods(sortMode);
+        if (compareTypes.isEmpty()) compareTypes = "HAV";
+        if (sortTypes.isEmpty()) sortTypes = methods;
+        for (char c : sortTypes.toCharArray()) {
+            if (methods.indexOf(c) == -1) {
+                System.err.println("Error: Sorting method '" + c + "' is not available"
+                    + (sortMode == '\0' ? "" : " with '-m" + sortMode + "'") + ". Use one of " + methods + ".");
+                return;
+            }
+        }
+
+        // Shapes and tables cache computed keys on first use, which is not
+        // safe from several threads at once, so every key is computed here.
+        // A table computes each column on its own; a shape computes its base
+        // area along with its volume
+        int size;
+        if (sortMode == 'C') {
+            table = FileManager.loadShapeTableParallel(fileName);
+            size = table == null ? 0 : table.size();
+            if (size > 0) {
+                table.baseAreaColumn();
+                table.volumeColumn();
+            }
+        } else {
+            shapes = FileManager.loadShapesParallel(fileName);
+            size = shapes == null ? 0 : shapes.length;
+            for (int i = 0; i < size; i++) {
+                shapes[i].calcVolume(); // also computes the base area
+            }
+        }
+        if (size == 0) {
+            System.err.println("Error: No shapes loaded from file '" + fileName + "'. "
+                + "Ensure the file exists and contains valid shape data.");
+            return;
+        }
+
+        List<SortManager> jobs = new ArrayList<>();
+        for (char c : compareTypes.toCharArray()) {
+            for (char t : sortTypes.toCharArray()) {
+                jobs.add(new SortManager(this, c, t));
+            }
+        }
+        int threads = countOperations ? 1
+            : batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors();
+
+        BatchReport.Result[] results = new BatchReport.Result[jobs.size()];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BatchReport.Result>> futures = new ArrayList<>();
+            for (SortManager job : jobs) {
+                futures.add(job.sortType == 'P' ? null : pool.submit(job::runBatchJob));
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (futures.get(i) != null) {
+                    results[i] = futures.get(i).get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Batch run was interrupted.");
+            return;
+        } catch (ExecutionException e) {
+            System.err.println("Error: Batch run failed: " + e.getCause());
+            return;
+        } finally {
+            pool.shutdownNow();
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = jobs.get(i).runBatchJob();
+            }
+        }
+
+        BatchReport report = new BatchReport(fileName);
+        for (BatchReport.Result r : results) {
+            report.add(r);
+            if (BatchReport.Result.OK.equals(r.getStatus())) {
+                System.out.printf("Batch: -t%c -s%c | Sorting algorithm: %s | Time taken: %.4f milliseconds%s%n",
+                                  r.getCompareType(), r.getSortType(), r.getAlgorithm(), r.getTimeMs(),
+                                  r.isSorted() ? "" : " | NOT SORTED");
+            } else {
+                System.out.printf("Batch: -t%c -s%c | Sorting algorithm: %s | %s: %s%n", r.getCompareType(),
+                                  r.getSortType(), r.getAlgorithm(), r.getStatus(), r.getNote());
+            }
+        }
+        if (!report.checksumsAgree()) {
+            System.err.println("Warning: Not every algorithm produced the same order for the same comparison type.");
+        }
+        System.out.printf("Batch: %d pair(s) of %d shapes on %d thread(s)%n", results.length, size, threads);
+
+        try {
+            if (batchReportFile == null) {
+                Writer out = new OutputStreamWriter(System.out);
+                report.writeCsv(out);
+            } else {
+                report.write(batchReportFile);
+                System.out.println("Batch summary written to " + batchReportFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Could not write the batch summary: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the manager for one batch pair, sharing parent's file, mode and
+     * loaded data.
+     */
+    private SortManager(SortManager parent, char compareType, char sortType) {
+        this.fileName = parent.fileName;
+        this.shapes = parent.shapes;
+        this.table = parent.table;
+        this.sortMode = parent.sortMode;
+        this.countOperations = parent.countOperations;
+        this.compareType = compareType;
+        this.sortType = sortType;
+    }
+
+    /**
+     * Sorts a copy of the loaded shapes (or an identity index over the table)
+     * with this pair's settings, times the sort and checks its output.
+     *
+     * @return the pair's result
+     */
+    private BatchReport.Result runBatchJob() {
+        int size = sortMode == 'C' ? table.size() : shapes.length;
+        BatchReport.Result result = new BatchReport.Result(compareType, sortType, getSortName(sortType),
+                                                           sortMode, size);
+        if ("BIS".indexOf(sortType) != -1 && size > QUADRATIC_LIMIT) {
+            result.fail(BatchReport.Result.SKIPPED, "quadratic sort of more than " + QUADRATIC_LIMIT + " shapes");
+            return result;
+        }
+
+        try {
+            double[] sortedKeys;
+            long startTime, endTime;
+            if (sortMode == 'C') {
+                double[] keys = getKeyColumn();
+                int[] index = Sort.identityIndex(size);
+                startTime = System.nanoTime();
+                executeIndexSort(index, keys);
+                endTime = System.nanoTime();
+                sortedKeys = new double[size];
+                for (int i = 0; i < size; i++) {
+                    sortedKeys[i] = keys[index[i]];
+                }
+            } else {
+                Comparator<Shape> comparator = getComparator();
+                Shape[] tempShapes = Arrays.copyOf(shapes, size);
+                startTime = System.nanoTime();
+                sortCopy(tempShapes, comparator);
+                endTime = System.nanoTime();
+                sortedKeys = extractKeys(tempShapes);
+            }
+            result.finish((endTime - startTime) / 1_000_000.0, sortedKeys);
+
+            if (countOperations) {
+                // Count a second, untimed run so the timing above is not affected
+                startCounting();
+                if (sortMode == 'C') {
+                    executeIndexSort(Sort.identityIndex(size), getKeyColumn());
+                } else {
+                    sortCopy(Arrays.copyOf(shapes, size), getComparator());
+                }
+                SortStats.setEnabled(false);
+                result.recordCounters();
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            SortStats.setEnabled(false);
+            result.fail(BatchReport.Result.ERROR, e.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Clears the SortStats counters and turns counting on if -v was given.
+     */
+    private void startCounting() {
+        if (countOperations) {
+            SortStats.reset();
+            SortStats.setEnabled(true);
+        }
+    }
+
+    /**
+     * Prints the SortStats counters if -v was given.
+     */
+    private void printCounters() {
+        if (countOperations) {
+            System.out.println("Counters: " + SortStats.summary());
+        }
+    }
+
+    /**
+     * Performs sorting but does not measure time (sorting only).
+     *
+     * @return the sorted copy of the shapes, or null if sorting fails
+     */
+    private Shape[] sortShapes() {
+        Comparator<Shape> comparator = getComparator();
+        if (comparator == null) return null;
+
         // Copy shapes to preserve the original array
         Shape[] tempShapes = Arrays.copyOf(shapes, shapes.length);
-        executeSort(tempShapes, comparator);
+        sortCopy(tempShapes, comparator);
         printKeySortedElements(tempShapes);
+        return tempShapes;
+    }
+
+    /**
+     * Writes every sorted shape to the -o file, if one was given.
+     *
+     * @param sortedShapes the sorted array of shapes
+     */
+    private void writeOutput(Shape[] sortedShapes) {
+        if (outputFile == null) return;
+        long startTime = System.nanoTime();
+        try (ShapeWriter out = openOutput(sortedShapes.length)) {
+            for (Shape shape : sortedShapes) {
+                out.write(shape);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Could not write output file '" + outputFile + "': " + e.getMessage());
+            return;
+        }
+        printOutputTime(sortedShapes.length, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Writes every table row to the -o file in index order, if one was given.
+     *
+     * @param index row indices in sorted order
+     */
+    private void writeOutput(int[] index) {
+        if (outputFile == null) return;
+        long startTime = System.nanoTime();
+        try (ShapeWriter out = openOutput(index.length)) {
+            for (int row : index) {
+                out.write(table.getKind(row), table.getHeight(row), table.getDimension(row));
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Could not write output file '" + outputFile + "': " + e.getMessage());
+            return;
+        }
+        printOutputTime(index.length, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Opens the -o file: binary if its name ends in ".bin", text otherwise.
+     */
+    private ShapeWriter openOutput(int count) throws IOException {
+        return new ShapeWriter(outputFile, outputFile.toLowerCase(Locale.ROOT).endsWith(".bin"), count);
+    }
+
+    private void printOutputTime(int count, long nanos) {
+        System.out.printf("Output: %d shapes written to %s | Time taken: %.4f milliseconds%n", count, outputFile,
+                nanos / 1_000_000.0);
     }
 
     /**
@@ -150,7 +897,7 @@ public class SortManager {
         Shape[] tempShapes = Arrays.copyOf(shapes, shapes.length);
 
         long startTime = System.nanoTime();
-        executeSort(tempShapes, comparator);
+        sortCopy(tempShapes, comparator);
         long endTime = System.nanoTime();
 
         return (endTime - startTime) / 1_000_000.0; // convert to milliseconds
@@ -183,12 +930,136 @@ public class SortManager {
         System.out.println("------------------------------------------------");
     }
 
+    /**
+     * Returns the sorted positions printed by printKeySortedElements: the
+     * first, every 1000th and the last.
+     *
+     * @param totalShapes number of shapes
+     * @return ascending positions without duplicates
+     */
+    private static int[] getReportedRanks(int totalShapes) {
+        int[] ranks = new int[(totalShapes - 1) / 1000 + 2];
+        int count = 0;
+        for (int i = 0; i < totalShapes; i += 1000) {
+            ranks[count++] = i;
+        }
+        if (ranks[count - 1] != totalShapes - 1) {
+            ranks[count++] = totalShapes - 1;
+        }
+        return Arrays.copyOf(ranks, count);
+    }
+
+    /**
+     * Prints the first, every 1000th, and last rows of a sorted index array.
+     *
+     * @param index row indices in sorted order
+     * @param keys  key column the indices point into
+     */
+    private void printKeySortedElements(int[] index, double[] keys) {
+        int totalShapes = index.length;
+
+        System.out.println("\n------------------------------------------------");
+        System.out.printf("%-10s %-30s %-15s%n", "Index", "FileName+Shape", getComparisonType());
+
+        // First
+        printFormattedOutput("First", table.getKindName(index[0]), keys[index[0]]);
+
+        // Every 1000th
+        for (int i = 1000; i < totalShapes; i += 1000) {
+            printFormattedOutput(i + "-th", table.getKindName(index[i]), keys[index[i]]);
+        }
+
+        // Last
+        if (totalShapes > 1) {
+            int last = index[totalShapes - 1];
+            printFormattedOutput("Last", table.getKindName(last), keys[last]);
+        }
+
+        System.out.println("------------------------------------------------");
+    }
+
+    /**
+     * Prints the first, every 1000th, and last rows of a sorted index array,
+     * with one value column per sort key.
+     *
+     * @param index   row indices in sorted order
+     * @param columns key columns, in keyOrder
+     */
+    private void printKeySortedElements(int[] index, double[][] columns) {
+        int totalShapes = index.length;
+
+        System.out.println("\n------------------------------------------------");
+        StringBuilder header = new StringBuilder(String.format("%-10s %-30s", "Index", "FileName+Shape"));
+        for (char c : keyOrder.toCharArray()) {
+            header.append(String.format(" %-22s", getComparisonType(c)));
+        }
+        System.out.println(header);
+
+        // First
+        printFormattedOutput("First", index[0], columns);
+
+        // Every 1000th
+        for (int i = 1000; i < totalShapes; i += 1000) {
+            printFormattedOutput(i + "-th", index[i], columns);
+        }
+
+        // Last
+        if (totalShapes > 1) {
+            printFormattedOutput("Last", index[totalShapes - 1], columns);
+        }
+
+        System.out.println("------------------------------------------------");
+    }
+
+    /**
+     * Prints the first, every 1000th, and last shapes of a sorted stream,
+     * holding only the most recent shape.
+     *
+     * @param sortedShapes the shapes in sorted order
+     */
+    private void printKeySortedElements(Iterator<Shape> sortedShapes) {
+        System.out.println("\n------------------------------------------------");
+        System.out.printf("%-10s %-30s %-15s%n", "Index", "FileName+Shape", getComparisonType());
+
+        // First
+        Shape last = sortedShapes.next();
+        printFormattedOutput("First", last);
+
+        // Every 1000th
+        int i = 1;
+        for (; sortedShapes.hasNext(); i++) {
+            last = sortedShapes.next();
+            if (i % 1000 == 0) {
+                printFormattedOutput(i + "-th", last);
+            }
+        }
+
+        // Last
+        if (i > 1) {
+            printFormattedOutput("Last", last);
+        }
+
+        System.out.println("------------------------------------------------");
+    }
+
     private void printFormattedOutput(String index, Shape shape) {
-        String shapeInfo = fileName + "+" + shape.getClass().getSimpleName();
-        double value = getShapeComparisonValue(shape);
+        printFormattedOutput(index, shape.getClass().getSimpleName(), getShapeComparisonValue(shape));
+    }
+
+    private void printFormattedOutput(String index, String shapeName, double value) {
+        String shapeInfo = fileName + "+" + shapeName;
         System.out.printf("%-10s %-30s %-15.4f%n", index, shapeInfo, value);
     }
 
+    private void printFormattedOutput(String index, int row, double[][] columns) {
+        StringBuilder line = new StringBuilder(
+                String.format("%-10s %-30s", index, fileName + "+" + table.getKindName(row)));
+        for (double[] column : columns) {
+            line.append(String.format(" %-22.4f", column[row]));
+        }
+        System.out.println(line);
+    }
+
     /**
      * Returns a comparator object based on the -t or -T option:
      *   H -&gt; naturalOrder() (by height, as shape implements Comparable)
@@ -208,6 +1079,21 @@ public class SortManager {
         }
     }
 
+    /**
+     * Sorts the given array using the selected mode: either comparator-based
+     * (default) or on precomputed keys (-mK).
+     *
+     * @param arr the array of shapes to sort
+     * @param comparator the comparator to use for comparator-based sorting
+     */
+    private void sortCopy(Shape[] arr, Comparator<Shape> comparator) {
+        if (sortMode == 'K') {
+            executeKeySort(arr);
+        } else {
+            executeSort(arr, comparator);
+        }
+    }
+
     /**
      * Executes one of the sorting algorithms in Sort.java based on the -s or -S option.
      *
@@ -222,11 +1108,121 @@ public class SortManager {
             case 'M': Sort.mergeSort(arr, comparator); break;
             case 'Q': Sort.quickSort(arr, comparator); break;
             case 'H': Sort.heapSort(arr, comparator); break;
+            case 'P': Sort.parallelMergeSort(arr, comparator); break;
+            case 'T': Sort.naturalMergeSort(arr, comparator); break;
+            case 'L': Sort.shellSort(arr, comparator); break;
+            // Radix sort reads the keys directly and never calls the comparator
+            case 'R': Sort.radixSort(extractKeys(arr), arr); break;
+            default:
+                System.err.println("Error: Unknown sorting algorithm '" + sortType + "'.");
+        }
+    }
+
+    /**
+     * Computes each shape's comparison value exactly once, then sorts the key
+     * array with the selected algorithm while carrying the shapes along.
+     *
+     * @param arr the array of shapes to sort
+     */
+    private void executeKeySort(Shape[] arr) {
+        double[] keys = extractKeys(arr);
+        switch (sortType) {
+            case 'B': Sort.bubbleSort(keys, arr); break;
+            case 'I': Sort.insertionSort(keys, arr); break;
+            case 'S': Sort.selectionSort(keys, arr); break;
+            case 'M': Sort.mergeSort(keys, arr); break;
+            case 'Q': Sort.quickSort(keys, arr); break;
+            case 'H': Sort.heapSort(keys, arr); break;
+            case 'R': Sort.radixSort(keys, arr); break;
+            case 'L': Sort.shellSort(keys, arr); break;
+            default:
+                System.err.println("Error: Unknown sorting algorithm '" + sortType + "'.");
+        }
+    }
+
+    /**
+     * Sorts a ShapeTable index array with the selected algorithm. Apart from
+     * radix sort, the Sort index overloads gather the keys into index order
+     * and sort them together with the index, so comparisons read keys
+     * sequentially instead of through the index.
+     *
+     * @param index row indices to sort
+     * @param keys  key column the indices point into
+     */
+    private void executeIndexSort(int[] index, double[] keys) {
+        switch (sortType) {
+            case 'B': Sort.bubbleSort(index, keys); break;
+            case 'I': Sort.insertionSort(index, keys); break;
+            case 'S': Sort.selectionSort(index, keys); break;
+            case 'M': Sort.mergeSort(index, keys); break;
+            case 'Q': Sort.quickSort(index, keys); break;
+            case 'H': Sort.heapSort(index, keys); break;
+            case 'R': Sort.radixSort(index, keys); break;
+            case 'L': Sort.shellSort(index, keys); break;
             default:
                 System.err.println("Error: Unknown sorting algorithm '" + sortType + "'.");
         }
     }
 
+    /**
+     * Sorts packed multi-key keys with the selected algorithm, moving the row
+     * numbers with them.
+     *
+     * @param keys  packed keys from Sort.packKeys
+     * @param index row indices parallel to the keys
+     */
+    private void executePackedSort(long[] keys, int[] index) {
+        switch (sortType) {
+            case 'B': Sort.bubbleSort(keys, index); break;
+            case 'I': Sort.insertionSort(keys, index); break;
+            case 'S': Sort.selectionSort(keys, index); break;
+            case 'M': Sort.mergeSort(keys, index); break;
+            case 'Q': Sort.quickSort(keys, index); break;
+            case 'H': Sort.heapSort(keys, index); break;
+            case 'R': Sort.radixSort(keys, index); break;
+            case 'L': Sort.shellSort(keys, index); break;
+            default:
+                System.err.println("Error: Unknown sorting algorithm '" + sortType + "'.");
+        }
+    }
+
+    /**
+     * Returns the ShapeTable column matching compareType.
+     *
+     * @return the height, base area or volume column
+     */
+    private double[] getKeyColumn() {
+        return getKeyColumn(compareType);
+    }
+
+    /**
+     * Returns the ShapeTable column for a comparison type.
+     *
+     * @param type 'H', 'A' or 'V'
+     * @return the height, base area or volume column
+     */
+    private double[] getKeyColumn(char type) {
+        switch (type) {
+            case 'A': return table.baseAreaColumn();
+            case 'V': return table.volumeColumn();
+            default:  return table.heightColumn();
+        }
+    }
+
+    /**
+     * Extracts the comparison value (height, base area or volume) of every shape.
+     *
+     * @param arr the shapes to read
+     * @return one key per shape, in the same order as arr
+     */
+    private double[] extractKeys(Shape[] arr) {
+        double[] keys = new double[arr.length];
+        for (int i = 0; i < arr.length; i++) {
+            keys[i] = getShapeComparisonValue(arr[i]);
+        }
+        return keys;
+    }
+
     /**
      * Maps the sortType char to a descriptive name.
      *
@@ -241,6 +1237,10 @@ public class SortManager {
             case 'M': return "Merge";
             case 'Q': return "Quick";
             case 'H': return "Heap";
+            case 'P': return "Parallel Merge";
+            case 'R': return "Radix";
+            case 'T': return "Natural Merge";
+            case 'L': return "Shell";
             default:  return "Unknown";
         }
     }
@@ -251,7 +1251,17 @@ public class SortManager {
      * @return the comparison type as a String
      */
     private String getComparisonType() {
-        switch (compareType) {
+        return getComparisonType(compareType);
+    }
+
+    /**
+     * Maps a comparison type char to its name.
+     *
+     * @param type 'H', 'A' or 'V'
+     * @return the comparison type as a String
+     */
+    private String getComparisonType(char type) {
+        switch (type) {
             case 'H': return "Height";
             case 'A': return "Base Area";
             case 'V': return "Volume";
@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class Cone extends Shape {
-    private double radius;
-
+public final class Cone extends Shape {
     public Cone(double height, double radius) {
-        super(height);
-        this.radius = radius;
+        super(ShapeKind.CONE, height, radius);
     }
 
     public double getRadius() {
-        return radius;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return Math.PI * radius * radius;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight() / 3;
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "Cone [Height=" + getHeight() + ", Radius=" + radius + ", Base Area=" + calcBaseArea() + ", Volume="
-                + calcVolume() + "]";
+        return "Cone [Height=" + getHeight() + ", Radius=" + getRadius() + ", Base Area="
+                + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class Cylinder extends Shape {
-    private double radius;
-
+public final class Cylinder extends Shape {
     public Cylinder(double height, double radius) {
-        super(height);
-        this.radius = radius;
+        super(ShapeKind.CYLINDER, height, radius);
     }
 
     public double getRadius() {
-        return radius;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return Math.PI * radius * radius;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight();
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "Cylinder [Height=" + getHeight() + ", Radius=" + radius + ", Base Area=" + calcBaseArea() + ", Volume="
-                + calcVolume() + "]";
+        return "Cylinder [Height=" + getHeight() + ", Radius=" + getRadius() + ", Base Area="
+                + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
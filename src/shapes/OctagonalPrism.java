@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class OctagonalPrism extends Shape {
-    private double edgeLength;
-
+public final class OctagonalPrism extends Shape {
     public OctagonalPrism(double height, double edgeLength) {
-        super(height);
-        this.edgeLength = edgeLength;
+        super(ShapeKind.OCTAGONAL_PRISM, height, edgeLength);
     }
 
     public double getEdgeLength() {
-        return edgeLength;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return 2 * (1 + Math.sqrt(2)) * edgeLength * edgeLength;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight();
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "OctagonalPrism [Height=" + getHeight() + ", Edge Length=" + edgeLength + ", Base Area=" + calcBaseArea()
-                + ", Volume=" + calcVolume() + "]";
+        return "OctagonalPrism [Height=" + getHeight() + ", Edge Length=" + getEdgeLength() + ", Base Area="
+                + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
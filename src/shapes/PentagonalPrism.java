@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class PentagonalPrism extends Shape {
-    private double edgeLength;
-
+public final class PentagonalPrism extends Shape {
     public PentagonalPrism(double height, double edgeLength) {
-        super(height);
-        this.edgeLength = edgeLength;
+        super(ShapeKind.PENTAGONAL_PRISM, height, edgeLength);
     }
 
     public double getEdgeLength() {
-        return edgeLength;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return (5 * edgeLength * edgeLength * Math.tan(Math.toRadians(54))) / 4;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight();
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "PentagonalPrism [Height=" + getHeight() + ", Edge Length=" + edgeLength + ", Base Area="
+        return "PentagonalPrism [Height=" + getHeight() + ", Edge Length=" + getEdgeLength() + ", Base Area="
                 + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
@@ -6,19 +6,16 @@ package shapes;
  * @author CRacicot
  */
 public abstract class Prism extends Shape {
-	// attribute
-	private double side;
-
 	/**
-	 * Creates a Prism with specified height and side values.
+	 * Creates a Prism with specified kind, height and side values.
 	 * 
+	 * @param kind   kind
 	 * @param height height
 	 * @param side   side
 	 */
 
-	public Prism(double height, double side) {
-		super(height);
-		this.side = side;
+	Prism(ShapeKind kind, double height, double side) {
+		super(kind, height, side);
 	}
 
 	/**
@@ -28,14 +25,6 @@ public abstract class Prism extends Shape {
 	 */
 
 	public double getSide() {
-		return side;
-	}
-
-	@Override
-	public abstract double calcBaseArea();
-
-	@Override
-	public double calcVolume() {
-		return calcBaseArea() * getHeight();
+		return getDimension();
 	}
 }
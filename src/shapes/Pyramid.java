@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class Pyramid extends Shape {
-    private double edgeLength;
-
+public final class Pyramid extends Shape {
     public Pyramid(double height, double edgeLength) {
-        super(height);
-        this.edgeLength = edgeLength;
+        super(ShapeKind.PYRAMID, height, edgeLength);
     }
 
     public double getEdgeLength() {
-        return edgeLength;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return edgeLength * edgeLength;
-    }
-
-    @Override
-    public double calcVolume() {
-        return (calcBaseArea() * getHeight()) / 3;
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "Pyramid [Height=" + getHeight() + ", Edge Length=" + edgeLength + ", Base Area=" + calcBaseArea()
-                + ", Volume=" + calcVolume() + "]";
+        return "Pyramid [Height=" + getHeight() + ", Edge Length=" + getEdgeLength() + ", Base Area="
+                + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
\ No newline at end of file
@@ -2,20 +2,48 @@ package shapes;
 
 /**
  * Represents a Shape object.
+ * <p>
+ * A Shape never changes after construction, so its base area and volume are
+ * computed once (on first use) and then returned from a field by
+ * {@link #calcBaseArea()} and {@link #calcVolume()}. The formulas come from the
+ * shape's {@link ShapeKind} rather than from an overridden method, so the
+ * comparators make no virtual calls.
+ * <p>
+ * The hierarchy is closed: the constructor is package-private, so the only
+ * subclasses are the seven in this package, one per ShapeKind.
  * 
  * @author CRacicot
  */
 public abstract class Shape implements Comparable<Shape> {
-    private double height;
+    private final ShapeKind kind;
+    private final double height;
+    private final double dimension;
+    private double baseArea;
+    private double volume;
+    private boolean baseAreaComputed;
+    private boolean volumeComputed;
 
     /**
-     * Creates a Shape with the specific height.
+     * Creates a Shape of the given kind.
      * 
-     * @param height height of Shape
+     * @param kind      kind of Shape
+     * @param height    height of Shape
+     * @param dimension radius or edge length of Shape
      */
-    public Shape(double height) {
+    Shape(ShapeKind kind, double height, double dimension) {
         super();
+        this.kind = kind;
         this.height = height;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Returns the kind.
+     * 
+     * @return kind
+     */
+    public final ShapeKind getKind() {
+        return kind;
     }
 
     /**
@@ -27,6 +55,15 @@ public abstract class Shape implements Comparable<Shape> {
         return height;
     }
 
+    /**
+     * Returns the second dimension: the radius or edge length.
+     * 
+     * @return radius or edge length
+     */
+    public final double getDimension() {
+        return dimension;
+    }
+
     @Override
     public int compareTo(Shape other) {
         if (this.height < other.height)
@@ -37,13 +74,30 @@ public abstract class Shape implements Comparable<Shape> {
     }
 
     /**
-     * DOUBLE CHECK
-     * Returns the calculated base area.
-     * base area
-     **/
-    public abstract double calcBaseArea();
+     * Returns the base area, computing and caching it on first use.
+     * 
+     * @return base area
+     */
+    public final double calcBaseArea() {
+        if (!baseAreaComputed) {
+            baseArea = kind.baseArea(dimension);
+            baseAreaComputed = true;
+        }
+        return baseArea;
+    }
 
-    public abstract double calcVolume();
+    /**
+     * Returns the volume, computing and caching it on first use.
+     * 
+     * @return volume
+     */
+    public final double calcVolume() {
+        if (!volumeComputed) {
+            volume = kind.volume(calcBaseArea(), height);
+            volumeComputed = true;
+        }
+        return volume;
+    }
 
     @Override
     public String toString() {
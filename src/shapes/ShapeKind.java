@@ -0,0 +1,191 @@
+package shapes;
+
+/**
+ * The kinds of shape, in kind-code order: the ordinal of each constant is its
+ * code in the ShapeTable kind column and in binary shape files.
+ * <p>
+ * Every kind has base area = a * s * s and volume = v * base area * h, where s
+ * is the radius or edge length. The coefficients are kept in the factored form
+ * of the original formulas and applied in the same order,
+ * <pre>
+ * base area = ((scale * s) * s) * factor * quarter
+ * volume    = (base area * h) / divisor
+ * </pre>
+ * so the results are bit-identical to them, e.g. (5 * s * s * tan 54&deg;) / 4
+ * for the pentagonal prism. Multiplying or dividing by 1, and multiplying by
+ * 0.25 instead of dividing by 4, are exact, so every kind can use the same
+ * expression and {@link #computeKeys} needs no branch per row.
+ *
+ * @author NJobse
+ */
+public enum ShapeKind {
+    CYLINDER("Cylinder", Math.PI, 1, 1, 1),
+    CONE("Cone", Math.PI, 1, 1, 3),
+    PYRAMID("Pyramid", 1, 1, 1, 3),
+    SQUARE_PRISM("SquarePrism", 1, 1, 1, 1),
+    TRIANGULAR_PRISM("TriangularPrism", Math.sqrt(3) / 4, 1, 1, 1),
+    PENTAGONAL_PRISM("PentagonalPrism", 5, Math.tan(Math.toRadians(54)), 0.25, 1),
+    OCTAGONAL_PRISM("OctagonalPrism", 2 * (1 + Math.sqrt(2)), 1, 1, 1);
+
+    private static final ShapeKind[] KINDS = values();
+
+    // The coefficients by kind code, for computeKeys
+    private static final double[] SCALE = new double[KINDS.length];
+    private static final double[] FACTOR = new double[KINDS.length];
+    private static final double[] QUARTER = new double[KINDS.length];
+    private static final double[] DIVISOR = new double[KINDS.length];
+
+    static {
+        for (ShapeKind k : KINDS) {
+            SCALE[k.ordinal()] = k.scale;
+            FACTOR[k.ordinal()] = k.factor;
+            QUARTER[k.ordinal()] = k.quarter;
+            DIVISOR[k.ordinal()] = k.divisor;
+        }
+    }
+
+    private final String displayName;
+    private final double scale;
+    private final double factor;
+    private final double quarter;
+    private final double divisor;
+
+    ShapeKind(String displayName, double scale, double factor, double quarter, double divisor) {
+        this.displayName = displayName;
+        this.scale = scale;
+        this.factor = factor;
+        this.quarter = quarter;
+        this.divisor = divisor;
+    }
+
+    /**
+     * Returns the kind with the given code.
+     *
+     * @param code kind code
+     * @return the kind, or null for an unknown code
+     */
+    public static ShapeKind of(byte code) {
+        return code >= 0 && code < KINDS.length ? KINDS[code] : null;
+    }
+
+    /**
+     * Returns the kind with the given name, as written in shape files.
+     *
+     * @param name shape name, e.g. "Cylinder"
+     * @return the kind, or null for an unknown name
+     */
+    public static ShapeKind named(String name) {
+        for (ShapeKind k : KINDS) {
+            if (k.displayName.equals(name)) {
+                return k;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of kinds.
+     *
+     * @return kind count
+     */
+    public static int count() {
+        return KINDS.length;
+    }
+
+    /**
+     * Returns the kind code.
+     *
+     * @return code used in ShapeTable and shape files
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Returns the name used in shape files, which is also the class name.
+     *
+     * @return shape name, e.g. "SquarePrism"
+     */
+    public String displayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the base area coefficient a, so that base area = a * s * s up to
+     * rounding.
+     *
+     * @return area coefficient
+     */
+    public double areaCoefficient() {
+        return scale * factor * quarter;
+    }
+
+    /**
+     * Returns the volume coefficient v, so that volume = v * base area * h up
+     * to rounding.
+     *
+     * @return 1 for prisms and cylinders, 1/3 for cones and pyramids
+     */
+    public double volumeCoefficient() {
+        return 1 / divisor;
+    }
+
+    /**
+     * Calculates the base area of a shape of this kind.
+     *
+     * @param dimension radius or edge length
+     * @return base area
+     */
+    public double baseArea(double dimension) {
+        return scale * dimension * dimension * factor * quarter;
+    }
+
+    /**
+     * Calculates the volume of a shape of this kind from its base area.
+     *
+     * @param baseArea base area of the shape
+     * @param height   height of the shape
+     * @return volume
+     */
+    public double volume(double baseArea, double height) {
+        return baseArea * height / divisor;
+    }
+
+    /**
+     * Computes one sort key per row from kind, height and dimension columns,
+     * with the same coefficients for every kind looked up by kind code rather
+     * than chosen by a branch or a virtual call. The keys are bit-identical to
+     * those of {@link Shape#calcBaseArea()} and {@link Shape#calcVolume()}.
+     *
+     * @param compareType 'H' (height), 'A' (base area) or 'V' (volume)
+     * @param kind        kind codes, all valid
+     * @param height      heights
+     * @param dimension   radii or edge lengths
+     * @param out         receives the keys of rows 0 .. out.length - 1
+     */
+    public static void computeKeys(char compareType, byte[] kind, double[] height, double[] dimension,
+            double[] out) {
+        int n = out.length;
+        switch (compareType) {
+            case 'H':
+                System.arraycopy(height, 0, out, 0, n);
+                break;
+            case 'A':
+                for (int i = 0; i < n; i++) {
+                    int k = kind[i];
+                    double s = dimension[i];
+                    out[i] = SCALE[k] * s * s * FACTOR[k] * QUARTER[k];
+                }
+                break;
+            case 'V':
+                for (int i = 0; i < n; i++) {
+                    int k = kind[i];
+                    double s = dimension[i];
+                    out[i] = SCALE[k] * s * s * FACTOR[k] * QUARTER[k] * height[i] / DIVISOR[k];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown comparison type '" + compareType + "'");
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package shapes;
+
+/**
+ * Column-oriented (struct-of-arrays) storage for a set of shapes.
+ * <p>
+ * Each row is one shape, stored as a kind code plus its height and second
+ * dimension (radius or edge length). Base area and volume columns are derived
+ * on first use by {@link ShapeKind#computeKeys}, with the same formulas as the
+ * Shape classes, so sorting a table gives the same keys as sorting Shape
+ * objects without allocating one per row.
+ *
+ * @author NJobse
+ */
+public class ShapeTable {
+    // Kind codes stored in the kind column (ShapeKind ordinals)
+    public static final byte CYLINDER = 0;
+    public static final byte CONE = 1;
+    public static final byte PYRAMID = 2;
+    public static final byte SQUARE_PRISM = 3;
+    public static final byte TRIANGULAR_PRISM = 4;
+    public static final byte PENTAGONAL_PRISM = 5;
+    public static final byte OCTAGONAL_PRISM = 6;
+
+    private final byte[] kind;
+    private final double[] height;
+    private final double[] dimension;
+    private int size;
+
+    // Derived columns, computed lazily
+    private double[] baseArea;
+    private double[] volume;
+
+    /**
+     * Creates an empty table with room for the given number of rows.
+     *
+     * @param capacity maximum number of rows
+     */
+    public ShapeTable(int capacity) {
+        kind = new byte[capacity];
+        height = new double[capacity];
+        dimension = new double[capacity];
+    }
+
+    /**
+     * Creates a full table over existing columns, which are used without
+     * copying. The three arrays must have the same length.
+     *
+     * @param kind      kind codes
+     * @param height    heights
+     * @param dimension radii or edge lengths
+     */
+    public ShapeTable(byte[] kind, double[] height, double[] dimension) {
+        if (height.length != kind.length || dimension.length != kind.length) {
+            throw new IllegalArgumentException("Columns differ in length");
+        }
+        this.kind = kind;
+        this.height = height;
+        this.dimension = dimension;
+        size = kind.length;
+    }
+
+    /**
+     * Appends a row.
+     *
+     * @param kind      kind code (see the constants in this class)
+     * @param height    height of the shape
+     * @param dimension radius or edge length of the shape
+     */
+    public void add(byte kind, double height, double dimension) {
+        set(size++, kind, height, dimension);
+    }
+
+    /**
+     * Writes a row at the given index and clears any derived columns.
+     *
+     * @param row       row index (less than the capacity)
+     * @param kind      kind code
+     * @param height    height of the shape
+     * @param dimension radius or edge length of the shape
+     */
+    public void set(int row, byte kind, double height, double dimension) {
+        this.kind[row] = kind;
+        this.height[row] = height;
+        this.dimension[row] = dimension;
+        baseArea = null;
+        volume = null;
+    }
+
+    /**
+     * Sets the number of rows in use, for callers that fill rows with
+     * {@link #set(int, byte, double, double)}.
+     *
+     * @param size number of rows
+     */
+    public void setSize(int size) {
+        this.size = size;
+        baseArea = null;
+        volume = null;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return row count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of rows.
+     *
+     * @return capacity
+     */
+    public int capacity() {
+        return kind.length;
+    }
+
+    public byte getKind(int row) {
+        return kind[row];
+    }
+
+    public double getHeight(int row) {
+        return height[row];
+    }
+
+    public double getDimension(int row) {
+        return dimension[row];
+    }
+
+    public double getBaseArea(int row) {
+        return baseAreaColumn()[row];
+    }
+
+    public double getVolume(int row) {
+        return volumeColumn()[row];
+    }
+
+    /**
+     * Returns the class name of the shape in a row.
+     *
+     * @param row row index
+     * @return shape name, e.g. "Cylinder"
+     */
+    public String getKindName(int row) {
+        return kindName(kind[row]);
+    }
+
+    /**
+     * Returns the height column. The array may be longer than {@link #size()}.
+     *
+     * @return height column
+     */
+    public double[] heightColumn() {
+        return height;
+    }
+
+    /**
+     * Returns the base area column, computing it on first use.
+     *
+     * @return base area column
+     */
+    public double[] baseAreaColumn() {
+        if (baseArea == null) {
+            double[] column = new double[size];
+            ShapeKind.computeKeys('A', kind, height, dimension, column);
+            baseArea = column;
+        }
+        return baseArea;
+    }
+
+    /**
+     * Returns the volume column, computing it on first use.
+     *
+     * @return volume column
+     */
+    public double[] volumeColumn() {
+        if (volume == null) {
+            double[] column = new double[size];
+            ShapeKind.computeKeys('V', kind, height, dimension, column);
+            volume = column;
+        }
+        return volume;
+    }
+
+    /**
+     * Creates a Shape object for a single row.
+     *
+     * @param row row index
+     * @return the shape stored in that row
+     */
+    public Shape toShape(int row) {
+        return createShape(kind[row], height[row], dimension[row]);
+    }
+
+    /**
+     * Creates a Shape object of the given kind.
+     *
+     * @param kind      kind code
+     * @param height    height of the shape
+     * @param dimension radius or edge length of the shape
+     * @return the new shape, or null for an unknown kind
+     */
+    public static Shape createShape(byte kind, double height, double dimension) {
+        switch (kind) {
+            case CYLINDER: return new Cylinder(height, dimension);
+            case CONE: return new Cone(height, dimension);
+            case PYRAMID: return new Pyramid(height, dimension);
+            case SQUARE_PRISM: return new SquarePrism(height, dimension);
+            case TRIANGULAR_PRISM: return new TriangularPrism(height, dimension);
+            case PENTAGONAL_PRISM: return new PentagonalPrism(height, dimension);
+            case OCTAGONAL_PRISM: return new OctagonalPrism(height, dimension);
+            default: return null;
+        }
+    }
+
+    /**
+     * Returns the kind code of a Shape object.
+     *
+     * @param shape the shape
+     * @return kind code
+     */
+    public static byte kindOf(Shape shape) {
+        return shape.getKind().code();
+    }
+
+    /**
+     * Returns the second dimension (radius or edge length) of a Shape object,
+     * as stored in the dimension column.
+     *
+     * @param shape the shape
+     * @return radius or edge length
+     */
+    public static double dimensionOf(Shape shape) {
+        return shape.getDimension();
+    }
+
+    /**
+     * Maps a shape name from the input file to its kind code.
+     *
+     * @param name shape name, e.g. "Cylinder"
+     * @return kind code, or -1 if the name is unknown
+     */
+    public static byte kindOf(String name) {
+        ShapeKind k = ShapeKind.named(name);
+        return k == null ? -1 : k.code();
+    }
+
+    /**
+     * Maps a kind code to its shape name.
+     *
+     * @param kind kind code
+     * @return shape name, or "Unknown"
+     */
+    public static String kindName(byte kind) {
+        ShapeKind k = ShapeKind.of(kind);
+        return k == null ? "Unknown" : k.displayName();
+    }
+
+    /**
+     * Calculates the base area of a shape kind; see {@link ShapeKind#baseArea(double)}.
+     *
+     * @param kind      kind code
+     * @param dimension radius or edge length
+     * @return base area, or 0 for an unknown kind
+     */
+    public static double baseArea(byte kind, double dimension) {
+        ShapeKind k = ShapeKind.of(kind);
+        return k == null ? 0 : k.baseArea(dimension);
+    }
+
+    /**
+     * Calculates the volume of a shape kind from its base area; see
+     * {@link ShapeKind#volume(double, double)}.
+     *
+     * @param kind     kind code
+     * @param baseArea base area of the shape
+     * @param height   height of the shape
+     * @return volume
+     */
+    public static double volume(byte kind, double baseArea, double height) {
+        ShapeKind k = ShapeKind.of(kind);
+        return k == null ? baseArea * height : k.volume(baseArea, height);
+    }
+}
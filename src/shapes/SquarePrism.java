@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class SquarePrism extends Shape {
-    private double edgeLength;
-
+public final class SquarePrism extends Shape {
     public SquarePrism(double height, double edgeLength) {
-        super(height);
-        this.edgeLength = edgeLength;
+        super(ShapeKind.SQUARE_PRISM, height, edgeLength);
     }
 
     public double getEdgeLength() {
-        return edgeLength;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return edgeLength * edgeLength;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight();
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "SquarePrism [Height=" + getHeight() + ", Edge Length=" + edgeLength + ", Base Area=" + calcBaseArea()
-                + ", Volume=" + calcVolume() + "]";
+        return "SquarePrism [Height=" + getHeight() + ", Edge Length=" + getEdgeLength() + ", Base Area="
+                + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
@@ -5,31 +5,18 @@ package shapes;
  * 
  * @author CRacicot
  */
-public class TriangularPrism extends Shape {
-    private double edgeLength;
-
+public final class TriangularPrism extends Shape {
     public TriangularPrism(double height, double edgeLength) {
-        super(height);
-        this.edgeLength = edgeLength;
+        super(ShapeKind.TRIANGULAR_PRISM, height, edgeLength);
     }
 
     public double getEdgeLength() {
-        return edgeLength;
-    }
-
-    @Override
-    public double calcBaseArea() {
-        return (Math.sqrt(3) / 4) * edgeLength * edgeLength;
-    }
-
-    @Override
-    public double calcVolume() {
-        return calcBaseArea() * getHeight();
+        return getDimension();
     }
 
     @Override
     public String toString() {
-        return "TriangularPrism [Height=" + getHeight() + ", Edge Length=" + edgeLength + ", Base Area="
+        return "TriangularPrism [Height=" + getHeight() + ", Edge Length=" + getEdgeLength() + ", Base Area="
                 + calcBaseArea() + ", Volume=" + calcVolume() + "]";
     }
 }
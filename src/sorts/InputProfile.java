@@ -0,0 +1,199 @@
+package sorts;
+
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * An estimate of how an input is already ordered, from a fixed-size sample
+ * that costs a few thousand comparisons whatever the input size. Used to
+ * pick a sorting algorithm (-sA).
+ * <p>
+ * Three samples are taken, all at the same positions for the same size:
+ * <ul>
+ * <li>{@value #SAMPLE_SIZE} adjacent pairs at pseudo-random positions, or all
+ * of them in a smaller input. The fraction out of order estimates how many
+ * ascending runs the input has.</li>
+ * <li>{@value #SAMPLE_SIZE} pairs at pseudo-random positions. The fraction
+ * out of order estimates the inversion ratio: 0 for sorted input, about 0.5
+ * for random input and 1 for reversed input.</li>
+ * <li>{@value #SAMPLE_SIZE} elements spread evenly, sorted. The fraction equal
+ * to their neighbour estimates the duplicate ratio, which is high when the
+ * input has few distinct keys.</li>
+ * </ul>
+ *
+ * @author NJobse
+ */
+public final class InputProfile {
+    /** Pairs or elements in each sample. */
+    public static final int SAMPLE_SIZE = 1024;
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Compares the elements at two positions of the input, in sort order.
+     */
+    @FunctionalInterface
+    public interface PositionComparator {
+        int compare(int i, int j);
+    }
+
+    private final int size;
+    private final double descentRatio;
+    private final double inversionRatio;
+    private final double duplicateRatio;
+    private final long comparisons;
+    private final long nanos;
+
+    private InputProfile(int size, double descentRatio, double inversionRatio, double duplicateRatio,
+            long comparisons, long nanos) {
+        this.size = size;
+        this.descentRatio = descentRatio;
+        this.inversionRatio = inversionRatio;
+        this.duplicateRatio = duplicateRatio;
+        this.comparisons = comparisons;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Samples an array in the order of a comparator.
+     *
+     * @param arr        the input
+     * @param comparator the order it is to be sorted into
+     * @return the estimates
+     */
+    public static <T> InputProfile sample(T[] arr, Comparator<? super T> comparator) {
+        return sample(arr.length, (i, j) -> comparator.compare(arr[i], arr[j]));
+    }
+
+    /**
+     * Samples the first n keys of a key column in descending order, like the
+     * Shape comparators.
+     *
+     * @param keys the key column
+     * @param n    number of rows
+     * @return the estimates
+     */
+    public static InputProfile sample(double[] keys, int n) {
+        return sample(n, (i, j) -> Double.compare(keys[j], keys[i]));
+    }
+
+    /**
+     * Samples an input of n elements through a comparator of positions.
+     *
+     * @param n          number of elements
+     * @param comparator compares the elements at two positions
+     * @return the estimates
+     */
+    public static InputProfile sample(int n, PositionComparator comparator) {
+        long start = System.nanoTime();
+        long[] count = new long[1];
+        PositionComparator c = (i, j) -> {
+            count[0]++;
+            return comparator.compare(i, j);
+        };
+        if (n < 2) {
+            return new InputProfile(n, 0, 0, 0, 0, System.nanoTime() - start);
+        }
+
+        // Adjacent pairs at random rather than evenly spaced positions, which
+        // could keep missing the ends of runs of a regular length
+        Random rnd = new Random(SEED);
+        int pairs = Math.min(SAMPLE_SIZE, n - 1);
+        int descents = 0;
+        for (int k = 0; k < pairs; k++) {
+            int i = pairs == n - 1 ? k : rnd.nextInt(n - 1);
+            if (c.compare(i, i + 1) > 0) {
+                descents++;
+            }
+        }
+
+        int inversions = 0;
+        for (int k = 0; k < pairs; k++) {
+            int i = rnd.nextInt(n - 1);
+            int j = i + 1 + rnd.nextInt(n - 1 - i);
+            if (c.compare(i, j) > 0) {
+                inversions++;
+            }
+        }
+
+        int m = Math.min(SAMPLE_SIZE, n);
+        Integer[] positions = new Integer[m];
+        for (int k = 0; k < m; k++) {
+            positions[k] = (int) ((long) k * n / m);
+        }
+        Sort.mergeSort(positions, c::compare);
+        int duplicates = 0;
+        for (int k = 1; k < m; k++) {
+            if (c.compare(positions[k - 1], positions[k]) == 0) {
+                duplicates++;
+            }
+        }
+
+        return new InputProfile(n, (double) descents / pairs, (double) inversions / pairs,
+                (double) duplicates / (m - 1), count[0], System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return input size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sampled fraction of adjacent pairs that are out of order.
+     *
+     * @return between 0 (no descent found) and 1
+     */
+    public double descentRatio() {
+        return descentRatio;
+    }
+
+    /**
+     * Returns the estimated number of ascending runs: one plus the estimated
+     * number of adjacent pairs out of order.
+     *
+     * @return estimated runs, at least 1
+     */
+    public long estimatedRuns() {
+        return size < 2 ? 1 : 1 + Math.round(descentRatio * (size - 1));
+    }
+
+    /**
+     * Returns the sampled fraction of pairs that are out of order.
+     *
+     * @return between 0 (sorted) and 1 (reversed)
+     */
+    public double inversionRatio() {
+        return inversionRatio;
+    }
+
+    /**
+     * Returns the sampled fraction of elements equal to another sampled element.
+     *
+     * @return between 0 (all distinct) and 1 (all equal)
+     */
+    public double duplicateRatio() {
+        return duplicateRatio;
+    }
+
+    /**
+     * Returns the number of comparisons the sampling made.
+     *
+     * @return comparisons
+     */
+    public long comparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Returns how long the sampling took.
+     *
+     * @return nanoseconds
+     */
+    public long nanos() {
+        return nanos;
+    }
+}
@@ -2,6 +2,9 @@ package sorts; // Ensure this matches your project structure
 
 import java.util.Comparator;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Sorting utilities.
@@ -11,21 +14,7 @@ import java.util.Arrays;
 public class Sort {
     // ----------------- BubbleSort -----------------
     public static <T extends Comparable<T>> void bubbleSort(T[] arr) {
-        int n = arr.length;
-        boolean swapped;
-        for (int i = 0; i < n - 1; i++) {
-            swapped = false;
-            for (int j = 0; j < n - i - 1; j++) {
-                if (arr[j].compareTo(arr[j + 1]) > 0) {
-                    // Swap elements
-                    swap(arr, j, j + 1);
-                    swapped = true;
-                }
-            }
-            // If no swaps were made, array is already sorted
-            if (!swapped)
-                break;
-        }
+        bubbleSort(arr, Comparator.<T>naturalOrder());
     }
 
     /**
@@ -35,6 +24,7 @@ public class Sort {
      * @param c   Comparator for custom sorting logic
      */
     public static <T> void bubbleSort(T[] arr, Comparator<T> c) {
+        c = SortStats.wrap(c);
         int n = arr.length;
         boolean swapped;
 
@@ -47,6 +37,7 @@ public class Sort {
                     swapped = true;
                 }
             }
+            // If no swaps were made, array is already sorted
             if (!swapped)
                 break;
         }
@@ -54,16 +45,7 @@ public class Sort {
 
     // ----------------- InsertionSort -----------------
     public static <T extends Comparable<T>> void insertionSort(T[] arr) {
-        int n = arr.length;
-        for (int i = 1; i < n; i++) {
-            T key = arr[i];
-            int j = i - 1;
-            while (j >= 0 && arr[j].compareTo(key) > 0) {
-                arr[j + 1] = arr[j];
-                j--;
-            }
-            arr[j + 1] = key;
-        }
+        insertionSort(arr, Comparator.<T>naturalOrder());
     }
 
     /**
@@ -73,6 +55,7 @@ public class Sort {
      * @param c   Comparator for custom sorting logic
      */
     public static <T> void insertionSort(T[] arr, Comparator<T> c) {
+        c = SortStats.wrap(c);
         int n = arr.length;
         for (int i = 1; i < n; i++) {
             T key = arr[i];
@@ -82,23 +65,67 @@ public class Sort {
                 j--;
             }
             arr[j + 1] = key;
+            SortStats.writes(i - j);
         }
     }
 
-    // ----------------- SelectionSort -----------------
-    public static <T extends Comparable<T>> void selectionSort(T[] arr) {
+    // ----------------- ShellSort (Ciura gaps) -----------------
+    // Ciura's experimentally tuned gaps, extended past 1750 by Tokuda's ratio
+    // of 2.25 up to the largest array size. Every Shell sort below uses the
+    // gaps smaller than the input, largest first.
+    private static final int[] SHELL_GAPS = shellGaps();
+
+    private static int[] shellGaps() {
+        int[] gaps = Arrays.copyOf(new int[] { 1, 4, 10, 23, 57, 132, 301, 701, 1750 }, 64);
+        int count = 9;
+        for (long gap = gaps[count - 1] * 9L / 4; gap <= Integer.MAX_VALUE; gap = gap * 9 / 4) {
+            gaps[count++] = (int) gap;
+        }
+        return Arrays.copyOf(gaps, count);
+    }
+
+    /**
+     * Returns the position in SHELL_GAPS of the largest gap smaller than n.
+     */
+    private static int largestGap(int n) {
+        int g = 0;
+        while (g + 1 < SHELL_GAPS.length && SHELL_GAPS[g + 1] < n) {
+            g++;
+        }
+        return g;
+    }
+
+    /**
+     * Sorts an array using Shell sort with a custom Comparator: insertion
+     * sorts over elements a gap apart, for gaps falling to 1. Sorts in place
+     * and allocates nothing; not stable.
+     *
+     * @param arr array to be sorted
+     * @param c   Comparator for custom sorting logic
+     */
+    public static <T> void shellSort(T[] arr, Comparator<T> c) {
+        c = SortStats.wrap(c);
         int n = arr.length;
-        for (int i = 0; i < n - 1; i++) {
-            int minIndex = i;
-            for (int j = i + 1; j < n; j++) {
-                if (arr[j].compareTo(arr[minIndex]) < 0) {
-                    minIndex = j;
+        for (int g = largestGap(n); g >= 0; g--) {
+            int gap = SHELL_GAPS[g];
+            for (int i = gap; i < n; i++) {
+                T key = arr[i];
+                int j = i;
+                while (j >= gap && c.compare(arr[j - gap], key) > 0) {
+                    arr[j] = arr[j - gap];
+                    j -= gap;
                 }
+                arr[j] = key;
+                SortStats.writes((i - j) / gap + 1);
             }
-            swap(arr, i, minIndex);
         }
     }
 
+    // ----------------- SelectionSort -----------------
+    public static <T extends Comparable<T>> void selectionSort(T[] arr) {
+        selectionSort(arr, Comparator.<T>naturalOrder());
+    }
+
     /**
      * Sorts an array using selection sort with a custom Comparator.
      *
@@ -106,6 +133,7 @@ public class Sort {
      * @param c   Comparator for custom sorting logic
      */
     public static <T> void selectionSort(T[] arr, Comparator<T> c) {
+        c = SortStats.wrap(c);
         int n = arr.length;
         for (int i = 0; i < n - 1; i++) {
             int minIndex = i;
@@ -119,165 +147,2249 @@ public class Sort {
     }
 
     // ----------------- MergeSort -----------------
+    /**
+     * Sorts an array using a stable top-down merge sort. One scratch buffer is
+     * allocated for the whole sort, and merges of halves that are already in
+     * order are skipped.
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     */
     public static <T> void mergeSort(T[] arr, Comparator<T> comparator) {
         if (arr == null || arr.length < 2)
             return;
-        mergeSort(arr, 0, arr.length - 1, comparator);
+        T[] buffer = Arrays.copyOf(arr, arr.length);
+        SortStats.allocation(arr.length);
+        mergeSort(arr, buffer, 0, arr.length - 1, SortStats.wrap(comparator));
     }
 
-    private static <T> void mergeSort(T[] arr, int l, int r, Comparator<T> comparator) {
+    /**
+     * Sorts arr[l..r] using buffer[l..r] as scratch space.
+     */
+    private static <T> void mergeSort(T[] arr, T[] buffer, int l, int r, Comparator<T> comparator) {
         if (l < r) {
+            SortStats.enter();
             int m = l + (r - l) / 2;
-            mergeSort(arr, l, m, comparator);
-            mergeSort(arr, m + 1, r, comparator);
-            merge(arr, l, m, r, comparator);
+            mergeSort(arr, buffer, l, m, comparator);
+            mergeSort(arr, buffer, m + 1, r, comparator);
+            if (comparator.compare(arr[m], arr[m + 1]) > 0) {
+                merge(arr, buffer, l, m + 1, r + 1, comparator);
+            }
+            SortStats.exit();
         }
     }
 
-    private static <T> void merge(T[] arr, int l, int m, int r, Comparator<T> comparator) {
-        T[] L = Arrays.copyOfRange(arr, l, m + 1);
-        T[] R = Arrays.copyOfRange(arr, m + 1, r + 1);
+    /**
+     * Stably merges the sorted runs arr[lo, mid) and arr[mid, hi). Only the
+     * left run is copied out, to the same positions in buffer; the merge
+     * writes behind the right run's read position, so it never overwrites an
+     * unread element.
+     */
+    private static <T> void merge(T[] arr, T[] buffer, int lo, int mid, int hi, Comparator<T> comparator) {
+        System.arraycopy(arr, lo, buffer, lo, mid - lo);
 
-        int i = 0, j = 0, k = l;
-        while (i < L.length && j < R.length) {
-            if (comparator.compare(L[i], R[j]) <= 0) {
-                arr[k++] = L[i++];
+        int i = lo, j = mid, k = lo;
+        while (i < mid && j < hi) {
+            if (comparator.compare(buffer[i], arr[j]) <= 0) {
+                arr[k++] = buffer[i++];
             } else {
-                arr[k++] = R[j++];
+                arr[k++] = arr[j++];
             }
         }
-        while (i < L.length)
-            arr[k++] = L[i++];
-        while (j < R.length)
-            arr[k++] = R[j++];
+        // Anything left in the right run is already in place
+        while (i < mid)
+            arr[k++] = buffer[i++];
+        SortStats.writes((mid - lo) + (k - lo));
     }
 
-    // ----------------- QuickSort -----------------
-    public static <T extends Comparable<T>> void quickSort(T[] arr) {
-        quickSort(arr, 0, arr.length - 1);
+    /**
+     * Binary search in arr[lo, hi) for the first element greater than key
+     * (upper) or not less than key (lower).
+     */
+    private static <T> int bound(T[] arr, T key, int lo, int hi, boolean upper, Comparator<T> comparator) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = comparator.compare(arr[mid], key);
+            if (c < 0 || (upper && c == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
     }
 
-    private static <T extends Comparable<T>> void quickSort(T[] arr, int low, int high) {
-        if (low < high) {
-            int pi = partition(arr, low, high);
-            quickSort(arr, low, pi - 1);
-            quickSort(arr, pi + 1, high);
+    // ----------------- Natural MergeSort (TimSort-style) -----------------
+    // Runs shorter than this are extended with binary insertion sort
+    private static final int MIN_MERGE = 32;
+
+    /**
+     * Sorts an array using a stable natural merge sort in the style of
+     * TimSort. Existing ascending runs, and strictly descending runs (which
+     * are reversed), are found in one scan; short runs are extended to a
+     * minimum length with binary insertion sort. Runs are merged through a
+     * stack that keeps merges balanced, and each merge first binary-searches
+     * away the parts of both runs that are already in place. Sorted input
+     * takes n - 1 comparisons, and input made of a few sorted batches sorts
+     * in close to linear time.
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     */
+    public static <T> void naturalMergeSort(T[] arr, Comparator<T> comparator) {
+        if (arr == null || arr.length < 2)
+            return;
+        comparator = SortStats.wrap(comparator);
+        int n = arr.length;
+        int minRun = minRunLength(n);
+        T[] buffer = null; // allocated by the first merge that needs it
+
+        // Run stack; the merge rules keep it logarithmic in n
+        int[] runBase = new int[64];
+        int[] runLen = new int[64];
+        SortStats.allocation(runBase.length + runLen.length);
+        int stackSize = 0;
+
+        int lo = 0;
+        while (lo < n) {
+            int len = countRunAndMakeAscending(arr, lo, n, comparator);
+            if (len < minRun) {
+                int force = Math.min(minRun, n - lo);
+                binaryInsertionSort(arr, lo, lo + force, lo + len, comparator);
+                len = force;
+            }
+            runBase[stackSize] = lo;
+            runLen[stackSize] = len;
+            stackSize++;
+            lo += len;
+
+            // Merge until runLen[k-2] > runLen[k-1] + runLen[k] and runLen[k-1] > runLen[k]
+            while (stackSize > 1) {
+                int k = stackSize - 2;
+                if ((k > 0 && runLen[k - 1] <= runLen[k] + runLen[k + 1])
+                        || (k > 1 && runLen[k - 2] <= runLen[k - 1] + runLen[k])) {
+                    if (runLen[k - 1] < runLen[k + 1])
+                        k--;
+                } else if (runLen[k] > runLen[k + 1]) {
+                    break;
+                }
+                if (buffer == null)
+                    buffer = allocateBuffer(arr);
+                mergeRuns(arr, buffer, runBase[k], runBase[k + 1], runBase[k + 1] + runLen[k + 1], comparator);
+                stackSize = popRun(runBase, runLen, stackSize, k);
+            }
+        }
+
+        // Merge whatever is left, smallest neighbours first
+        while (stackSize > 1) {
+            int k = stackSize - 2;
+            if (k > 0 && runLen[k - 1] < runLen[k + 1])
+                k--;
+            if (buffer == null)
+                buffer = allocateBuffer(arr);
+            mergeRuns(arr, buffer, runBase[k], runBase[k + 1], runBase[k + 1] + runLen[k + 1], comparator);
+            stackSize = popRun(runBase, runLen, stackSize, k);
         }
     }
 
-    private static <T extends Comparable<T>> int partition(T[] arr, int low, int high) {
-        T pivot = arr[high];
-        int i = low - 1;
+    private static <T> T[] allocateBuffer(T[] arr) {
+        SortStats.allocation(arr.length);
+        return Arrays.copyOf(arr, arr.length);
+    }
 
-        for (int j = low; j < high; j++) {
-            if (arr[j].compareTo(pivot) < 0) { // Use compareTo directly
-                i++;
+    /**
+     * Returns the minimum run length for an array of length n: n itself for
+     * small arrays, otherwise a value in [MIN_MERGE / 2, MIN_MERGE] such that
+     * n / minRun is close to, but not more than, a power of two.
+     */
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    /**
+     * Returns the length of the run starting at lo, reversing it first if it
+     * is strictly descending (strictly, so reversing keeps equal elements in
+     * order).
+     */
+    private static <T> int countRunAndMakeAscending(T[] arr, int lo, int hi, Comparator<T> comparator) {
+        int end = lo + 1;
+        if (end == hi)
+            return 1;
+        if (comparator.compare(arr[end++], arr[lo]) < 0) {
+            while (end < hi && comparator.compare(arr[end], arr[end - 1]) < 0)
+                end++;
+            for (int i = lo, j = end - 1; i < j; i++, j--)
                 swap(arr, i, j);
+        } else {
+            while (end < hi && comparator.compare(arr[end], arr[end - 1]) >= 0)
+                end++;
+        }
+        return end - lo;
+    }
+
+    /**
+     * Sorts arr[lo, hi) where arr[lo, start) is already sorted, inserting each
+     * remaining element after a binary search for its position.
+     */
+    private static <T> void binaryInsertionSort(T[] arr, int lo, int hi, int start, Comparator<T> comparator) {
+        for (int i = start; i < hi; i++) {
+            T key = arr[i];
+            // Upper bound, so the new element goes after equal ones
+            int pos = bound(arr, key, lo, i, true, comparator);
+            System.arraycopy(arr, pos, arr, pos + 1, i - pos);
+            arr[pos] = key;
+            SortStats.writes(i - pos + 1);
+        }
+    }
+
+    /**
+     * Merges the adjacent sorted runs arr[lo, mid) and arr[mid, hi), skipping
+     * the prefix of the left run and the suffix of the right run that are
+     * already in their final positions.
+     */
+    private static <T> void mergeRuns(T[] arr, T[] buffer, int lo, int mid, int hi, Comparator<T> comparator) {
+        // Left elements not greater than the first right element stay put
+        lo = bound(arr, arr[mid], lo, mid, true, comparator);
+        if (lo == mid)
+            return;
+        // Right elements not less than the last left element stay put
+        hi = bound(arr, arr[mid - 1], mid, hi, false, comparator);
+        merge(arr, buffer, lo, mid, hi, comparator);
+    }
+
+    /**
+     * Replaces runs k and k + 1 on the run stack with their merged run.
+     *
+     * @return the new stack size
+     */
+    private static int popRun(int[] runBase, int[] runLen, int stackSize, int k) {
+        runLen[k] += runLen[k + 1];
+        if (k == stackSize - 3) {
+            runBase[k + 1] = runBase[k + 2];
+            runLen[k + 1] = runLen[k + 2];
+        }
+        return stackSize - 1;
+    }
+
+    // ----------------- Parallel MergeSort (fork/join) -----------------
+    // Ranges up to this size are sorted (or merged) sequentially
+    private static final int PARALLEL_SORT_CUTOFF = 8192;
+    private static final int PARALLEL_MERGE_CUTOFF = 8192;
+
+    /**
+     * Sorts an array using a fork/join parallel merge sort on the common pool.
+     * Halves are sorted in parallel and large merges are split in parallel too.
+     * The result is stable, so it matches {@link #mergeSort(Object[], Comparator)}
+     * exactly.
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     */
+    public static <T> void parallelMergeSort(T[] arr, Comparator<T> comparator) {
+        parallelMergeSort(arr, comparator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts an array using a fork/join parallel merge sort on the given pool.
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     * @param pool       pool that runs the sort
+     */
+    public static <T> void parallelMergeSort(T[] arr, Comparator<T> comparator, ForkJoinPool pool) {
+        if (arr == null || arr.length < 2)
+            return;
+        comparator = SortStats.wrap(comparator);
+        T[] buffer = Arrays.copyOf(arr, arr.length);
+        SortStats.allocation(arr.length);
+        if (arr.length <= PARALLEL_SORT_CUTOFF) {
+            mergeSort(arr, buffer, 0, arr.length - 1, comparator);
+            return;
+        }
+        pool.invoke(new ParallelMergeSortTask<>(arr, buffer, 0, arr.length, false, 0, comparator));
+    }
+
+    /**
+     * Sorts src[lo, hi) and leaves the result in src, or in dst when intoDst
+     * is set. The two arrays swap roles at each level, so merged halves never
+     * need to be copied back.
+     */
+    private static class ParallelMergeSortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] src, dst;
+        private final int lo, hi;
+        private final boolean intoDst;
+        private final int level;
+        private final Comparator<T> comparator;
+
+        ParallelMergeSortTask(T[] src, T[] dst, int lo, int hi, boolean intoDst, int level,
+                Comparator<T> comparator) {
+            this.src = src;
+            this.dst = dst;
+            this.lo = lo;
+            this.hi = hi;
+            this.intoDst = intoDst;
+            this.level = level;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= PARALLEL_SORT_CUTOFF) {
+                // dst[lo, hi) is free until the merge above us, so it serves as scratch.
+                // Tasks run on different threads, so the depth count starts at our level
+                SortStats.enter(level);
+                mergeSort(src, dst, lo, hi - 1, comparator);
+                SortStats.exit(level);
+                if (intoDst) {
+                    System.arraycopy(src, lo, dst, lo, hi - lo);
+                    SortStats.writes(hi - lo);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            // Sort both halves into the array we are not merging into
+            invokeAll(new ParallelMergeSortTask<>(src, dst, lo, mid, !intoDst, level + 1, comparator),
+                    new ParallelMergeSortTask<>(src, dst, mid, hi, !intoDst, level + 1, comparator));
+            T[] from = intoDst ? src : dst;
+            T[] to = intoDst ? dst : src;
+            new ParallelMergeTask<>(from, lo, mid, mid, hi, to, lo, comparator).compute();
+        }
+    }
+
+    /**
+     * Stably merges the sorted runs src[aLo, aHi) and src[bLo, bHi) into dst
+     * starting at dstLo. Large merges split at the middle of the longer run and
+     * binary-search the matching split in the other run, then merge both sides
+     * in parallel.
+     */
+    private static class ParallelMergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final T[] src, dst;
+        private final int aLo, aHi, bLo, bHi, dstLo;
+        private final Comparator<T> comparator;
+
+        ParallelMergeTask(T[] src, int aLo, int aHi, int bLo, int bHi, T[] dst, int dstLo,
+                Comparator<T> comparator) {
+            this.src = src;
+            this.aLo = aLo;
+            this.aHi = aHi;
+            this.bLo = bLo;
+            this.bHi = bHi;
+            this.dst = dst;
+            this.dstLo = dstLo;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            int aLen = aHi - aLo, bLen = bHi - bLo;
+            if (aLen + bLen <= PARALLEL_MERGE_CUTOFF) {
+                int i = aLo, j = bLo, k = dstLo;
+                while (i < aHi && j < bHi) {
+                    if (comparator.compare(src[i], src[j]) <= 0) {
+                        dst[k++] = src[i++];
+                    } else {
+                        dst[k++] = src[j++];
+                    }
+                }
+                while (i < aHi)
+                    dst[k++] = src[i++];
+                while (j < bHi)
+                    dst[k++] = src[j++];
+                SortStats.writes(aLen + bLen);
+                return;
+            }
+
+            int aMid, bMid;
+            if (aLen >= bLen) {
+                // Left elements come first among equals, so right elements equal
+                // to the pivot belong after it: take the lower bound in b
+                aMid = (aLo + aHi) >>> 1;
+                bMid = bound(src, src[aMid], bLo, bHi, false, comparator);
+                dst[dstLo + (aMid - aLo) + (bMid - bLo)] = src[aMid];
+                SortStats.writes(1);
+                invokeAll(new ParallelMergeTask<>(src, aLo, aMid, bLo, bMid, dst, dstLo, comparator),
+                        new ParallelMergeTask<>(src, aMid + 1, aHi, bMid, bHi, dst,
+                                dstLo + (aMid - aLo) + (bMid - bLo) + 1, comparator));
+            } else {
+                // Left elements equal to the pivot belong before it: upper bound in a
+                bMid = (bLo + bHi) >>> 1;
+                aMid = bound(src, src[bMid], aLo, aHi, true, comparator);
+                dst[dstLo + (aMid - aLo) + (bMid - bLo)] = src[bMid];
+                SortStats.writes(1);
+                invokeAll(new ParallelMergeTask<>(src, aLo, aMid, bLo, bMid, dst, dstLo, comparator),
+                        new ParallelMergeTask<>(src, aMid, aHi, bMid + 1, bHi, dst,
+                                dstLo + (aMid - aLo) + (bMid - bLo) + 1, comparator));
             }
         }
-        swap(arr, i + 1, high);
-        return i + 1;
+    }
+
+    // ----------------- QuickSort (introsort) -----------------
+    // Ranges up to this size are finished with insertion sort
+    private static final int INSERTION_SORT_CUTOFF = 16;
+    // Ranges larger than this use Tukey's ninther instead of median-of-three
+    private static final int NINTHER_THRESHOLD = 128;
+
+    public static <T extends Comparable<T>> void quickSort(T[] arr) {
+        quickSort(arr, Comparator.<T>naturalOrder());
     }
 
     /**
      * Sorts an array using QuickSort with a custom Comparator.
+     * <p>
+     * Introsort: pivots are the median of three (or Tukey's ninther on large
+     * ranges), only the smaller partition is sorted recursively, small ranges
+     * are finished with insertion sort, and a range that partitions badly more
+     * than 2 log2(n) times is heap sorted. This gives O(n log n) time and
+     * O(log n) stack depth on any input, including sorted and reverse-sorted
+     * arrays.
      *
      * @param arr        array to be sorted
      * @param comparator Comparator for custom sorting logic
      */
     public static <T> void quickSort(T[] arr, Comparator<T> comparator) {
-        quickSort(arr, 0, arr.length - 1, comparator);
+        if (arr == null || arr.length < 2)
+            return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(arr.length));
+        quickSort(arr, 0, arr.length - 1, depthLimit, SortStats.wrap(comparator));
     }
 
-    private static <T> void quickSort(T[] arr, int low, int high, Comparator<T> comparator) {
-        if (low < high) {
-            int pi = partition(arr, low, high, comparator);
-            quickSort(arr, low, pi - 1, comparator);
-            quickSort(arr, pi + 1, high, comparator);
+    private static <T> void quickSort(T[] arr, int low, int high, int depthLimit, Comparator<T> comparator) {
+        SortStats.enter();
+        while (high - low >= INSERTION_SORT_CUTOFF) {
+            if (depthLimit-- == 0) {
+                heapSort(arr, low, high + 1, 2, comparator);
+                SortStats.exit();
+                return;
+            }
+            int p = partition(arr, low, high, comparator);
+            // Recurse into the smaller side and loop on the larger one
+            if (p - low < high - p) {
+                quickSort(arr, low, p, depthLimit, comparator);
+                low = p + 1;
+            } else {
+                quickSort(arr, p + 1, high, depthLimit, comparator);
+                high = p;
+            }
         }
+        insertionSort(arr, low, high, comparator);
+        SortStats.exit();
     }
 
+    /**
+     * Hoare partition around a median-of-three (or ninther) pivot.
+     *
+     * @return p such that arr[low..p] &lt;= pivot &lt;= arr[p+1..high], with
+     *         low &lt;= p &lt; high
+     */
     private static <T> int partition(T[] arr, int low, int high, Comparator<T> comparator) {
-        T pivot = arr[high];
-        int i = low - 1;
+        int mid = low + (high - low) / 2;
+        int pivotIndex;
+        if (high - low > NINTHER_THRESHOLD) {
+            int d = (high - low) / 8;
+            pivotIndex = median(arr,
+                    median(arr, low, low + d, low + 2 * d, comparator),
+                    median(arr, mid - d, mid, mid + d, comparator),
+                    median(arr, high - 2 * d, high - d, high, comparator), comparator);
+        } else {
+            pivotIndex = median(arr, low, mid, high, comparator);
+        }
+        // Keeping the pivot at low guarantees both sides are non-empty
+        swap(arr, low, pivotIndex);
+        T pivot = arr[low];
 
-        for (int j = low; j < high; j++) {
-            if (comparator.compare(arr[j], pivot) < 0) {
+        int i = low - 1, j = high + 1;
+        while (true) {
+            do {
                 i++;
-                swap(arr, i, j);
+            } while (comparator.compare(arr[i], pivot) < 0);
+            do {
+                j--;
+            } while (comparator.compare(arr[j], pivot) > 0);
+            if (i >= j)
+                return j;
+            swap(arr, i, j);
+        }
+    }
+
+    /**
+     * Returns the index of the median of arr[a], arr[b] and arr[c].
+     */
+    private static <T> int median(T[] arr, int a, int b, int c, Comparator<T> comparator) {
+        if (comparator.compare(arr[a], arr[b]) < 0) {
+            if (comparator.compare(arr[b], arr[c]) < 0)
+                return b;
+            return comparator.compare(arr[a], arr[c]) < 0 ? c : a;
+        }
+        if (comparator.compare(arr[a], arr[c]) < 0)
+            return a;
+        return comparator.compare(arr[b], arr[c]) < 0 ? c : b;
+    }
+
+    /**
+     * Insertion sort of arr[low..high], used for small quicksort ranges.
+     */
+    private static <T> void insertionSort(T[] arr, int low, int high, Comparator<T> comparator) {
+        for (int i = low + 1; i <= high; i++) {
+            T key = arr[i];
+            int j = i - 1;
+            while (j >= low && comparator.compare(arr[j], key) > 0) {
+                arr[j + 1] = arr[j];
+                j--;
             }
+            arr[j + 1] = key;
+            SortStats.writes(i - j);
         }
-        swap(arr, i + 1, high);
-        return i + 1;
     }
 
     // ----------------- HeapSort (Comparable<T> version) -----------------
     public static <T extends Comparable<T>> void heapSort(T[] arr) {
-        int n = arr.length;
+        heapSort(arr, Comparator.<T>naturalOrder());
+    }
 
-        // Build max heap
-        for (int i = n / 2 - 1; i >= 0; i--) {
-            heapify(arr, n, i);
-        }
+    // ----------------- HeapSort (Comparator<T> version) -----------------
+    /**
+     * Sorts an array using an in-place bottom-up (Floyd) heapsort.
+     * <p>
+     * Each extraction walks the hole left by the root down to a leaf along
+     * the larger children, one comparison per level, and then sifts the
+     * displaced last element back up, which usually takes only a step or two.
+     * That is about half the comparisons of the textbook sift-down, which
+     * compares against both children and the sifted element at every level.
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     */
+    public static <T> void heapSort(T[] arr, Comparator<T> comparator) {
+        heapSort(arr, 0, arr.length, 2, SortStats.wrap(comparator));
+    }
 
-        // Extract elements from heap one by one
-        for (int i = n - 1; i > 0; i--) {
-            swap(arr, 0, i);
-            heapify(arr, i, 0);
+    /**
+     * Sorts an array using a bottom-up heapsort on a d-ary heap. A 4-ary or
+     * 8-ary heap is half or a third as deep as a binary one and keeps each
+     * node's children next to each other in memory, but needs d - 1
+     * comparisons per level. It pays off when comparisons are cheap next to
+     * cache misses; with the Shape comparators the binary heap is usually
+     * faster (see tests.BenchmarkHeapSort).
+     *
+     * @param arr        array to be sorted
+     * @param comparator Comparator for custom sorting logic
+     * @param arity      children per heap node, at least 2
+     */
+    public static <T> void heapSort(T[] arr, Comparator<T> comparator, int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Heap arity must be at least 2: " + arity);
         }
+        heapSort(arr, 0, arr.length, arity, SortStats.wrap(comparator));
     }
 
-    private static <T extends Comparable<T>> void heapify(T[] arr, int n, int i) {
-        int largest = i; // Root
-        int left = 2 * i + 1;
-        int right = 2 * i + 2;
+    /**
+     * Heap sorts arr[from, to). The heap is stored with its root at arr[from]
+     * and the children of node i at d * i + 1 .. d * i + d.
+     */
+    private static <T> void heapSort(T[] arr, int from, int to, int d, Comparator<T> comparator) {
+        int n = to - from;
 
-        if (left < n && arr[left].compareTo(arr[largest]) > 0) {
-            largest = left;
+        // Build max heap, starting from the last node that has a child
+        for (int i = internalNodes(n, d) - 1; i >= 0; i--) {
+            siftDown(arr, from, n, i, d, comparator);
         }
 
-        if (right < n && arr[right].compareTo(arr[largest]) > 0) {
-            largest = right;
+        // Extract elements from heap one by one
+        for (int end = n - 1; end > 0; end--) {
+            T last = arr[from + end];
+            arr[from + end] = arr[from];
+
+            // Move the hole at the root down to a leaf along the largest children
+            int hole = 0;
+            int moves = 2;
+            int parents = internalNodes(end, d);
+            while (hole < parents) {
+                int child = largestChild(arr, from, end, d * hole + 1, d, comparator);
+                arr[from + hole] = arr[from + child];
+                hole = child;
+                moves++;
+            }
+            // Sift the displaced element back up from the leaf
+            while (hole > 0) {
+                int parent = (hole - 1) / d;
+                if (comparator.compare(arr[from + parent], last) >= 0)
+                    break;
+                arr[from + hole] = arr[from + parent];
+                hole = parent;
+                moves++;
+            }
+            arr[from + hole] = last;
+            SortStats.writes(moves);
         }
+    }
 
-        if (largest != i) {
-            swap(arr, i, largest);
-            heapify(arr, n, largest);
+    /**
+     * Moves arr[from + i] down a d-ary max heap of n elements until neither
+     * child is larger.
+     */
+    private static <T> void siftDown(T[] arr, int from, int n, int i, int d, Comparator<T> comparator) {
+        T item = arr[from + i];
+        int start = i, moves = 0;
+        int parents = internalNodes(n, d);
+        while (i < parents) {
+            int child = largestChild(arr, from, n, d * i + 1, d, comparator);
+            if (comparator.compare(arr[from + child], item) <= 0)
+                break;
+            arr[from + i] = arr[from + child];
+            i = child;
+            moves++;
+        }
+        if (i != start) {
+            arr[from + i] = item;
+            SortStats.writes(moves + 1);
         }
     }
 
-    // ----------------- HeapSort (Comparator<T> version) -----------------
-    public static <T> void heapSort(T[] arr, Comparator<T> comparator) {
-        int n = arr.length;
+    /**
+     * Returns the index of the largest of the (up to d) children starting at
+     * first in a heap of n elements.
+     */
+    private static <T> int largestChild(T[] arr, int from, int n, int first, int d, Comparator<T> comparator) {
+        int largest = first;
+        int end = Math.min(first + d, n);
+        for (int k = first + 1; k < end; k++) {
+            if (comparator.compare(arr[from + k], arr[from + largest]) > 0) {
+                largest = k;
+            }
+        }
+        return largest;
+    }
 
-        // Build max heap
-        for (int i = n / 2 - 1; i >= 0; i--) {
-            heapify(arr, n, i, comparator);
+    /**
+     * Returns how many nodes of a d-ary heap of n elements have a child;
+     * they are nodes 0 .. result - 1.
+     */
+    private static int internalNodes(int n, int d) {
+        return n < 2 ? 0 : (n - 2) / d + 1;
+    }
+
+    // ----------------- Top-N (bounded heap over a stream) -----------------
+    /**
+     * Collects the first out.length elements of a stream in comparator order,
+     * in one pass and without holding more than out.length elements.
+     *
+     * @param source     elements to scan
+     * @param comparator Comparator for custom sorting logic
+     * @param out        destination; its length is N
+     * @return the number of elements written to out (less than N if the
+     *         source is shorter)
+     */
+    public static <T> int topN(Iterator<? extends T> source, Comparator<T> comparator, T[] out) {
+        comparator = SortStats.wrap(comparator);
+        int n = out.length;
+        int size = 0;
+        // out[0 .. size) is a max heap, so the element that sorts last is at the root
+        while (source.hasNext()) {
+            T item = source.next();
+            if (size < n) {
+                int i = size++;
+                out[i] = item;
+                SortStats.writes(1);
+                while (i > 0 && comparator.compare(out[(i - 1) / 2], out[i]) < 0) {
+                    swap(out, i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+            } else if (n > 0 && comparator.compare(item, out[0]) < 0) {
+                out[0] = item;
+                SortStats.writes(1);
+                siftDown(out, 0, size, 0, 2, comparator);
+            }
         }
 
         // Extract elements from heap one by one
-        for (int i = n - 1; i > 0; i--) {
-            swap(arr, 0, i);
-            heapify(arr, i, 0, comparator);
+        for (int i = size - 1; i > 0; i--) {
+            swap(out, 0, i);
+            siftDown(out, 0, i, 0, 2, comparator);
         }
+        return size;
     }
 
-    private static <T> void heapify(T[] arr, int n, int i, Comparator<T> comparator) {
-        int largest = i;
-        int left = 2 * i + 1;
-        int right = 2 * i + 2;
+    // ----------------- KeySort (precomputed double keys) -----------------
+    // The overloads below sort a double[] of precomputed keys and carry the
+    // matching elements of arr along, so each key is computed once instead of
+    // on every comparison. Keys are ordered descending, like the Shape comparators.
 
-        if (left < n && comparator.compare(arr[left], arr[largest]) > 0) {
-            largest = left;
-        }
+    /**
+     * Sorts keys (descending) using bubble sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void bubbleSort(double[] keys, T[] arr) {
+        int n = keys.length;
+        boolean swapped;
 
-        if (right < n && comparator.compare(arr[right], arr[largest]) > 0) {
-            largest = right;
+        for (int i = 0; i < n - 1; i++) {
+            swapped = false;
+
+            for (int j = 0; j < n - i - 1; j++) {
+                if (compareKeys(keys[j], keys[j + 1]) > 0) {
+                    swap(keys, arr, j, j + 1);
+                    swapped = true;
+                }
+            }
+            if (!swapped)
+                break;
         }
+    }
 
-        if (largest != i) {
-            swap(arr, i, largest);
-            heapify(arr, n, largest, comparator);
+    /**
+     * Sorts keys (descending) using insertion sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void insertionSort(double[] keys, T[] arr) {
+        insertionSort(keys, arr, 0, keys.length - 1);
+    }
+
+    /**
+     * Insertion sort of keys[low..high], also used for small quicksort ranges.
+     */
+    private static <T> void insertionSort(double[] keys, T[] arr, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            double key = keys[i];
+            T item = arr[i];
+            int j = i - 1;
+            while (j >= low && compareKeys(keys[j], key) > 0) {
+                keys[j + 1] = keys[j];
+                arr[j + 1] = arr[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            arr[j + 1] = item;
+            SortStats.writes(i - j);
+        }
+    }
+
+    /**
+     * Sorts keys (descending) using Shell sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void shellSort(double[] keys, T[] arr) {
+        int n = keys.length;
+        for (int g = largestGap(n); g >= 0; g--) {
+            int gap = SHELL_GAPS[g];
+            for (int i = gap; i < n; i++) {
+                double key = keys[i];
+                T item = arr[i];
+                int j = i;
+                while (j >= gap && compareKeys(keys[j - gap], key) > 0) {
+                    keys[j] = keys[j - gap];
+                    arr[j] = arr[j - gap];
+                    j -= gap;
+                }
+                keys[j] = key;
+                arr[j] = item;
+                SortStats.writes((i - j) / gap + 1);
+            }
+        }
+    }
+
+    /**
+     * Sorts keys (descending) using selection sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void selectionSort(double[] keys, T[] arr) {
+        int n = keys.length;
+        for (int i = 0; i < n - 1; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < n; j++) {
+                if (compareKeys(keys[j], keys[minIndex]) < 0) {
+                    minIndex = j;
+                }
+            }
+            swap(keys, arr, i, minIndex);
+        }
+    }
+
+    /**
+     * Sorts keys (descending) using merge sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void mergeSort(double[] keys, T[] arr) {
+        if (keys == null || keys.length < 2)
+            return;
+        SortStats.allocation(keys.length);
+        SortStats.allocation(arr.length);
+        mergeSort(keys, arr, new double[keys.length], Arrays.copyOf(arr, arr.length), 0, keys.length - 1);
+    }
+
+    private static <T> void mergeSort(double[] keys, T[] arr, double[] keyBuffer, T[] buffer, int l, int r) {
+        if (l < r) {
+            SortStats.enter();
+            int m = l + (r - l) / 2;
+            mergeSort(keys, arr, keyBuffer, buffer, l, m);
+            mergeSort(keys, arr, keyBuffer, buffer, m + 1, r);
+            if (compareKeys(keys[m], keys[m + 1]) > 0) {
+                merge(keys, arr, keyBuffer, buffer, l, m, r);
+            }
+            SortStats.exit();
+        }
+    }
+
+    private static <T> void merge(double[] keys, T[] arr, double[] keyBuffer, T[] buffer, int l, int m, int r) {
+        // Only the left half is copied out; see merge(T[], T[], ...)
+        System.arraycopy(keys, l, keyBuffer, l, m + 1 - l);
+        System.arraycopy(arr, l, buffer, l, m + 1 - l);
+
+        int i = l, j = m + 1, k = l;
+        while (i <= m && j <= r) {
+            if (compareKeys(keyBuffer[i], keys[j]) <= 0) {
+                keys[k] = keyBuffer[i];
+                arr[k++] = buffer[i++];
+            } else {
+                keys[k] = keys[j];
+                arr[k++] = arr[j++];
+            }
+        }
+        while (i <= m) {
+            keys[k] = keyBuffer[i];
+            arr[k++] = buffer[i++];
+        }
+        SortStats.writes((m + 1 - l) + (k - l));
+    }
+
+    /**
+     * Sorts keys (descending) using the introsort of
+     * {@link #quickSort(Object[], Comparator)}, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void quickSort(double[] keys, T[] arr) {
+        if (keys == null || keys.length < 2)
+            return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(keys.length));
+        quickSort(keys, arr, 0, keys.length - 1, depthLimit);
+    }
+
+    private static <T> void quickSort(double[] keys, T[] arr, int low, int high, int depthLimit) {
+        SortStats.enter();
+        while (high - low >= INSERTION_SORT_CUTOFF) {
+            if (depthLimit-- == 0) {
+                heapSort(keys, arr, low, high + 1);
+                SortStats.exit();
+                return;
+            }
+            int p = partition(keys, arr, low, high);
+            // Recurse into the smaller side and loop on the larger one
+            if (p - low < high - p) {
+                quickSort(keys, arr, low, p, depthLimit);
+                low = p + 1;
+            } else {
+                quickSort(keys, arr, p + 1, high, depthLimit);
+                high = p;
+            }
+        }
+        insertionSort(keys, arr, low, high);
+        SortStats.exit();
+    }
+
+    /**
+     * Hoare partition around a median-of-three (or ninther) pivot; see
+     * partition(T[], ...).
+     */
+    private static <T> int partition(double[] keys, T[] arr, int low, int high) {
+        int mid = low + (high - low) / 2;
+        int pivotIndex;
+        if (high - low > NINTHER_THRESHOLD) {
+            int d = (high - low) / 8;
+            pivotIndex = median(keys,
+                    median(keys, low, low + d, low + 2 * d, false),
+                    median(keys, mid - d, mid, mid + d, false),
+                    median(keys, high - 2 * d, high - d, high, false), false);
+        } else {
+            pivotIndex = median(keys, low, mid, high, false);
+        }
+        swap(keys, arr, low, pivotIndex);
+        double pivot = keys[low];
+
+        int i = low - 1, j = high + 1;
+        while (true) {
+            do {
+                i++;
+            } while (compareKeys(keys[i], pivot) < 0);
+            do {
+                j--;
+            } while (compareKeys(keys[j], pivot) > 0);
+            if (i >= j)
+                return j;
+            swap(keys, arr, i, j);
+        }
+    }
+
+    /**
+     * Sorts keys (descending) using heap sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void heapSort(double[] keys, T[] arr) {
+        heapSort(keys, arr, 0, keys.length);
+    }
+
+    /**
+     * Heap sorts keys[from, to), root at keys[from]; also the quicksort fallback.
+     */
+    private static <T> void heapSort(double[] keys, T[] arr, int from, int to) {
+        int n = to - from;
+
+        // Build max heap
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            heapify(keys, arr, from, n, i);
+        }
+
+        // Extract elements from heap one by one
+        for (int i = n - 1; i > 0; i--) {
+            swap(keys, arr, from, from + i);
+            heapify(keys, arr, from, i, 0);
+        }
+    }
+
+    private static <T> void heapify(double[] keys, T[] arr, int from, int n, int i) {
+        int largest = i;
+        int left = 2 * i + 1;
+        int right = 2 * i + 2;
+
+        if (left < n && compareKeys(keys[from + left], keys[from + largest]) > 0) {
+            largest = left;
+        }
+
+        if (right < n && compareKeys(keys[from + right], keys[from + largest]) > 0) {
+            largest = right;
+        }
+
+        if (largest != i) {
+            swap(keys, arr, from + i, from + largest);
+            SortStats.enter();
+            heapify(keys, arr, from, n, largest);
+            SortStats.exit();
+        }
+    }
+
+    // ----------------- IndexSort (index array over a key column) -----------------
+    // The overloads below leave the key column untouched and sort an array of
+    // row indices into it, e.g. for a ShapeTable column. Keys are ordered
+    // descending, like the Shape comparators. Each gathers the keys into index
+    // order and hands them to the PrimitiveSort kernel of the same name, so
+    // comparisons read keys sequentially instead of through the index.
+
+    /**
+     * Sorts row indices by their keys (descending) using bubble sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void bubbleSort(int[] index, double[] keys) {
+        bubbleSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using insertion sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void insertionSort(int[] index, double[] keys) {
+        insertionSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using Shell sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void shellSort(int[] index, double[] keys) {
+        shellSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using selection sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void selectionSort(int[] index, double[] keys) {
+        selectionSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using merge sort. Stable:
+     * rows with equal keys keep their order in index.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void mergeSort(int[] index, double[] keys) {
+        mergeSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using the introsort of
+     * {@link #quickSort(Object[], Comparator)}.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void quickSort(int[] index, double[] keys) {
+        quickSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using heap sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void heapSort(int[] index, double[] keys) {
+        heapSort(gatherKeys(index, keys), index, false);
+    }
+
+    /**
+     * Returns the keys of the rows in index, in index order.
+     */
+    private static double[] gatherKeys(int[] index, double[] keys) {
+        double[] rowKeys = new double[index.length];
+        SortStats.allocation(index.length);
+        for (int i = 0; i < index.length; i++) {
+            rowKeys[i] = keys[index[i]];
+        }
+        return rowKeys;
+    }
+
+    /**
+     * Returns the identity index array 0, 1, ..., n - 1.
+     *
+     * @param n number of rows
+     * @return a new index array
+     */
+    public static int[] identityIndex(int n) {
+        int[] index = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[i] = i;
+        }
+        return index;
+    }
+
+    // ----------------- PrimitiveSort (double keys with a parallel permutation) -----------------
+    // The overloads below sort a double[] of keys in either direction and move
+    // a parallel int[] (e.g. row numbers) with them. Keys are read in place
+    // rather than through the index, and the inner loops make no comparator
+    // calls and allocate nothing. Merge, quick and heap sort are the same
+    // algorithms as the Comparator versions above.
+
+    /**
+     * Sorts keys using bubble sort, moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending like
+     *                  the Shape comparators
+     */
+    public static void bubbleSort(double[] keys, int[] perm, boolean ascending) {
+        int n = keys.length;
+        boolean swapped;
+
+        for (int i = 0; i < n - 1; i++) {
+            swapped = false;
+
+            for (int j = 0; j < n - i - 1; j++) {
+                if (compareKeys(keys[j], keys[j + 1], ascending) > 0) {
+                    swap(keys, perm, j, j + 1);
+                    swapped = true;
+                }
+            }
+            if (!swapped)
+                break;
+        }
+    }
+
+    /**
+     * Sorts keys using insertion sort, moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void insertionSort(double[] keys, int[] perm, boolean ascending) {
+        insertionSort(keys, perm, 0, keys.length - 1, ascending);
+    }
+
+    /**
+     * Insertion sort of keys[low..high], also used for small quicksort ranges.
+     */
+    private static void insertionSort(double[] keys, int[] perm, int low, int high, boolean ascending) {
+        for (int i = low + 1; i <= high; i++) {
+            double key = keys[i];
+            int p = perm[i];
+            int j = i - 1;
+            while (j >= low && compareKeys(keys[j], key, ascending) > 0) {
+                keys[j + 1] = keys[j];
+                perm[j + 1] = perm[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            perm[j + 1] = p;
+            SortStats.writes(i - j);
+        }
+    }
+
+    /**
+     * Sorts keys using Shell sort, moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void shellSort(double[] keys, int[] perm, boolean ascending) {
+        int n = keys.length;
+        for (int g = largestGap(n); g >= 0; g--) {
+            int gap = SHELL_GAPS[g];
+            for (int i = gap; i < n; i++) {
+                double key = keys[i];
+                int p = perm[i];
+                int j = i;
+                while (j >= gap && compareKeys(keys[j - gap], key, ascending) > 0) {
+                    keys[j] = keys[j - gap];
+                    perm[j] = perm[j - gap];
+                    j -= gap;
+                }
+                keys[j] = key;
+                perm[j] = p;
+                SortStats.writes((i - j) / gap + 1);
+            }
+        }
+    }
+
+    /**
+     * Sorts keys using selection sort, moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void selectionSort(double[] keys, int[] perm, boolean ascending) {
+        int n = keys.length;
+        for (int i = 0; i < n - 1; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < n; j++) {
+                if (compareKeys(keys[j], keys[minIndex], ascending) < 0) {
+                    minIndex = j;
+                }
+            }
+            swap(keys, perm, i, minIndex);
+        }
+    }
+
+    /**
+     * Sorts keys using a stable merge sort, moving perm with them. The two
+     * scratch arrays are allocated once per call.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void mergeSort(double[] keys, int[] perm, boolean ascending) {
+        if (keys == null || keys.length < 2)
+            return;
+        SortStats.allocation(2 * keys.length);
+        mergeSort(keys, perm, new double[keys.length], new int[keys.length], 0, keys.length - 1, ascending);
+    }
+
+    private static void mergeSort(double[] keys, int[] perm, double[] keyBuffer, int[] permBuffer, int l, int r,
+            boolean ascending) {
+        if (l < r) {
+            SortStats.enter();
+            int m = l + (r - l) / 2;
+            mergeSort(keys, perm, keyBuffer, permBuffer, l, m, ascending);
+            mergeSort(keys, perm, keyBuffer, permBuffer, m + 1, r, ascending);
+            if (compareKeys(keys[m], keys[m + 1], ascending) > 0) {
+                merge(keys, perm, keyBuffer, permBuffer, l, m, r, ascending);
+            }
+            SortStats.exit();
+        }
+    }
+
+    private static void merge(double[] keys, int[] perm, double[] keyBuffer, int[] permBuffer, int l, int m, int r,
+            boolean ascending) {
+        // Only the left half is copied out; see merge(T[], T[], ...)
+        System.arraycopy(keys, l, keyBuffer, l, m + 1 - l);
+        System.arraycopy(perm, l, permBuffer, l, m + 1 - l);
+
+        int i = l, j = m + 1, k = l;
+        while (i <= m && j <= r) {
+            if (compareKeys(keyBuffer[i], keys[j], ascending) <= 0) {
+                keys[k] = keyBuffer[i];
+                perm[k++] = permBuffer[i++];
+            } else {
+                keys[k] = keys[j];
+                perm[k++] = perm[j++];
+            }
+        }
+        while (i <= m) {
+            keys[k] = keyBuffer[i];
+            perm[k++] = permBuffer[i++];
+        }
+        SortStats.writes((m + 1 - l) + (k - l));
+    }
+
+    /**
+     * Sorts keys using the introsort of {@link #quickSort(Object[], Comparator)},
+     * moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void quickSort(double[] keys, int[] perm, boolean ascending) {
+        if (keys == null || keys.length < 2)
+            return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(keys.length));
+        quickSort(keys, perm, 0, keys.length - 1, depthLimit, ascending);
+    }
+
+    private static void quickSort(double[] keys, int[] perm, int low, int high, int depthLimit, boolean ascending) {
+        SortStats.enter();
+        while (high - low >= INSERTION_SORT_CUTOFF) {
+            if (depthLimit-- == 0) {
+                heapSort(keys, perm, low, high + 1, ascending);
+                SortStats.exit();
+                return;
+            }
+            int p = partition(keys, perm, low, high, ascending);
+            // Recurse into the smaller side and loop on the larger one
+            if (p - low < high - p) {
+                quickSort(keys, perm, low, p, depthLimit, ascending);
+                low = p + 1;
+            } else {
+                quickSort(keys, perm, p + 1, high, depthLimit, ascending);
+                high = p;
+            }
+        }
+        insertionSort(keys, perm, low, high, ascending);
+        SortStats.exit();
+    }
+
+    /**
+     * Hoare partition around a median-of-three (or ninther) pivot; see
+     * partition(T[], ...).
+     */
+    private static int partition(double[] keys, int[] perm, int low, int high, boolean ascending) {
+        int mid = low + (high - low) / 2;
+        int pivotIndex;
+        if (high - low > NINTHER_THRESHOLD) {
+            int d = (high - low) / 8;
+            pivotIndex = median(keys,
+                    median(keys, low, low + d, low + 2 * d, ascending),
+                    median(keys, mid - d, mid, mid + d, ascending),
+                    median(keys, high - 2 * d, high - d, high, ascending), ascending);
+        } else {
+            pivotIndex = median(keys, low, mid, high, ascending);
+        }
+        swap(keys, perm, low, pivotIndex);
+        double pivot = keys[low];
+
+        int i = low - 1, j = high + 1;
+        while (true) {
+            do {
+                i++;
+            } while (compareKeys(keys[i], pivot, ascending) < 0);
+            do {
+                j--;
+            } while (compareKeys(keys[j], pivot, ascending) > 0);
+            if (i >= j)
+                return j;
+            swap(keys, perm, i, j);
+        }
+    }
+
+    /**
+     * Returns the index of the median of keys[a], keys[b] and keys[c].
+     */
+    private static int median(double[] keys, int a, int b, int c, boolean ascending) {
+        if (compareKeys(keys[a], keys[b], ascending) < 0) {
+            if (compareKeys(keys[b], keys[c], ascending) < 0)
+                return b;
+            return compareKeys(keys[a], keys[c], ascending) < 0 ? c : a;
+        }
+        if (compareKeys(keys[a], keys[c], ascending) < 0)
+            return a;
+        return compareKeys(keys[b], keys[c], ascending) < 0 ? c : b;
+    }
+
+    /**
+     * Sorts keys using the bottom-up binary heapsort of
+     * {@link #heapSort(Object[], Comparator)}, moving perm with them.
+     *
+     * @param keys      keys to be sorted
+     * @param perm      values parallel to keys, e.g. row numbers
+     * @param ascending true for ascending order, false for descending
+     */
+    public static void heapSort(double[] keys, int[] perm, boolean ascending) {
+        heapSort(keys, perm, 0, keys.length, ascending);
+    }
+
+    /**
+     * Heap sorts keys[from, to), root at keys[from].
+     */
+    private static void heapSort(double[] keys, int[] perm, int from, int to, boolean ascending) {
+        int n = to - from;
+
+        for (int i = internalNodes(n, 2) - 1; i >= 0; i--) {
+            siftDown(keys, perm, from, n, i, ascending);
+        }
+
+        for (int end = n - 1; end > 0; end--) {
+            double lastKey = keys[from + end];
+            int last = perm[from + end];
+            keys[from + end] = keys[from];
+            perm[from + end] = perm[from];
+
+            // Move the hole at the root down to a leaf along the larger children
+            int hole = 0;
+            int moves = 2;
+            int parents = internalNodes(end, 2);
+            while (hole < parents) {
+                int child = largerChild(keys, from, end, 2 * hole + 1, ascending);
+                keys[from + hole] = keys[from + child];
+                perm[from + hole] = perm[from + child];
+                hole = child;
+                moves++;
+            }
+            // Sift the displaced element back up from the leaf
+            while (hole > 0) {
+                int parent = (hole - 1) / 2;
+                if (compareKeys(keys[from + parent], lastKey, ascending) >= 0)
+                    break;
+                keys[from + hole] = keys[from + parent];
+                perm[from + hole] = perm[from + parent];
+                hole = parent;
+                moves++;
+            }
+            keys[from + hole] = lastKey;
+            perm[from + hole] = last;
+            SortStats.writes(moves);
+        }
+    }
+
+    private static void siftDown(double[] keys, int[] perm, int from, int n, int i, boolean ascending) {
+        double key = keys[from + i];
+        int p = perm[from + i];
+        int start = i, moves = 0;
+        int parents = internalNodes(n, 2);
+        while (i < parents) {
+            int child = largerChild(keys, from, n, 2 * i + 1, ascending);
+            if (compareKeys(keys[from + child], key, ascending) <= 0)
+                break;
+            keys[from + i] = keys[from + child];
+            perm[from + i] = perm[from + child];
+            i = child;
+            moves++;
+        }
+        if (i != start) {
+            keys[from + i] = key;
+            perm[from + i] = p;
+            SortStats.writes(moves + 1);
+        }
+    }
+
+    /**
+     * Returns first or its right sibling, whichever key sorts later, in a
+     * binary heap of n elements.
+     */
+    private static int largerChild(double[] keys, int from, int n, int first, boolean ascending) {
+        if (first + 1 < n && compareKeys(keys[from + first + 1], keys[from + first], ascending) > 0) {
+            return first + 1;
+        }
+        return first;
+    }
+
+    /**
+     * Compares two keys in the given direction.
+     *
+     * @param a         first key
+     * @param b         second key
+     * @param ascending true for ascending order, false for descending
+     * @return negative if a sorts before b, positive if after, 0 if equal
+     */
+    private static int compareKeys(double a, double b, boolean ascending) {
+        SortStats.comparison();
+        return ascending ? Double.compare(a, b) : Double.compare(b, a);
+    }
+
+    // ----------------- Multi-select (order statistics over an index) -----------------
+    // Finds the elements at a set of ranks without sorting the rest. Rows are
+    // ordered by key (descending) and then by row number, so every rank holds
+    // exactly the row a stable sort would put there.
+
+    /**
+     * Rearranges row indices so that index[r] holds the row of rank r for
+     * every r in ranks, as if index had been stable sorted by key
+     * (descending). Positions not in ranks are left in an unspecified order.
+     * <p>
+     * Quickselect partitions the range and recurses only into the sides that
+     * still contain a requested rank, so k ranks spread evenly over n rows
+     * take about O(n log k) time. The keys are gathered into index order
+     * first so partitioning reads them sequentially. Ranges that partition
+     * badly more than 2 log2(n) times are heap sorted.
+     *
+     * @param index row indices to rearrange
+     * @param keys  key column the indices point into
+     * @param ranks positions to fill, in ascending order without duplicates
+     */
+    public static void multiSelect(int[] index, double[] keys, int[] ranks) {
+        int n = index.length;
+        if (n < 2 || ranks.length == 0)
+            return;
+        double[] rowKeys = new double[n];
+        SortStats.allocation(n);
+        for (int i = 0; i < n; i++) {
+            rowKeys[i] = keys[index[i]];
+        }
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(n));
+        multiSelect(rowKeys, index, 0, n - 1, ranks, 0, ranks.length, depthLimit);
+    }
+
+    private static void multiSelect(double[] keys, int[] rows, int low, int high, int[] ranks,
+            int rankLow, int rankHigh, int depthLimit) {
+        SortStats.enter();
+        while (rankLow < rankHigh) {
+            if (high - low < INSERTION_SORT_CUTOFF) {
+                insertionSortRows(keys, rows, low, high);
+                break;
+            }
+            if (depthLimit-- == 0) {
+                heapSortRows(keys, rows, low, high);
+                break;
+            }
+            int p = partitionRows(keys, rows, low, high);
+            // Ranks up to p are on the left, the rest on the right
+            int split = rankLow;
+            while (split < rankHigh && ranks[split] <= p)
+                split++;
+            multiSelect(keys, rows, low, p, ranks, rankLow, split, depthLimit);
+            low = p + 1;
+            rankLow = split;
+        }
+        SortStats.exit();
+    }
+
+    /**
+     * Hoare partition of keys/rows[low..high] around a median-of-three pivot,
+     * in (key descending, row ascending) order.
+     *
+     * @return p such that positions low..p sort before p+1..high
+     */
+    private static int partitionRows(double[] keys, int[] rows, int low, int high) {
+        int mid = low + (high - low) / 2;
+        int pivotIndex;
+        if (compareRows(keys, rows, low, mid) < 0) {
+            pivotIndex = compareRows(keys, rows, mid, high) < 0 ? mid
+                    : compareRows(keys, rows, low, high) < 0 ? high : low;
+        } else {
+            pivotIndex = compareRows(keys, rows, low, high) < 0 ? low
+                    : compareRows(keys, rows, mid, high) < 0 ? high : mid;
+        }
+        swap(keys, rows, low, pivotIndex);
+        double pivotKey = keys[low];
+        int pivotRow = rows[low];
+
+        int i = low - 1, j = high + 1;
+        while (true) {
+            do {
+                i++;
+            } while (compareRows(keys[i], rows[i], pivotKey, pivotRow) < 0);
+            do {
+                j--;
+            } while (compareRows(keys[j], rows[j], pivotKey, pivotRow) > 0);
+            if (i >= j)
+                return j;
+            swap(keys, rows, i, j);
+        }
+    }
+
+    private static void insertionSortRows(double[] keys, int[] rows, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            double key = keys[i];
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= low && compareRows(keys[j], rows[j], key, row) > 0) {
+                keys[j + 1] = keys[j];
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            rows[j + 1] = row;
+            SortStats.writes(i - j);
+        }
+    }
+
+    private static void heapSortRows(double[] keys, int[] rows, int low, int high) {
+        int n = high - low + 1;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDownRows(keys, rows, low, n, i);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            swap(keys, rows, low, low + i);
+            siftDownRows(keys, rows, low, i, 0);
+        }
+    }
+
+    private static void siftDownRows(double[] keys, int[] rows, int from, int n, int i) {
+        double key = keys[from + i];
+        int row = rows[from + i];
+        int child, moves = 1;
+        while ((child = 2 * i + 1) < n) {
+            if (child + 1 < n && compareRows(keys, rows, from + child + 1, from + child) > 0)
+                child++;
+            if (compareRows(keys[from + child], rows[from + child], key, row) <= 0)
+                break;
+            keys[from + i] = keys[from + child];
+            rows[from + i] = rows[from + child];
+            i = child;
+            moves++;
+        }
+        keys[from + i] = key;
+        rows[from + i] = row;
+        SortStats.writes(moves);
+    }
+
+    /**
+     * Compares two (key, row) pairs by key (descending), then by row number,
+     * which is the order a stable sort of the identity index produces.
+     */
+    private static int compareRows(double keyA, int rowA, double keyB, int rowB) {
+        int c = compareKeys(keyA, keyB);
+        return c != 0 ? c : Integer.compare(rowA, rowB);
+    }
+
+    private static int compareRows(double[] keys, int[] rows, int a, int b) {
+        return compareRows(keys[a], rows[a], keys[b], rows[b]);
+    }
+
+    // ----------------- RadixSort (IEEE-754 key bits) -----------------
+    // LSD radix sort on the bit patterns of double keys. Each key is mapped to
+    // a long whose unsigned order is the sort order, and the (key, index)
+    // pairs are then distributed one byte at a time, so no comparisons are
+    // made. The sort is stable and keys are ordered descending, like the
+    // Shape comparators.
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int RADIX_PASSES = Long.SIZE / RADIX_BITS;
+
+    /**
+     * Maps a double to a long whose unsigned order is the descending key
+     * order: larger keys map to smaller values.
+     * Like Double.compare, -0.0 sorts below 0.0 and NaN above everything.
+     *
+     * @param key key to map
+     * @return order-preserving bits of key
+     */
+    public static long sortableKey(double key) {
+        long bits = Double.doubleToLongBits(key);
+        // Ascending unsigned order: flip every bit of negatives, only the sign of positives
+        bits ^= (bits >> 63) | Long.MIN_VALUE;
+        // Descending
+        return ~bits;
+    }
+
+    /**
+     * Sorts keys (descending) using LSD radix sort, moving arr alongside.
+     *
+     * @param keys precomputed sort keys, one per element of arr
+     * @param arr  elements carried along with their keys
+     */
+    public static <T> void radixSort(double[] keys, T[] arr) {
+        int n = keys.length;
+        if (n < 2)
+            return;
+        int[] index = identityIndex(n);
+        SortStats.allocation(n);
+        radixSort(index, keys);
+
+        T[] sortedArr = Arrays.copyOf(arr, n);
+        double[] sortedKeys = new double[n];
+        SortStats.allocation(n);
+        SortStats.allocation(n);
+        for (int i = 0; i < n; i++) {
+            sortedArr[i] = arr[index[i]];
+            sortedKeys[i] = keys[index[i]];
+        }
+        System.arraycopy(sortedArr, 0, arr, 0, n);
+        System.arraycopy(sortedKeys, 0, keys, 0, n);
+        SortStats.writes(2L * n);
+    }
+
+    /**
+     * Sorts row indices by their keys (descending) using LSD radix sort.
+     *
+     * @param index row indices to be sorted
+     * @param keys  key column the indices point into
+     */
+    public static void radixSort(int[] index, double[] keys) {
+        int n = index.length;
+        if (n < 2)
+            return;
+        long[] bits = new long[n];
+        SortStats.allocation(n);
+        for (int i = 0; i < n; i++) {
+            bits[i] = sortableKey(keys[index[i]]);
+        }
+
+        // One pass over the data builds the histogram of every byte
+        int[][] counts = new int[RADIX_PASSES][RADIX];
+        SortStats.allocation(RADIX_PASSES * RADIX);
+        for (int i = 0; i < n; i++) {
+            long b = bits[i];
+            for (int pass = 0; pass < RADIX_PASSES; pass++) {
+                counts[pass][(int) (b >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+            }
+        }
+
+        long[] bitsBuffer = new long[n];
+        int[] indexBuffer = new int[n];
+        SortStats.allocation(n);
+        SortStats.allocation(n);
+        long[] fromBits = bits, toBits = bitsBuffer;
+        int[] fromIndex = index, toIndex = indexBuffer;
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            int[] count = counts[pass];
+            int shift = pass * RADIX_BITS;
+            // A byte shared by every key does not change the order
+            if (count[(int) (fromBits[0] >>> shift) & (RADIX - 1)] == n)
+                continue;
+
+            // Counts to starting offsets
+            int offset = 0;
+            for (int d = 0; d < RADIX; d++) {
+                int c = count[d];
+                count[d] = offset;
+                offset += c;
+            }
+            for (int i = 0; i < n; i++) {
+                long b = fromBits[i];
+                int dest = count[(int) (b >>> shift) & (RADIX - 1)]++;
+                toBits[dest] = b;
+                toIndex[dest] = fromIndex[i];
+            }
+            SortStats.writes(n);
+
+            long[] tb = fromBits;
+            fromBits = toBits;
+            toBits = tb;
+            int[] ti = fromIndex;
+            fromIndex = toIndex;
+            toIndex = ti;
+        }
+        if (fromIndex != index) {
+            System.arraycopy(fromIndex, 0, index, 0, n);
+            SortStats.writes(n);
+        }
+    }
+
+    // ----------------- PackedSort (composite keys packed into 128 bits) -----------------
+    // Orders rows by several key columns at once (the first column, ties
+    // broken by the second, and so on, then by row number) by packing each
+    // row's keys into one 128-bit key. Key i is stored as keys[2 * i] (high
+    // word) and keys[2 * i + 1] (low word), and keys compare as unsigned
+    // numbers, so every algorithm below compares one key instead of calling
+    // a comparator per column. Row numbers make every key distinct, so all of
+    // them give the same order, the one a stable sort by the columns would.
+
+    /**
+     * Packs key columns into 128-bit keys, one per row, whose ascending
+     * unsigned order is: the first column descending (like the Shape
+     * comparators), ties by the second column descending, and so on, and
+     * finally by row number.
+     * <p>
+     * Each column after the first is replaced by the dense rank of its values
+     * (0 for the largest), which needs only as many bits as it has distinct
+     * values, and the row number takes log2(n) bits. The first column keeps
+     * its 64 order-preserving bits (see {@link #sortableKey(double)}) when
+     * the rest fits in the low word; otherwise it is ranked too. Ranks are
+     * below 2^31, so four fields always fit.
+     *
+     * @param columns key columns in priority order, at most three, each with
+     *                at least n entries
+     * @param n       number of rows
+     * @return 2 * n words: the high and low word of each row's key
+     */
+    public static long[] packKeys(double[][] columns, int n) {
+        if (columns.length == 0 || columns.length > 3) {
+            throw new IllegalArgumentException("Between one and three key columns are needed: " + columns.length);
+        }
+        int[][] ranks = new int[columns.length][];
+        int[] widths = new int[columns.length];
+        int rowWidth = bitWidth(n);
+        int lowWidth = rowWidth;
+        for (int c = 1; c < columns.length; c++) {
+            ranks[c] = denseRanks(columns[c], n);
+            widths[c] = bitWidth(maxRank(ranks[c]) + 1);
+            lowWidth += widths[c];
+        }
+        boolean rawFirst = lowWidth <= Long.SIZE;
+        if (!rawFirst) {
+            ranks[0] = denseRanks(columns[0], n);
+            widths[0] = bitWidth(maxRank(ranks[0]) + 1);
+        }
+
+        long[] keys = new long[2 * n];
+        SortStats.allocation(2L * n);
+        for (int i = 0; i < n; i++) {
+            long hi = rawFirst ? sortableKey(columns[0][i]) : 0, lo = 0;
+            for (int c = rawFirst ? 1 : 0; c <= columns.length; c++) {
+                int w = c < columns.length ? widths[c] : rowWidth;
+                if (w > 0) {
+                    // Append the field, shifting the whole 128 bits unless the first column fills hi
+                    if (!rawFirst) {
+                        hi = (hi << w) | (lo >>> (Long.SIZE - w));
+                    }
+                    lo = (lo << w) | (c < columns.length ? ranks[c][i] : i);
+                }
+            }
+            keys[2 * i] = hi;
+            keys[2 * i + 1] = lo;
+        }
+        return keys;
+    }
+
+    /**
+     * Returns the dense rank of each of the first n keys: 0 for the largest,
+     * the same rank for keys Double.compare treats as equal.
+     */
+    private static int[] denseRanks(double[] keys, int n) {
+        int[] index = identityIndex(n);
+        radixSort(index, keys);
+        int[] ranks = new int[n];
+        SortStats.allocation(2L * n);
+        int rank = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && Double.compare(keys[index[i - 1]], keys[index[i]]) != 0) {
+                rank++;
+            }
+            ranks[index[i]] = rank;
+        }
+        return ranks;
+    }
+
+    private static int maxRank(int[] ranks) {
+        int max = 0;
+        for (int r : ranks) {
+            max = Math.max(max, r);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of bits needed for the values 0 .. count - 1.
+     */
+    private static int bitWidth(int count) {
+        return count < 2 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(count - 1);
+    }
+
+    /**
+     * Sorts packed keys (see {@link #packKeys}) using bubble sort, moving perm
+     * with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void bubbleSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        boolean swapped;
+
+        for (int i = 0; i < n - 1; i++) {
+            swapped = false;
+
+            for (int j = 0; j < n - i - 1; j++) {
+                if (comparePacked(keys, j, j + 1) > 0) {
+                    swapPacked(keys, perm, j, j + 1);
+                    swapped = true;
+                }
+            }
+            if (!swapped)
+                break;
+        }
+    }
+
+    /**
+     * Sorts packed keys using insertion sort, moving perm with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void insertionSort(long[] keys, int[] perm) {
+        insertionSort(keys, perm, 0, perm.length - 1);
+    }
+
+    private static void insertionSort(long[] keys, int[] perm, int low, int high) {
+        for (int i = low + 1; i <= high; i++) {
+            long hi = keys[2 * i], lo = keys[2 * i + 1];
+            int p = perm[i];
+            int j = i - 1;
+            while (j >= low && comparePacked(keys[2 * j], keys[2 * j + 1], hi, lo) > 0) {
+                keys[2 * j + 2] = keys[2 * j];
+                keys[2 * j + 3] = keys[2 * j + 1];
+                perm[j + 1] = perm[j];
+                j--;
+            }
+            keys[2 * j + 2] = hi;
+            keys[2 * j + 3] = lo;
+            perm[j + 1] = p;
+            SortStats.writes(i - j);
+        }
+    }
+
+    /**
+     * Sorts packed keys using Shell sort, moving perm with them. As every
+     * packed key is distinct, the order is the same as the stable sorts'.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void shellSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        for (int g = largestGap(n); g >= 0; g--) {
+            int gap = SHELL_GAPS[g];
+            for (int i = gap; i < n; i++) {
+                long hi = keys[2 * i], lo = keys[2 * i + 1];
+                int p = perm[i];
+                int j = i;
+                while (j >= gap && comparePacked(keys[2 * (j - gap)], keys[2 * (j - gap) + 1], hi, lo) > 0) {
+                    keys[2 * j] = keys[2 * (j - gap)];
+                    keys[2 * j + 1] = keys[2 * (j - gap) + 1];
+                    perm[j] = perm[j - gap];
+                    j -= gap;
+                }
+                keys[2 * j] = hi;
+                keys[2 * j + 1] = lo;
+                perm[j] = p;
+                SortStats.writes((i - j) / gap + 1);
+            }
+        }
+    }
+
+    /**
+     * Sorts packed keys using selection sort, moving perm with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void selectionSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        for (int i = 0; i < n - 1; i++) {
+            int minIndex = i;
+            for (int j = i + 1; j < n; j++) {
+                if (comparePacked(keys, j, minIndex) < 0) {
+                    minIndex = j;
+                }
+            }
+            swapPacked(keys, perm, i, minIndex);
+        }
+    }
+
+    /**
+     * Sorts packed keys using merge sort, moving perm with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void mergeSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        if (n < 2)
+            return;
+        SortStats.allocation(3L * n);
+        mergeSort(keys, perm, new long[2 * n], new int[n], 0, n - 1);
+    }
+
+    private static void mergeSort(long[] keys, int[] perm, long[] keyBuffer, int[] permBuffer, int l, int r) {
+        if (l < r) {
+            SortStats.enter();
+            int m = l + (r - l) / 2;
+            mergeSort(keys, perm, keyBuffer, permBuffer, l, m);
+            mergeSort(keys, perm, keyBuffer, permBuffer, m + 1, r);
+            if (comparePacked(keys, m, m + 1) > 0) {
+                merge(keys, perm, keyBuffer, permBuffer, l, m, r);
+            }
+            SortStats.exit();
+        }
+    }
+
+    private static void merge(long[] keys, int[] perm, long[] keyBuffer, int[] permBuffer, int l, int m, int r) {
+        // Only the left half is copied out; see merge(T[], T[], ...)
+        System.arraycopy(keys, 2 * l, keyBuffer, 2 * l, 2 * (m + 1 - l));
+        System.arraycopy(perm, l, permBuffer, l, m + 1 - l);
+
+        int i = l, j = m + 1, k = l;
+        while (i <= m && j <= r) {
+            if (comparePacked(keyBuffer[2 * i], keyBuffer[2 * i + 1], keys[2 * j], keys[2 * j + 1]) <= 0) {
+                keys[2 * k] = keyBuffer[2 * i];
+                keys[2 * k + 1] = keyBuffer[2 * i + 1];
+                perm[k++] = permBuffer[i++];
+            } else {
+                keys[2 * k] = keys[2 * j];
+                keys[2 * k + 1] = keys[2 * j + 1];
+                perm[k++] = perm[j++];
+            }
+        }
+        while (i <= m) {
+            keys[2 * k] = keyBuffer[2 * i];
+            keys[2 * k + 1] = keyBuffer[2 * i + 1];
+            perm[k++] = permBuffer[i++];
+        }
+        SortStats.writes((m + 1 - l) + (k - l));
+    }
+
+    /**
+     * Sorts packed keys using the introsort of
+     * {@link #quickSort(Object[], Comparator)}, moving perm with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void quickSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        if (n < 2)
+            return;
+        int depthLimit = 2 * (31 - Integer.numberOfLeadingZeros(n));
+        quickSort(keys, perm, 0, n - 1, depthLimit);
+    }
+
+    private static void quickSort(long[] keys, int[] perm, int low, int high, int depthLimit) {
+        SortStats.enter();
+        while (high - low >= INSERTION_SORT_CUTOFF) {
+            if (depthLimit-- == 0) {
+                heapSort(keys, perm, low, high + 1);
+                SortStats.exit();
+                return;
+            }
+            int p = partition(keys, perm, low, high);
+            // Recurse into the smaller side and loop on the larger one
+            if (p - low < high - p) {
+                quickSort(keys, perm, low, p, depthLimit);
+                low = p + 1;
+            } else {
+                quickSort(keys, perm, p + 1, high, depthLimit);
+                high = p;
+            }
+        }
+        insertionSort(keys, perm, low, high);
+        SortStats.exit();
+    }
+
+    /**
+     * Hoare partition around a median-of-three (or ninther) pivot; see
+     * partition(T[], ...).
+     */
+    private static int partition(long[] keys, int[] perm, int low, int high) {
+        int mid = low + (high - low) / 2;
+        int pivotIndex;
+        if (high - low > NINTHER_THRESHOLD) {
+            int d = (high - low) / 8;
+            pivotIndex = median(keys,
+                    median(keys, low, low + d, low + 2 * d),
+                    median(keys, mid - d, mid, mid + d),
+                    median(keys, high - 2 * d, high - d, high));
+        } else {
+            pivotIndex = median(keys, low, mid, high);
+        }
+        swapPacked(keys, perm, low, pivotIndex);
+        long pivotHi = keys[2 * low], pivotLo = keys[2 * low + 1];
+
+        int i = low - 1, j = high + 1;
+        while (true) {
+            do {
+                i++;
+            } while (comparePacked(keys[2 * i], keys[2 * i + 1], pivotHi, pivotLo) < 0);
+            do {
+                j--;
+            } while (comparePacked(keys[2 * j], keys[2 * j + 1], pivotHi, pivotLo) > 0);
+            if (i >= j)
+                return j;
+            swapPacked(keys, perm, i, j);
+        }
+    }
+
+    /**
+     * Returns the index of the median of packed keys a, b and c.
+     */
+    private static int median(long[] keys, int a, int b, int c) {
+        if (comparePacked(keys, a, b) < 0) {
+            if (comparePacked(keys, b, c) < 0)
+                return b;
+            return comparePacked(keys, a, c) < 0 ? c : a;
+        }
+        if (comparePacked(keys, a, c) < 0)
+            return a;
+        return comparePacked(keys, b, c) < 0 ? c : b;
+    }
+
+    /**
+     * Sorts packed keys using the bottom-up binary heapsort of
+     * {@link #heapSort(Object[], Comparator)}, moving perm with them.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void heapSort(long[] keys, int[] perm) {
+        heapSort(keys, perm, 0, perm.length);
+    }
+
+    /**
+     * Heap sorts packed keys [from, to), root at key from.
+     */
+    private static void heapSort(long[] keys, int[] perm, int from, int to) {
+        int n = to - from;
+
+        for (int i = internalNodes(n, 2) - 1; i >= 0; i--) {
+            siftDown(keys, perm, from, n, i);
+        }
+
+        for (int end = n - 1; end > 0; end--) {
+            int e = from + end;
+            long lastHi = keys[2 * e], lastLo = keys[2 * e + 1];
+            int last = perm[e];
+            moveKey(keys, perm, from, e);
+
+            // Move the hole at the root down to a leaf along the larger children
+            int hole = 0;
+            int moves = 2;
+            int parents = internalNodes(end, 2);
+            while (hole < parents) {
+                int child = largerChild(keys, from, end, 2 * hole + 1);
+                moveKey(keys, perm, from + child, from + hole);
+                hole = child;
+                moves++;
+            }
+            // Sift the displaced key back up from the leaf
+            while (hole > 0) {
+                int parent = (hole - 1) / 2;
+                int p = from + parent;
+                if (comparePacked(keys[2 * p], keys[2 * p + 1], lastHi, lastLo) >= 0)
+                    break;
+                moveKey(keys, perm, p, from + hole);
+                hole = parent;
+                moves++;
+            }
+            int h = from + hole;
+            keys[2 * h] = lastHi;
+            keys[2 * h + 1] = lastLo;
+            perm[h] = last;
+            SortStats.writes(moves);
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] perm, int from, int n, int i) {
+        int s = from + i;
+        long hi = keys[2 * s], lo = keys[2 * s + 1];
+        int p = perm[s];
+        int start = i, moves = 0;
+        int parents = internalNodes(n, 2);
+        while (i < parents) {
+            int child = largerChild(keys, from, n, 2 * i + 1);
+            int c = from + child;
+            if (comparePacked(keys[2 * c], keys[2 * c + 1], hi, lo) <= 0)
+                break;
+            moveKey(keys, perm, c, from + i);
+            i = child;
+            moves++;
+        }
+        if (i != start) {
+            int h = from + i;
+            keys[2 * h] = hi;
+            keys[2 * h + 1] = lo;
+            perm[h] = p;
+            SortStats.writes(moves + 1);
+        }
+    }
+
+    /**
+     * Returns first or its right sibling, whichever key is larger, in a
+     * binary heap of n packed keys starting at from.
+     */
+    private static int largerChild(long[] keys, int from, int n, int first) {
+        if (first + 1 < n && comparePacked(keys, from + first + 1, from + first) > 0) {
+            return first + 1;
+        }
+        return first;
+    }
+
+    /**
+     * Sorts packed keys using LSD radix sort on their 16 bytes, moving perm
+     * with them. Bytes shared by every key, such as the unused high bits of
+     * a short key, cost no pass.
+     *
+     * @param keys packed keys, two words per key
+     * @param perm values parallel to the keys, e.g. row numbers
+     */
+    public static void radixSort(long[] keys, int[] perm) {
+        int n = perm.length;
+        if (n < 2)
+            return;
+        // One pass over the data builds the histogram of every byte, low word first
+        int[][] counts = new int[2 * RADIX_PASSES][RADIX];
+        SortStats.allocation(2 * RADIX_PASSES * RADIX);
+        for (int i = 0; i < n; i++) {
+            long hi = keys[2 * i], lo = keys[2 * i + 1];
+            for (int pass = 0; pass < RADIX_PASSES; pass++) {
+                counts[pass][(int) (lo >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+                counts[RADIX_PASSES + pass][(int) (hi >>> (pass * RADIX_BITS)) & (RADIX - 1)]++;
+            }
+        }
+
+        long[] keyBuffer = new long[2 * n];
+        int[] permBuffer = new int[n];
+        SortStats.allocation(3L * n);
+        long[] fromKeys = keys, toKeys = keyBuffer;
+        int[] fromPerm = perm, toPerm = permBuffer;
+        for (int pass = 0; pass < 2 * RADIX_PASSES; pass++) {
+            int[] count = counts[pass];
+            int word = pass < RADIX_PASSES ? 1 : 0;
+            int shift = (pass % RADIX_PASSES) * RADIX_BITS;
+            // A byte shared by every key does not change the order
+            if (count[(int) (fromKeys[word] >>> shift) & (RADIX - 1)] == n)
+                continue;
+
+            int offset = 0;
+            for (int d = 0; d < RADIX; d++) {
+                int c = count[d];
+                count[d] = offset;
+                offset += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int dest = count[(int) (fromKeys[2 * i + word] >>> shift) & (RADIX - 1)]++;
+                toKeys[2 * dest] = fromKeys[2 * i];
+                toKeys[2 * dest + 1] = fromKeys[2 * i + 1];
+                toPerm[dest] = fromPerm[i];
+            }
+            SortStats.writes(n);
+
+            long[] tk = fromKeys;
+            fromKeys = toKeys;
+            toKeys = tk;
+            int[] tp = fromPerm;
+            fromPerm = toPerm;
+            toPerm = tp;
+        }
+        if (fromPerm != perm) {
+            System.arraycopy(fromKeys, 0, keys, 0, 2 * n);
+            System.arraycopy(fromPerm, 0, perm, 0, n);
+            SortStats.writes(n);
+        }
+    }
+
+    /**
+     * Compares packed keys i and j as unsigned 128-bit numbers.
+     */
+    private static int comparePacked(long[] keys, int i, int j) {
+        return comparePacked(keys[2 * i], keys[2 * i + 1], keys[2 * j], keys[2 * j + 1]);
+    }
+
+    private static int comparePacked(long hiA, long loA, long hiB, long loB) {
+        SortStats.comparison();
+        int c = Long.compareUnsigned(hiA, hiB);
+        return c != 0 ? c : Long.compareUnsigned(loA, loB);
+    }
+
+    /**
+     * Copies packed key from (and its perm entry) over key to.
+     */
+    private static void moveKey(long[] keys, int[] perm, int from, int to) {
+        keys[2 * to] = keys[2 * from];
+        keys[2 * to + 1] = keys[2 * from + 1];
+        perm[to] = perm[from];
+    }
+
+    private static void swapPacked(long[] keys, int[] perm, int i, int j) {
+        if (i != j) {
+            SortStats.swap();
+            long hi = keys[2 * i], lo = keys[2 * i + 1];
+            keys[2 * i] = keys[2 * j];
+            keys[2 * i + 1] = keys[2 * j + 1];
+            keys[2 * j] = hi;
+            keys[2 * j + 1] = lo;
+            int temp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = temp;
+        }
+    }
+
+    /**
+     * Compares two precomputed keys in descending order (larger key first),
+     * in the total order of Double.compare, as VolumeCompare does. This
+     * differs from BaseAreaCompare and Shape.compareTo, which compare with
+     * {@code <} and {@code >}, only for -0.0 (after 0.0 here, equal there)
+     * and NaN (first here, equal to every key there). Shape dimensions are
+     * positive and finite, so the two orders agree on loaded shapes. The
+     * radix and packed sorts use the same total order.
+     *
+     * @param a first key
+     * @param b second key
+     * @return negative if a sorts before b, positive if after, 0 if equal
+     */
+    private static int compareKeys(double a, double b) {
+        SortStats.comparison();
+        return Double.compare(b, a);
+    }
+
+    /**
+     * Swaps two keys and the elements carried with them.
+     *
+     * @param keys key array
+     * @param arr  element array parallel to keys
+     * @param i    first index
+     * @param j    second index
+     */
+    private static <T> void swap(double[] keys, T[] arr, int i, int j) {
+        if (i != j) {
+            SortStats.swap();
+            double k = keys[i];
+            keys[i] = keys[j];
+            keys[j] = k;
+            T temp = arr[i];
+            arr[i] = arr[j];
+            arr[j] = temp;
+        }
+    }
+
+    /**
+     * Swaps two keys and the row indices carried with them.
+     *
+     * @param keys key array
+     * @param rows row array parallel to keys
+     * @param i    first index
+     * @param j    second index
+     */
+    private static void swap(double[] keys, int[] rows, int i, int j) {
+        if (i != j) {
+            SortStats.swap();
+            double k = keys[i];
+            keys[i] = keys[j];
+            keys[j] = k;
+            int temp = rows[i];
+            rows[i] = rows[j];
+            rows[j] = temp;
         }
     }
 
@@ -290,6 +2402,7 @@ public class Sort {
      */
     private static <T> void swap(T[] arr, int i, int j) {
         if (i != j) {
+            SortStats.swap();
             T temp = arr[i];
             arr[i] = arr[j];
             arr[j] = temp;
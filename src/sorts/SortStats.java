@@ -0,0 +1,169 @@
+package sorts;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in operation counters for the algorithms in Sort.
+ * <p>
+ * While counting is enabled, Sort records comparator (and key) comparisons,
+ * swaps, element writes (moves and copies, including swaps as two writes),
+ * scratch allocations and the deepest recursion of each sort. When it is
+ * disabled, comparators are passed through unwrapped and every hook returns
+ * after one static flag test, once per swap, merge, pass or call rather than
+ * once per element written. Counters are safe to update from the parallel
+ * merge sort's worker threads; recursion depth is tracked per thread.
+ * <p>
+ * Typical use: {@code SortStats.setEnabled(true); SortStats.reset();} sort,
+ * then read the getters or {@link #summary()}.
+ *
+ * @author NJobse
+ */
+public final class SortStats {
+    private static boolean enabled;
+
+    private static final LongAdder comparisons = new LongAdder();
+    private static final LongAdder swaps = new LongAdder();
+    private static final LongAdder writes = new LongAdder();
+    private static final LongAdder allocations = new LongAdder();
+    private static final LongAdder allocatedElements = new LongAdder();
+    private static final AtomicInteger maxDepth = new AtomicInteger();
+    private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    private SortStats() {
+    }
+
+    /**
+     * Turns counting on or off. Set it before a sort starts, not during one.
+     *
+     * @param on true to count
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears every counter.
+     */
+    public static void reset() {
+        comparisons.reset();
+        swaps.reset();
+        writes.reset();
+        allocations.reset();
+        allocatedElements.reset();
+        maxDepth.set(0);
+        depth.get()[0] = 0;
+    }
+
+    public static long getComparisons() {
+        return comparisons.sum();
+    }
+
+    public static long getSwaps() {
+        return swaps.sum();
+    }
+
+    public static long getWrites() {
+        return writes.sum();
+    }
+
+    public static long getAllocations() {
+        return allocations.sum();
+    }
+
+    public static long getAllocatedElements() {
+        return allocatedElements.sum();
+    }
+
+    public static int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * Returns the counters on one line, for printing after a sort.
+     *
+     * @return counter summary
+     */
+    public static String summary() {
+        return String.format("Comparisons: %,d | Swaps: %,d | Writes: %,d | Scratch: %,d allocation(s), %,d elements"
+                + " | Max depth: %d", getComparisons(), getSwaps(), getWrites(), getAllocations(),
+                getAllocatedElements(), getMaxDepth());
+    }
+
+    // ----------------- Hooks used by Sort -----------------
+
+    /**
+     * Returns a comparator that counts its calls while counting is enabled,
+     * or the comparator itself otherwise.
+     */
+    static <T> Comparator<T> wrap(Comparator<T> comparator) {
+        if (!enabled) {
+            return comparator;
+        }
+        return (a, b) -> {
+            comparisons.increment();
+            return comparator.compare(a, b);
+        };
+    }
+
+    static void comparison() {
+        if (enabled) {
+            comparisons.increment();
+        }
+    }
+
+    static void swap() {
+        if (enabled) {
+            swaps.increment();
+            writes.add(2);
+        }
+    }
+
+    static void writes(long count) {
+        if (enabled) {
+            writes.add(count);
+        }
+    }
+
+    static void allocation(long elements) {
+        if (enabled) {
+            allocations.increment();
+            allocatedElements.add(elements);
+        }
+    }
+
+    /**
+     * Records entry into a recursive call; pair with {@link #exit()}.
+     */
+    static void enter() {
+        enter(1);
+    }
+
+    static void exit() {
+        exit(1);
+    }
+
+    /**
+     * Records entry into levels of recursion at once, for work handed to
+     * another thread partway down a recursion.
+     */
+    static void enter(int levels) {
+        if (enabled) {
+            int d = depth.get()[0] += levels;
+            if (d > maxDepth.get()) {
+                maxDepth.accumulateAndGet(d, Math::max);
+            }
+        }
+    }
+
+    static void exit(int levels) {
+        if (enabled) {
+            depth.get()[0] -= levels;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package tests;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import managers.FileManager;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Benchmark for heapsort by volume (-tV). Compares the textbook recursive
+ * heapsort that Sort used to have against the bottom-up binary heapsort and
+ * its 4-ary and 8-ary variants, reporting the best time and the comparator
+ * calls of each.
+ * <p>
+ * Pass a shape file to sort its shapes, or nothing for 2,000,000 random ones.
+ *
+ * @author NJobse
+ */
+public class BenchmarkHeapSort {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        Shape[] shapes;
+        if (args.length > 0) {
+            shapes = FileManager.loadShapesParallel(args[0]);
+            if (shapes == null || shapes.length < 2) {
+                System.err.println("Error: Need at least two shapes in '" + args[0] + "'.");
+                return;
+            }
+        } else {
+            shapes = new Shape[2_000_000];
+            Random rnd = new Random(5);
+            for (int i = 0; i < shapes.length; i++) {
+                shapes[i] = ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextDouble() * 99,
+                        1 + rnd.nextDouble() * 49);
+            }
+        }
+        // Fill the volume caches so only the sort is measured
+        for (Shape s : shapes) {
+            s.calcVolume();
+        }
+
+        System.out.println("Shapes: " + shapes.length);
+        System.out.printf("%-22s %12s %16s %8s%n", "Heapsort", "Best ms", "Comparisons", "Sorted");
+        VolumeCompare byVolume = new VolumeCompare();
+        run("Textbook (recursive)", shapes, byVolume, arr -> textbookHeapSort(arr, byVolume));
+        run("Bottom-up binary", shapes, byVolume, arr -> Sort.heapSort(arr, byVolume));
+        run("Bottom-up 4-ary", shapes, byVolume, arr -> Sort.heapSort(arr, byVolume, 4));
+        run("Bottom-up 8-ary", shapes, byVolume, arr -> Sort.heapSort(arr, byVolume, 8));
+    }
+
+    /**
+     * Sorts ROUNDS copies of the shapes, then one more copy through a
+     * counting comparator, and prints the best time, the comparisons made and
+     * whether the result is in order.
+     */
+    private static void run(String label, Shape[] shapes, Comparator<Shape> comparator,
+            Consumer<Shape[]> sorter) {
+        double best = Double.MAX_VALUE;
+        Shape[] copy = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            copy = shapes.clone();
+            long start = System.nanoTime();
+            sorter.accept(copy);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000.0);
+        }
+        boolean sorted = true;
+        for (int i = 1; i < copy.length; i++) {
+            sorted &= comparator.compare(copy[i - 1], copy[i]) <= 0;
+        }
+
+        long[] count = new long[1];
+        Comparator<Shape> counting = (a, b) -> {
+            count[0]++;
+            return comparator.compare(a, b);
+        };
+        Shape[] counted = shapes.clone();
+        if (label.startsWith("Textbook")) {
+            textbookHeapSort(counted, counting);
+        } else {
+            Sort.heapSort(counted, counting, label.contains("8") ? 8 : label.contains("4") ? 4 : 2);
+        }
+        System.out.printf("%-22s %12.2f %,16d %8b%n", label, best, count[0], sorted);
+    }
+
+    /**
+     * The heapsort Sort had before the bottom-up rewrite: recursive heapify
+     * comparing against both children at every level.
+     */
+    private static <T> void textbookHeapSort(T[] arr, Comparator<T> comparator) {
+        int n = arr.length;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            heapify(arr, n, i, comparator);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            T temp = arr[0];
+            arr[0] = arr[i];
+            arr[i] = temp;
+            heapify(arr, i, 0, comparator);
+        }
+    }
+
+    private static <T> void heapify(T[] arr, int n, int i, Comparator<T> comparator) {
+        int largest = i;
+        int left = 2 * i + 1;
+        int right = 2 * i + 2;
+        if (left < n && comparator.compare(arr[left], arr[largest]) > 0) {
+            largest = left;
+        }
+        if (right < n && comparator.compare(arr[right], arr[largest]) > 0) {
+            largest = right;
+        }
+        if (largest != i) {
+            T temp = arr[i];
+            arr[i] = arr[largest];
+            arr[largest] = temp;
+            heapify(arr, n, largest, comparator);
+        }
+    }
+}
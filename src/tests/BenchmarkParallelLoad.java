@@ -0,0 +1,97 @@
+package tests;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import managers.FileManager;
+import shapes.ShapeTable;
+
+/**
+ * Scaling benchmark for FileManager.loadShapesParallel and
+ * loadShapeTableParallel. Loads the same file on pools of 1, 2, 4 and N
+ * threads (N = available processors) and prints the best of three runs.
+ * <p>
+ * Usage: BenchmarkParallelLoad [shapeFile | shapeCount]
+ *
+ * @author NJobse
+ */
+public class BenchmarkParallelLoad {
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        String fileName;
+        if (args.length > 0 && !args[0].matches("\\d+")) {
+            fileName = args[0];
+        } else {
+            int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+            File file = File.createTempFile("shapes-bench", ".txt");
+            file.deleteOnExit();
+            writeRandomFile(file, count, new Random(7));
+            fileName = file.getPath();
+        }
+        double megabytes = new File(fileName).length() / (1024.0 * 1024.0);
+
+        TreeSet<Integer> threadCounts = new TreeSet<>();
+        threadCounts.add(1);
+        threadCounts.add(2);
+        threadCounts.add(4);
+        threadCounts.add(Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("File: %s (%.1f MB)%n", fileName, megabytes);
+        System.out.printf("%-8s %-12s %12s %12s %16s%n", "Threads", "Target", "Best ms", "MB/s", "Shapes/s");
+        for (int threads : threadCounts) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                double best = Double.MAX_VALUE;
+                int rows = 0;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    ShapeTable table = FileManager.loadShapeTableParallel(fileName, pool);
+                    best = Math.min(best, (System.nanoTime() - start) / 1_000_000.0);
+                    rows = table == null ? 0 : table.size();
+                }
+                print(threads, "ShapeTable", best, megabytes, rows);
+
+                best = Double.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    rows = FileManager.loadShapesParallel(fileName, pool).length;
+                    best = Math.min(best, (System.nanoTime() - start) / 1_000_000.0);
+                }
+                print(threads, "Shape[]", best, megabytes, rows);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void print(int threads, String target, double ms, double megabytes, int rows) {
+        System.out.printf("%-8d %-12s %12.1f %12.1f %,16.0f%n", threads, target, ms, megabytes / (ms / 1000),
+                rows / (ms / 1000));
+    }
+
+    /**
+     * Writes a shape file with random types and values.
+     *
+     * @param file  destination
+     * @param count number of shapes
+     * @param rnd   random source
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeRandomFile(File file, int count, Random rnd) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            out.write(count + "\n");
+            for (int i = 0; i < count; i++) {
+                out.write(ShapeTable.kindName((byte) rnd.nextInt(7)));
+                out.write(String.format(Locale.ROOT, " %.3f %.3f%n", rnd.nextDouble() * 400000,
+                        rnd.nextDouble() * 40000));
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package tests;
+
+import java.util.Comparator;
+
+import managers.FileManager;
+import shapes.*;
+
+/**
+ * Benchmark for comparison throughput when sorting by base area (-tA) and
+ * volume (-tV). Compares the measurements cached in each Shape
+ * against comparators that recompute the values on every call, the way the
+ * shapes used to, and against recomputing them from the ShapeKind
+ * coefficients.
+ *
+ * @author NJobse
+ */
+public class BenchmarkShapeCompare {
+    private static final int ROUNDS = 10;
+    private static final int PASSES = 2000;
+
+    public static void main(String[] args) {
+        String fileName = args.length > 0 ? args[0] : "res/shapes2.txt";
+        Shape[] shapes = FileManager.loadShapes(fileName);
+        if (shapes == null || shapes.length < 2) {
+            System.err.println("Error: Need at least two shapes in '" + fileName + "'.");
+            return;
+        }
+
+        Comparator<Shape> recomputedArea = (s1, s2) -> {
+            double a1 = recomputeBaseArea(s1), a2 = recomputeBaseArea(s2);
+            if (a1 > a2)
+                return -1;
+            if (a1 < a2)
+                return +1;
+            return 0;
+        };
+        Comparator<Shape> recomputedVolume = (s1, s2) -> Double.compare(recomputeVolume(s2), recomputeVolume(s1));
+        Comparator<Shape> kindArea = (s1, s2) -> Double.compare(s2.getKind().baseArea(s2.getDimension()),
+                s1.getKind().baseArea(s1.getDimension()));
+        Comparator<Shape> kindVolume = (s1, s2) -> Double.compare(kindVolume(s2), kindVolume(s1));
+
+        System.out.println("Shapes: " + shapes.length + " | comparisons per round: "
+                + (long) PASSES * (shapes.length - 1));
+        run("-tA recomputed", shapes, recomputedArea);
+        run("-tA by kind", shapes, kindArea);
+        run("-tA cached", shapes, new BaseAreaCompare());
+        run("-tV recomputed", shapes, recomputedVolume);
+        run("-tV by kind", shapes, kindVolume);
+        run("-tV cached", shapes, new VolumeCompare());
+    }
+
+    /**
+     * Times ROUNDS rounds of adjacent-pair comparisons and prints the best
+     * throughput. The first round doubles as JIT warmup.
+     *
+     * @param label      name printed with the result
+     * @param shapes     shapes to compare
+     * @param comparator comparator under test
+     */
+    private static void run(String label, Shape[] shapes, Comparator<Shape> comparator) {
+        double best = 0;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int p = 0; p < PASSES; p++) {
+                for (int i = 0; i < shapes.length - 1; i++) {
+                    sink += comparator.compare(shapes[i], shapes[i + 1]);
+                }
+            }
+            double ms = (System.nanoTime() - start) / 1_000_000.0;
+            best = Math.max(best, (double) PASSES * (shapes.length - 1) / ms);
+        }
+        // Printing the sink keeps the JIT from discarding the comparisons
+        System.out.printf("%-16s %,14.0f comparisons/ms (sink=%d)%n", label, best, sink);
+    }
+
+    /**
+     * Recomputes the base area from the shape's dimensions (uncached baseline).
+     *
+     * @param s the shape
+     * @return base area
+     */
+    private static double recomputeBaseArea(Shape s) {
+        if (s instanceof Cone) {
+            double r = ((Cone) s).getRadius();
+            return Math.PI * r * r;
+        } else if (s instanceof Cylinder) {
+            double r = ((Cylinder) s).getRadius();
+            return Math.PI * r * r;
+        } else if (s instanceof Pyramid) {
+            double e = ((Pyramid) s).getEdgeLength();
+            return e * e;
+        } else if (s instanceof SquarePrism) {
+            double e = ((SquarePrism) s).getEdgeLength();
+            return e * e;
+        } else if (s instanceof TriangularPrism) {
+            double e = ((TriangularPrism) s).getEdgeLength();
+            return (Math.sqrt(3) / 4) * e * e;
+        } else if (s instanceof PentagonalPrism) {
+            double e = ((PentagonalPrism) s).getEdgeLength();
+            return (5 * e * e * Math.tan(Math.toRadians(54))) / 4;
+        } else if (s instanceof OctagonalPrism) {
+            double e = ((OctagonalPrism) s).getEdgeLength();
+            return 2 * (1 + Math.sqrt(2)) * e * e;
+        }
+        return s.calcBaseArea();
+    }
+
+    /**
+     * Recomputes the volume from the shape's dimensions (uncached baseline).
+     *
+     * @param s the shape
+     * @return volume
+     */
+    private static double recomputeVolume(Shape s) {
+        double v = recomputeBaseArea(s) * s.getHeight();
+        return (s instanceof Cone || s instanceof Pyramid) ? v / 3 : v;
+    }
+
+    /**
+     * Recomputes the volume from the ShapeKind coefficients (uncached).
+     *
+     * @param s the shape
+     * @return volume
+     */
+    private static double kindVolume(Shape s) {
+        ShapeKind kind = s.getKind();
+        return kind.volume(kind.baseArea(s.getDimension()), s.getHeight());
+    }
+}
@@ -0,0 +1,103 @@
+package tests;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import managers.BinaryShapeFile;
+import managers.FileManager;
+import managers.ShapeGenerator;
+import managers.ShapeReader;
+import managers.SortManager;
+import shapes.ShapeTable;
+
+/**
+ * Test class for binary shape files. Converts the text files in res to both
+ * binary layouts and checks that every loader reads bit-identical values,
+ * that SortManager sorts a binary file without being told its format, and
+ * that damaged files are rejected. Prints load times for text and binary.
+ *
+ * @author NJobse
+ */
+public class TestBinaryShapeFile {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Binary shape files");
+        Path rows = Files.createTempFile("shapes", ".bin");
+        Path columns = Files.createTempFile("shapes-columns", ".bin");
+        Path text = Files.createTempFile("shapes-large", ".txt");
+        try {
+            for (String fileName : new String[] { "res/shapes1.txt", "res/shapes2.txt" }) {
+                BinaryShapeFile.convert(fileName, rows.toString(), BinaryShapeFile.Layout.ROWS);
+                BinaryShapeFile.convert(fileName, columns.toString(), BinaryShapeFile.Layout.COLUMNS);
+                ShapeTable expected = FileManager.loadShapeTableFast(fileName);
+                check(fileName + " rows", same(expected, FileManager.loadShapeTableFast(rows.toString())));
+                check(fileName + " columns", same(expected, FileManager.loadShapeTableParallel(columns.toString())));
+                check(fileName + " streamed", same(expected, stream(columns.toString())));
+            }
+
+            System.out.println("\nSorting a binary file by volume with quick sort:");
+            new SortManager(new String[] { "-f" + rows, "-Tv", "-Sq" });
+
+            ShapeGenerator generator = new ShapeGenerator(5);
+            generator.write(text.toString(), 1_000_000);
+            generator.writeBinary(rows.toString(), 1_000_000, BinaryShapeFile.Layout.ROWS);
+            generator.writeBinary(columns.toString(), 1_000_000, BinaryShapeFile.Layout.COLUMNS);
+            System.out.println();
+            ShapeTable expected = timeLoad("Text", text.toString());
+            check("Generated rows", same(expected, timeLoad("Binary rows", rows.toString())));
+            check("Generated columns", same(expected, timeLoad("Binary columns", columns.toString())));
+
+            System.out.println();
+            try (RandomAccessFile file = new RandomAccessFile(columns.toFile(), "rw")) {
+                file.setLength(file.length() - 1);
+            }
+            check("Truncated file is rejected", FileManager.loadShapeTableFast(columns.toString()) == null);
+            try (RandomAccessFile file = new RandomAccessFile(rows.toFile(), "rw")) {
+                file.seek(4);
+                file.write(99);
+            }
+            check("Unknown version is rejected", FileManager.loadShapesParallel(rows.toString()) == null);
+        } finally {
+            Files.deleteIfExists(rows);
+            Files.deleteIfExists(columns);
+            Files.deleteIfExists(text);
+        }
+    }
+
+    private static ShapeTable timeLoad(String label, String fileName) {
+        long start = System.nanoTime();
+        ShapeTable table = FileManager.loadShapeTableFast(fileName);
+        System.out.printf("%-15s %,d shapes loaded in %.2f ms%n", label, table == null ? 0 : table.size(),
+                (System.nanoTime() - start) / 1_000_000.0);
+        return table;
+    }
+
+    private static ShapeTable stream(String fileName) throws IOException {
+        try (ShapeReader reader = new ShapeReader(fileName)) {
+            ShapeTable table = new ShapeTable(reader.getDeclaredCount());
+            while (reader.readRow()) {
+                table.add(reader.getKind(), reader.getHeight(), reader.getDimension());
+            }
+            return table;
+        }
+    }
+
+    private static boolean same(ShapeTable a, ShapeTable b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getKind(i) != b.getKind(i)
+                    || Double.doubleToRawLongBits(a.getHeight(i)) != Double.doubleToRawLongBits(b.getHeight(i))
+                    || Double.doubleToRawLongBits(a.getDimension(i)) != Double.doubleToRawLongBits(b.getDimension(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-40s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+}
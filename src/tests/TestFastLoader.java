@@ -0,0 +1,104 @@
+package tests;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+
+import managers.FileManager;
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Test class for the byte-level loader (FileManager.loadShapesFast).
+ * Checks that it produces bit-identical values to FileManager.loadShapes and
+ * prints the time taken by both loaders.
+ *
+ * @author NJobse
+ */
+public class TestFastLoader {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Byte-level loader");
+        compare("res/shapes1.txt");
+        compare("res/shapes2.txt");
+
+        // Random values in several notations, including ones that need the slow path
+        File file = File.createTempFile("shapes-fuzz", ".txt");
+        file.deleteOnExit();
+        writeFuzzFile(file, 200_000, new Random(42));
+        compare(file.getPath());
+    }
+
+    /**
+     * Loads a file with both loaders and reports any difference.
+     *
+     * @param fileName file to load
+     */
+    private static void compare(String fileName) {
+        long start = System.nanoTime();
+        Shape[] expected = FileManager.loadShapes(fileName);
+        double slowMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        start = System.nanoTime();
+        Shape[] actual = FileManager.loadShapesFast(fileName);
+        double fastMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        int mismatches = 0;
+        if (expected == null || actual == null || expected.length != actual.length) {
+            mismatches = -1;
+        } else {
+            for (int i = 0; i < expected.length; i++) {
+                if (!sameBits(expected[i], actual[i])) {
+                    if (mismatches++ < 5) {
+                        System.out.println("  Mismatch at " + i + ": " + expected[i] + " vs " + actual[i]);
+                    }
+                }
+            }
+        }
+        System.out.printf("%-40s %s | String loader %.2f ms | byte loader %.2f ms%n", fileName,
+                mismatches == 0 ? "PASS" : "FAIL (" + mismatches + ")", slowMs, fastMs);
+    }
+
+    private static boolean sameBits(Shape a, Shape b) {
+        return a.getClass() == b.getClass()
+                && Double.doubleToRawLongBits(a.getHeight()) == Double.doubleToRawLongBits(b.getHeight())
+                && Double.doubleToRawLongBits(a.calcBaseArea()) == Double.doubleToRawLongBits(b.calcBaseArea())
+                && Double.doubleToRawLongBits(a.calcVolume()) == Double.doubleToRawLongBits(b.calcVolume());
+    }
+
+    /**
+     * Writes shapes whose values use plain decimals, long fractions, exponents
+     * and signs, separated by mixed whitespace.
+     *
+     * @param file  destination
+     * @param count number of shapes
+     * @param rnd   random source
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFuzzFile(File file, int count, Random rnd) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+            out.write(count + "\r\n");
+            for (int i = 0; i < count; i++) {
+                out.write(ShapeTable.kindName((byte) rnd.nextInt(7)));
+                out.write(rnd.nextBoolean() ? " " : " \t ");
+                out.write(randomNumber(rnd));
+                out.write(' ');
+                out.write(randomNumber(rnd));
+                out.write(rnd.nextBoolean() ? "\n" : "  \r\n");
+            }
+        }
+    }
+
+    private static String randomNumber(Random rnd) {
+        switch (rnd.nextInt(6)) {
+            case 0: return String.format(Locale.ROOT, "%.3f", rnd.nextDouble() * 400000);
+            case 1: return Double.toString(rnd.nextDouble() * Math.pow(10, rnd.nextInt(40) - 20));
+            case 2: return Long.toString(rnd.nextLong() >>> rnd.nextInt(64));
+            case 3: return "0." + Long.toString(rnd.nextLong() >>> 1); // ~19 significant digits
+            case 4: return (rnd.nextBoolean() ? "-" : "+") + rnd.nextInt(1000) + "." + rnd.nextInt(1000);
+            default: return rnd.nextInt(100000) + "e" + (rnd.nextInt(60) - 30);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import managers.BinaryShapeFile;
+import managers.FileManager;
+import managers.PermutationCache;
+import managers.SortManager;
+import shapes.ShapeTable;
+import sorts.Sort;
+
+/**
+ * Test class for the permutation cache (-c). Checks that a second run is
+ * served from the cache with the same report, that changed data misses, that
+ * a damaged entry is rejected, that a binary copy of a file shares its
+ * entries, and that the least recently used entries are evicted.
+ *
+ * @author NJobse
+ */
+public class TestPermutationCache {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Permutation cache");
+        Path dir = Files.createTempDirectory("perm-cache");
+        Path changed = Files.createTempFile("shapes-changed", ".txt");
+        Path binary = Files.createTempFile("shapes", ".bin");
+        try {
+            String[] columnar = { "-fres/shapes2.txt", "-Tv", "-Sq", "-Mc", "-c" + dir };
+            String miss = run(columnar);
+            String hit = run(columnar);
+            check("First run misses and stores", miss.contains("Permutation cache: miss"));
+            check("Second run hits", hit.contains("Permutation cache: hit"));
+            check("Hit prints the same report", report(miss).equals(report(hit)));
+            check("Comparator sorting shares the entry",
+                    run(new String[] { "-fres/shapes2.txt", "-Tv", "-Sm", "-c" + dir }).contains("cache: hit"));
+            check("Another comparison type misses",
+                    run(new String[] { "-fres/shapes2.txt", "-Th", "-Sm", "-c" + dir }).contains("cache: miss"));
+
+            String text = new String(Files.readAllBytes(Paths.get("res/shapes2.txt")), StandardCharsets.US_ASCII);
+            Files.write(changed, text.replaceFirst("12429.964", "12429.965").getBytes(StandardCharsets.US_ASCII));
+            check("Changed data misses",
+                    run(new String[] { "-f" + changed, "-Tv", "-Sq", "-Mc", "-c" + dir }).contains("cache: miss"));
+
+            BinaryShapeFile.convert("res/shapes2.txt", binary.toString(), BinaryShapeFile.Layout.COLUMNS);
+            check("Binary copy shares the entry",
+                    run(new String[] { "-f" + binary, "-Tv", "-Sq", "-Mc", "-c" + dir }).contains("cache: hit"));
+
+            // Swap the first two rows of the stored order, which breaks it
+            ShapeTable table = FileManager.loadShapeTableFast("res/shapes2.txt");
+            long hash = PermutationCache.contentHash(table);
+            PermutationCache cache = new PermutationCache(dir.toString(), Long.MAX_VALUE);
+            Path entry = cache.pathFor(hash, 'V');
+            try (RandomAccessFile file = new RandomAccessFile(entry.toFile(), "rw")) {
+                file.seek(24);
+                int first = file.readInt(), second = file.readInt();
+                file.seek(24);
+                file.writeInt(second);
+                file.writeInt(first);
+            }
+            check("Damaged entry is rejected and deleted",
+                    cache.load(hash, 'V', table.volumeColumn()) == null && !Files.exists(entry));
+
+            System.out.println();
+            clear(dir);
+            double[][] keys = { table.heightColumn(), table.baseAreaColumn(), table.volumeColumn() };
+            char[] types = { 'H', 'A', 'V' };
+            // Room for two entries of 1000 rows (24 + 4000 bytes each)
+            PermutationCache small = new PermutationCache(dir.toString(), 2 * 4024);
+            long time = System.currentTimeMillis() - 60_000;
+            for (int i = 0; i < 2; i++) {
+                Path stored = small.store(hash, types[i], sortedOrder(keys[i]));
+                Files.setLastModifiedTime(stored, FileTime.fromMillis(time + i * 1000));
+            }
+            small.load(hash, 'H', keys[0]); // H is now the most recently used
+            small.store(hash, 'V', sortedOrder(keys[2]));
+            check("Least recently used entry is evicted", Files.exists(small.pathFor(hash, 'H'))
+                    && !Files.exists(small.pathFor(hash, 'A')) && Files.exists(small.pathFor(hash, 'V')));
+        } finally {
+            clear(dir);
+            Files.deleteIfExists(dir);
+            Files.deleteIfExists(changed);
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    private static int[] sortedOrder(double[] keys) {
+        int[] order = Sort.identityIndex(keys.length);
+        Sort.mergeSort(order, keys);
+        return order;
+    }
+
+    /**
+     * Runs SortManager and returns what it printed.
+     */
+    private static String run(String[] arguments) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            new SortManager(arguments);
+        } finally {
+            System.setOut(out);
+        }
+        return captured.toString();
+    }
+
+    /**
+     * Returns the report rows, without the command line and timing lines.
+     */
+    private static String report(String output) {
+        StringBuilder sb = new StringBuilder();
+        for (String line : output.split("\n")) {
+            if (line.startsWith("First") || line.startsWith("Last") || line.contains("-th")) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void clear(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-50s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+}
@@ -0,0 +1,111 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import managers.FileManager;
+import managers.ShapeGenerator;
+import shapes.Shape;
+import shapes.ShapeTable;
+
+/**
+ * Test class for the synthetic dataset generator. Generates a file for every
+ * order and sort key, loads it back and checks the count, the order, the
+ * shape mix and that the same seed reproduces the same bytes.
+ *
+ * @author NJobse
+ */
+public class TestShapeGenerator {
+    private static final int COUNT = 20_000;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Shape generator");
+        Path file = Files.createTempFile("shapes-generated", ".txt");
+        try {
+            System.out.printf("%-14s %-4s %-7s %-10s %-8s %s%n", "Order", "Key", "Loaded", "Descents", "Distinct",
+                    "Kinds");
+            for (ShapeGenerator.Order order : ShapeGenerator.Order.values()) {
+                for (char key : new char[] { 'H', 'A', 'V' }) {
+                    runTest(file, order, key);
+                }
+            }
+
+            // Same seed and settings must give identical bytes
+            ShapeGenerator generator = new ShapeGenerator(99);
+            generator.setOrder(ShapeGenerator.Order.SAWTOOTH, 250);
+            generator.write(file.toString(), COUNT);
+            byte[] first = Files.readAllBytes(file);
+            generator.write(file.toString(), COUNT);
+            byte[] second = Files.readAllBytes(file);
+            new ShapeGenerator(100).write(file.toString(), COUNT);
+            byte[] otherSeed = Files.readAllBytes(file);
+            System.out.println("Same seed reproduces the file: " + Arrays.equals(first, second));
+            System.out.println("Different seed changes the file: " + !Arrays.equals(first, otherSeed));
+
+            // A restricted mix and ranges
+            generator = new ShapeGenerator(5);
+            for (byte k = 0; k < 7; k++) {
+                generator.setWeight(k, k == ShapeTable.CONE || k == ShapeTable.PYRAMID ? 1 : 0);
+            }
+            generator.setHeightRange(10, 20);
+            generator.setDimensionRange(1, 2);
+            generator.write(file.toString(), COUNT);
+            Shape[] shapes = FileManager.loadShapesFast(file.toString());
+            boolean inRange = true;
+            Set<String> kinds = new HashSet<>();
+            for (Shape s : shapes) {
+                inRange &= s.getHeight() >= 10 && s.getHeight() <= 20 && ShapeTable.dimensionOf(s) >= 1
+                        && ShapeTable.dimensionOf(s) <= 2;
+                kinds.add(s.getClass().getSimpleName());
+            }
+            System.out.println("Restricted mix " + kinds + " within ranges: " + inRange);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Generates one file, loads it and prints how many times the key goes up
+     * (against the descending sort order), how many distinct shapes there are
+     * and how many shape kinds appear.
+     */
+    private static void runTest(Path file, ShapeGenerator.Order order, char key) throws IOException {
+        ShapeGenerator generator = new ShapeGenerator(7);
+        generator.setOrder(order, 0);
+        generator.setKeyType(key);
+        generator.write(file.toString(), COUNT);
+
+        Shape[] shapes = FileManager.loadShapesFast(file.toString());
+        int descents = 0, ascents = 0;
+        Set<String> distinct = new HashSet<>();
+        Set<String> kinds = new HashSet<>();
+        for (int i = 0; i < shapes.length; i++) {
+            if (i > 0) {
+                int c = Double.compare(key(shapes[i], key), key(shapes[i - 1], key));
+                descents += c < 0 ? 1 : 0;
+                ascents += c > 0 ? 1 : 0;
+            }
+            distinct.add(shapes[i].getClass().getSimpleName() + shapes[i].getHeight() + " "
+                    + ShapeTable.dimensionOf(shapes[i]));
+            kinds.add(shapes[i].getClass().getSimpleName());
+        }
+
+        String check;
+        switch (order) {
+            case SORTED: check = ascents == 0 ? "sorted" : "NOT SORTED"; break;
+            case REVERSE: check = descents == 0 ? "reversed" : "NOT REVERSED"; break;
+            case SAWTOOTH: check = ascents < COUNT / 1000 ? "runs ok" : "TOO MANY RUNS"; break;
+            default: check = "";
+        }
+        System.out.printf("%-14s %-4c %-7d %-10d %-8d %d %s%n", order, key,
+                shapes == null ? 0 : shapes.length, descents, distinct.size(), kinds.size(), check);
+    }
+
+    private static double key(Shape s, char key) {
+        return key == 'H' ? s.getHeight() : key == 'A' ? s.calcBaseArea() : s.calcVolume();
+    }
+}
@@ -0,0 +1,130 @@
+package tests;
+
+import java.util.Random;
+
+import managers.FileManager;
+import shapes.Shape;
+import shapes.ShapeKind;
+import shapes.ShapeTable;
+
+/**
+ * Test class for ShapeKind. Checks bit for bit that the coefficient form
+ * gives the same base areas and volumes as the original per-class formulas,
+ * that the bulk computeKeys path agrees with Shape objects, and times
+ * computeKeys against computing the keys through Shape objects.
+ *
+ * @author NJobse
+ */
+public class TestShapeKind {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Shape kinds");
+        Random rnd = new Random(31);
+        int n = 1_000_000;
+        byte[] kind = new byte[n];
+        double[] height = new double[n];
+        double[] dimension = new double[n];
+        double[] special = { 0, -0.0, 1, 3, 1e-160, Double.MIN_VALUE, 1e154, Double.MAX_VALUE,
+                Double.POSITIVE_INFINITY, Double.NaN, -2.5 };
+        for (int i = 0; i < n; i++) {
+            kind[i] = (byte) rnd.nextInt(ShapeKind.count());
+            if (i < special.length * special.length) {
+                height[i] = special[i / special.length];
+                dimension[i] = special[i % special.length];
+            } else {
+                height[i] = rnd.nextDouble() * 1e4;
+                dimension[i] = rnd.nextDouble() * 1e3;
+            }
+        }
+
+        boolean formulas = true;
+        for (int i = 0; i < n; i++) {
+            ShapeKind k = ShapeKind.of(kind[i]);
+            double area = k.baseArea(dimension[i]);
+            formulas &= same(area, originalBaseArea(kind[i], dimension[i]))
+                    && same(k.volume(area, height[i]), originalVolume(kind[i], area, height[i]));
+        }
+        check("Same values as the original formulas", formulas);
+
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            shapes[i] = ShapeTable.createShape(kind[i], height[i], dimension[i]);
+        }
+        double[] areas = new double[n];
+        double[] volumes = new double[n];
+        ShapeKind.computeKeys('A', kind, height, dimension, areas);
+        ShapeKind.computeKeys('V', kind, height, dimension, volumes);
+        boolean bulk = true;
+        for (int i = 0; i < n; i++) {
+            bulk &= same(areas[i], shapes[i].calcBaseArea()) && same(volumes[i], shapes[i].calcVolume())
+                    && shapes[i].getKind().code() == kind[i] && same(shapes[i].getDimension(), dimension[i]);
+        }
+        check("computeKeys matches Shape objects", bulk);
+
+        boolean names = true;
+        for (byte k = 0; k < ShapeKind.count(); k++) {
+            ShapeKind kindK = ShapeKind.of(k);
+            names &= ShapeKind.named(kindK.displayName()) == kindK && kindK.code() == k
+                    && ShapeTable.createShape(k, 1, 1).getClass().getSimpleName().equals(kindK.displayName());
+        }
+        check("Codes, names and classes agree", names && ShapeKind.of((byte) 7) == null);
+
+        ShapeTable table = FileManager.loadShapeTableFast("res/shapes2.txt");
+        boolean columns = table != null;
+        for (int i = 0; columns && i < table.size(); i++) {
+            Shape shape = table.toShape(i);
+            columns = same(table.getBaseArea(i), shape.calcBaseArea())
+                    && same(table.getVolume(i), shape.calcVolume());
+        }
+        check("ShapeTable columns match Shape objects", columns);
+
+        System.out.printf("%n%-24s %10s%n", "Volume keys, 1M rows", "ms");
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            ShapeKind.computeKeys('V', kind, height, dimension, volumes);
+            long bulkTime = System.nanoTime() - start;
+            shapes = new Shape[n];
+            for (int i = 0; i < n; i++) {
+                shapes[i] = ShapeTable.createShape(kind[i], height[i], dimension[i]);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                volumes[i] = shapes[i].calcVolume();
+            }
+            long shapeTime = System.nanoTime() - start;
+            System.out.printf("%-24s %10.2f%n%-24s %10.2f%n", "computeKeys", bulkTime / 1e6, "Shape.calcVolume",
+                    shapeTime / 1e6);
+        }
+    }
+
+    /**
+     * The base area formulas as the Shape classes wrote them before ShapeKind.
+     */
+    private static double originalBaseArea(byte kind, double d) {
+        switch (kind) {
+            case ShapeTable.CYLINDER:
+            case ShapeTable.CONE:
+                return Math.PI * d * d;
+            case ShapeTable.PYRAMID:
+            case ShapeTable.SQUARE_PRISM:
+                return d * d;
+            case ShapeTable.TRIANGULAR_PRISM:
+                return (Math.sqrt(3) / 4) * d * d;
+            case ShapeTable.PENTAGONAL_PRISM:
+                return (5 * d * d * Math.tan(Math.toRadians(54))) / 4;
+            default:
+                return 2 * (1 + Math.sqrt(2)) * d * d;
+        }
+    }
+
+    private static double originalVolume(byte kind, double area, double h) {
+        return kind == ShapeTable.CONE || kind == ShapeTable.PYRAMID ? area * h / 3 : area * h;
+    }
+
+    private static boolean same(double a, double b) {
+        return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-45s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+}
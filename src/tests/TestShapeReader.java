@@ -0,0 +1,94 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import managers.FileManager;
+import managers.ShapeReader;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Test class for the streaming ShapeReader. Streams a file with a correct,
+ * missing and wrong count header, computing volume statistics and the top 5
+ * shapes by volume in one pass each.
+ *
+ * @author NJobse
+ */
+public class TestShapeReader {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Streaming ShapeReader");
+        List<String> lines = Files.readAllLines(Paths.get("res/shapes2.txt"));
+        List<String> data = lines.subList(1, lines.size());
+
+        Path noHeader = Files.createTempFile("shapes-noheader", ".txt");
+        Path wrongHeader = Files.createTempFile("shapes-wrongheader", ".txt");
+        try {
+            Files.write(noHeader, data);
+            Files.write(wrongHeader, lines.subList(0, 1));
+            Files.write(wrongHeader, data, StandardOpenOption.APPEND);
+            Files.write(wrongHeader, lines.subList(1, 11), StandardOpenOption.APPEND);
+
+            runTest("res/shapes2.txt");
+            runTest(noHeader.toString());
+            runTest(wrongHeader.toString());
+        } finally {
+            Files.deleteIfExists(noHeader);
+            Files.deleteIfExists(wrongHeader);
+        }
+    }
+
+    /**
+     * Streams a file twice: once for statistics without creating Shape
+     * objects, once for the top 5 by volume.
+     *
+     * @param fileName file to stream
+     * @throws IOException if the file cannot be read
+     */
+    private static void runTest(String fileName) throws IOException {
+        System.out.println("\nStreaming " + fileName);
+
+        // Statistics from the primitive row API
+        boolean headerMatches;
+        try (ShapeReader reader = new ShapeReader(fileName)) {
+            double min = Double.MAX_VALUE, max = 0, sum = 0;
+            while (reader.readRow()) {
+                double area = ShapeTable.baseArea(reader.getKind(), reader.getDimension());
+                double volume = ShapeTable.volume(reader.getKind(), area, reader.getHeight());
+                min = Math.min(min, volume);
+                max = Math.max(max, volume);
+                sum += volume;
+            }
+            System.out.printf("Header: %d | Read: %d | Volume min %.4f max %.4f mean %.4f%n",
+                    reader.getDeclaredCount(), reader.getCount(), min, max, sum / reader.getCount());
+            headerMatches = reader.getDeclaredCount() == reader.getCount();
+        }
+
+        // Top 5 by volume from the iterator
+        Shape[] top = new Shape[5];
+        int found;
+        try (ShapeReader reader = new ShapeReader(fileName)) {
+            found = Sort.topN(reader, new VolumeCompare(), top);
+        }
+        for (int i = 0; i < found; i++) {
+            System.out.printf("  #%d %-16s %.4f%n", i + 1, top[i].getClass().getSimpleName(), top[i].calcVolume());
+        }
+
+        // Compare with a full sort of the same file (which needs a correct header)
+        if (headerMatches) {
+            Shape[] all = FileManager.loadShapesFast(fileName);
+            Sort.mergeSort(all, new VolumeCompare());
+            boolean same = true;
+            for (int i = 0; i < found; i++) {
+                same &= all[i].calcVolume() == top[i].calcVolume();
+            }
+            System.out.println("Top 5 matches full sort: " + same);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import managers.FileManager;
+import managers.ShapeWriter;
+import managers.SortManager;
+import shapes.ShapeTable;
+
+/**
+ * Test class for ShapeWriter and the output file (-o). Checks that written
+ * values read back bit for bit with both text loaders, that rewriting the
+ * files in res reproduces them byte for byte, and that -o writes the whole
+ * sorted file in every mode that sorts it.
+ *
+ * @author NJobse
+ */
+public class TestShapeWriter {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Shape writer");
+        Path text = Files.createTempFile("shapes-out", ".txt");
+        Path binary = Files.createTempFile("shapes-out", ".bin");
+        try {
+            // Short decimals, whole numbers, values that need more decimals or Double.toString
+            double[] values = { 5181.35, 12429.964, 5000, 0.001, 0.0005, 0.1 + 0.2, 1.0 / 3, 123456789.125,
+                    4.5e15, 1e22, 6.02e-23, -2.5, Double.MIN_VALUE, Double.MAX_VALUE };
+            ShapeTable table = new ShapeTable(values.length);
+            for (int i = 0; i < values.length; i++) {
+                table.add((byte) (i % 7), values[i], values[values.length - 1 - i]);
+            }
+            write(table, text, false);
+            check("Values read back by the byte loader", same(table, FileManager.loadShapeTableFast(text.toString())));
+            check("Values read back by the String loader", same(table, FileManager.loadShapeTable(text.toString())));
+
+            for (String fileName : new String[] { "res/shapes1.txt", "res/shapes2.txt" }) {
+                write(FileManager.loadShapeTableFast(fileName), text, false);
+                check("Rewriting " + fileName + " reproduces it",
+                        Arrays.equals(Files.readAllBytes(Paths.get(fileName)), Files.readAllBytes(text)));
+            }
+
+            String[][] runs = { { "-Tv", "-Sm" }, { "-Ta", "-Sq", "-Mk" }, { "-Th", "-Sr", "-Mc" },
+                    { "-Tv", "-Sh", "-Me", "-b1" } };
+            for (String[] run : runs) {
+                String label = String.join(" ", run);
+                System.out.println("\nSorting with " + label + " to text and binary:");
+                new SortManager(arguments(run, text));
+                new SortManager(arguments(run, binary));
+                ShapeTable sortedText = FileManager.loadShapeTableFast(text.toString());
+                check(label + ": text output is sorted", isSorted(sortedText, run[0].charAt(2)));
+                check(label + ": binary output is the same",
+                        same(sortedText, FileManager.loadShapeTableFast(binary.toString())));
+            }
+
+            System.out.println("\nOutput with -mR is rejected:");
+            Files.delete(text);
+            new SortManager(new String[] { "-fres/shapes2.txt", "-Tv", "-Mr", "-o" + text });
+            check("No file written", !Files.exists(text));
+        } finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(binary);
+        }
+    }
+
+    private static String[] arguments(String[] run, Path output) {
+        String[] arguments = Arrays.copyOf(run, run.length + 2);
+        arguments[run.length] = "-fres/shapes2.txt";
+        arguments[run.length + 1] = "-o" + output;
+        return arguments;
+    }
+
+    private static void write(ShapeTable table, Path file, boolean binary) throws IOException {
+        try (ShapeWriter out = new ShapeWriter(file.toString(), binary, table.size())) {
+            for (int i = 0; i < table.size(); i++) {
+                out.write(table.getKind(i), table.getHeight(i), table.getDimension(i));
+            }
+        }
+    }
+
+    /**
+     * Checks that keys descend, like the Shape comparators order them.
+     */
+    private static boolean isSorted(ShapeTable table, char compareType) {
+        if (table == null || table.size() != 1000) {
+            return false;
+        }
+        double[] keys = compareType == 'h' ? table.heightColumn()
+                : compareType == 'a' ? table.baseAreaColumn() : table.volumeColumn();
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] < keys[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean same(ShapeTable a, ShapeTable b) {
+        if (a == null || b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getKind(i) != b.getKind(i)
+                    || Double.doubleToRawLongBits(a.getHeight(i)) != Double.doubleToRawLongBits(b.getHeight(i))
+                    || Double.doubleToRawLongBits(a.getDimension(i)) != Double.doubleToRawLongBits(b.getDimension(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-50s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+}
@@ -0,0 +1,94 @@
+package tests;
+
+import java.util.Random;
+
+import managers.SortManager;
+import sorts.InputProfile;
+
+/**
+ * Test class for adaptive sorting (-sA). Checks the estimates of InputProfile
+ * on inputs whose order is known, that its cost does not grow with the input,
+ * and runs -sA in each mode that supports it.
+ *
+ * @author NJobse
+ */
+public class TestSortAdaptive {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Adaptive sorting");
+        System.out.println("\nSorting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Tv", // Compare by volume
+                "-Sa" // Let the sample choose the algorithm
+        });
+        System.out.println("\nSorting by Height (columnar):");
+        runTest(new String[] {
+                "-fres/shapes1.txt",
+                "-Th", // Compare by height
+                "-Sa",
+                "-Mc" // Sort a ShapeTable index
+        });
+        System.out.println("\nSorting by Volume, then Height:");
+        runTest(new String[] { "-fres/shapes2.txt", "-tVH", "-sA", "-mK" });
+        System.out.println("\nAdaptive with batch mode is rejected:");
+        runTest(new String[] { "-fres/shapes2.txt", "-tV", "-sA", "-x" });
+
+        int n = 1_000_000;
+        Random rnd = new Random(41);
+        double[] descending = new double[n];
+        double[] ascending = new double[n];
+        double[] random = new double[n];
+        double[] fewValues = new double[n];
+        double[] sawtooth = new double[n];
+        for (int i = 0; i < n; i++) {
+            descending[i] = n - i;
+            ascending[i] = i;
+            random[i] = rnd.nextDouble();
+            fewValues[i] = rnd.nextInt(4);
+            sawtooth[i] = 100 - i % 100;
+        }
+
+        // Keys are sampled in descending order, like the Shape comparators
+        System.out.println();
+        InputProfile sorted = InputProfile.sample(descending, n);
+        check("Sorted: 1 run, no inversions", sorted.estimatedRuns() == 1 && sorted.inversionRatio() == 0
+                && sorted.duplicateRatio() == 0);
+        InputProfile reversed = InputProfile.sample(ascending, n);
+        check("Reversed: every pair inverted", reversed.inversionRatio() == 1 && reversed.descentRatio() == 1);
+        InputProfile unordered = InputProfile.sample(random, n);
+        check("Random: about half the pairs inverted", Math.abs(unordered.inversionRatio() - 0.5) < 0.1
+                && unordered.duplicateRatio() == 0);
+        InputProfile tied = InputProfile.sample(fewValues, n);
+        check("4 distinct keys: nearly all duplicates", tied.duplicateRatio() > 0.99);
+        InputProfile runs = InputProfile.sample(sawtooth, n);
+        check("Runs of 100: about 10,000 runs", runs.estimatedRuns() > 5_000 && runs.estimatedRuns() < 20_000);
+        boolean small = true;
+        for (int size = 0; size < 5; size++) {
+            InputProfile p = InputProfile.sample(descending, size);
+            small &= p.size() == size && p.estimatedRuns() == 1 && p.inversionRatio() == 0;
+        }
+        check("0 to 4 keys", small);
+        // Two passes of pairs, then sorting and scanning one sample: about 14 comparisons per sampled element
+        check("Cost does not grow with n", unordered.comparisons() < 14 * InputProfile.SAMPLE_SIZE);
+
+        System.out.printf("%n%-24s %10s %12s%n", "Sample, 1M keys", "ms", "Comparisons");
+        for (int round = 0; round < 3; round++) {
+            InputProfile p = InputProfile.sample(random, n);
+            System.out.printf("%-24s %10.4f %,12d%n", "Random", p.nanos() / 1e6, p.comparisons());
+        }
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-45s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison types,
+     *                  sorting method and sorting mode.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -10,7 +10,7 @@ import managers.SortManager;
 public class TestSortAll {
     public static void main(String[] args) {
         String[] compareTypes = { "h", "a", "v" }; // Height, Base Area, Volume
-        String[] sortTypes = { "b", "i", "s", "m", "q", "h" }; // Sorting algorithms
+        String[] sortTypes = { "b", "i", "s", "m", "q", "h", "p", "r", "t", "l" }; // Sorting algorithms
 
         for (String compare : compareTypes) {
             for (String sort : sortTypes) {
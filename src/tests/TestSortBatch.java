@@ -0,0 +1,117 @@
+package tests;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import managers.ShapeGenerator;
+import managers.SortManager;
+
+/**
+ * Test class for batch mode (-x). Runs the whole matrix over one file on
+ * several threads, reads the CSV and JSON summaries back and checks that
+ * every pair ran, produced sorted output and agreed with the other pairs of
+ * the same comparison type, and that quadratic sorts are skipped on large
+ * files.
+ *
+ * @author NJobse
+ */
+public class TestSortBatch {
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: Batch mode");
+        Path csv = Files.createTempFile("sort-batch", ".csv");
+        Path json = Files.createTempFile("sort-batch", ".json");
+        Path large = Files.createTempFile("sort-batch-large", ".txt");
+        boolean passed = true;
+        try {
+            System.out.println("\nEvery comparison type and sorting method, 4 threads:");
+            runTest(new String[] { "-fres/shapes2.txt", "-x" + csv, "-j4" });
+            passed &= checkCsv(csv, 3 * SortManager.getBatchMethods('\0').length(), 0);
+
+            System.out.println("\nPrecomputed keys, two of each, with counters, as JSON:");
+            runTest(new String[] { "-fres/shapes2.txt", "-x" + json, "-Mk", "-Tv", "-Th", "-Sm", "-Sr", "-v" });
+            String text = new String(Files.readAllBytes(json), StandardCharsets.UTF_8);
+            int ok = count(text, "\"status\": \"ok\"");
+            passed &= check(String.format("JSON rows: %d ok (expected 4), counters recorded", ok),
+                    ok == 4 && !text.contains("\"comparisons\": null"));
+
+            System.out.println("\nColumnar table over 100,001 shapes:");
+            new ShapeGenerator(1).write(large.toString(), 100_001);
+            runTest(new String[] { "-f" + large, "-x" + csv, "-Mc", "-Ta", "-Sb", "-Si", "-Ss", "-Sq", "-Sr" });
+            passed &= checkCsv(csv, 2, 3);
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(json);
+            Files.deleteIfExists(large);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Checks the number of completed and skipped rows, that every completed
+     * row is sorted, and that rows with the same comparison type have the
+     * same checksum.
+     *
+     * @return true if every check passed
+     */
+    private static boolean checkCsv(Path csv, int expectedOk, int expectedSkipped) throws IOException {
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        String[] header = lines.get(0).split(",", -1);
+        int status = indexOf(header, "status"), sorted = indexOf(header, "sorted"),
+                checksum = indexOf(header, "checksum"), compare = indexOf(header, "compare");
+        int ok = 0, skipped = 0;
+        boolean allSorted = true, agree = true;
+        Map<String, String> checksums = new HashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] row = line.split(",", -1);
+            if (row[status].equals("skipped")) {
+                skipped++;
+            } else if (row[status].equals("ok")) {
+                ok++;
+                allSorted &= row[sorted].equals("true");
+                String previous = checksums.putIfAbsent(row[compare], row[checksum]);
+                agree &= previous == null || previous.equals(row[checksum]);
+            }
+        }
+        return check(String.format("CSV rows: %d ok (expected %d), %d skipped (expected %d), all sorted, "
+                + "checksums agree", ok, expectedOk, skipped, expectedSkipped),
+                ok == expectedOk && skipped == expectedSkipped && allSorted && agree);
+    }
+
+    private static boolean check(String label, boolean passed) {
+        System.out.printf("%-85s %s%n", label, passed ? "PASS" : "FAIL");
+        return passed;
+    }
+
+    private static int indexOf(String[] header, String column) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].equals(column))
+                return i;
+        }
+        throw new IllegalArgumentException("No column " + column);
+    }
+
+    private static int count(String text, String part) {
+        int n = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  and sorting method.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
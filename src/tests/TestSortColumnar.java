@@ -0,0 +1,37 @@
+package tests;
+
+import managers.SortManager;
+
+/**
+ * Test class for sorting shapes on a columnar ShapeTable (-mC).
+ * 
+ * @author NJobse
+ */
+public class TestSortColumnar {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Columnar mode (all algorithms)");
+        String[] compareTypes = { "h", "a", "v" }; // Height, Base Area, Volume
+        String[] sortTypes = { "b", "i", "s", "m", "q", "h" }; // Sorting algorithms
+
+        for (String compare : compareTypes) {
+            for (String sort : sortTypes) {
+                runTest(new String[] {
+                        "-fres/shapes1.txt", // Load shapes from file
+                        "-T" + compare,
+                        "-S" + sort,
+                        "-mC" // Sort an index array over the table columns
+                });
+            }
+        }
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  sorting method and sorting mode.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,150 @@
+package tests;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+import sorts.SortStats;
+
+/**
+ * Test class for the SortStats counters. Prints the counters SortManager
+ * reports with -v, then checks them against counts that are known exactly:
+ * a counting comparator, sorted and reverse-sorted inputs, and a disabled run
+ * that must leave every counter at zero.
+ *
+ * @author NJobse
+ */
+public class TestSortCounters {
+    private static final int N = 1000;
+
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Sort counters");
+        System.out.println("\nMerge Sort by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Tv", // Compare by volume
+                "-Sm", // Sort using merge sort
+                "-v" // Print counters
+        });
+        System.out.println("\nQuick Sort on a ShapeTable by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Th",
+                "-Sq",
+                "-Mc", // Columnar table
+                "-v"
+        });
+
+        VolumeCompare byVolume = new VolumeCompare();
+        Shape[] random = randomShapes(N, new Random(3));
+        Shape[] sorted = random.clone();
+        Sort.mergeSort(sorted, byVolume);
+        // Increasing volumes without ties: the reverse of the (descending) sort order
+        Shape[] reversed = new Shape[N];
+        for (int i = 0; i < N; i++) {
+            reversed[i] = ShapeTable.createShape(ShapeTable.CONE, 1 + i, 1);
+        }
+
+        System.out.println();
+        // Every comparator call is counted once, whatever the algorithm
+        for (char type : "BISMQHPTL".toCharArray()) {
+            long[] calls = new long[1];
+            Shape[] copy = random.clone();
+            count(() -> sort(type, copy, (a, b) -> {
+                calls[0]++;
+                return byVolume.compare(a, b);
+            }));
+            check(type + " counts every comparator call", SortStats.getComparisons() == calls[0]);
+        }
+
+        count(() -> Sort.mergeSort(sorted.clone(), byVolume));
+        check("Merge sort of sorted input: n - 1 comparisons, no writes",
+                SortStats.getComparisons() == N - 1 && SortStats.getWrites() == 0);
+        check("Merge sort: one scratch buffer of n elements",
+                SortStats.getAllocations() == 1 && SortStats.getAllocatedElements() == N);
+        check("Merge sort recursion depth is ceil(log2 n)", SortStats.getMaxDepth() == 10);
+
+        count(() -> Sort.insertionSort(reversed.clone(), byVolume));
+        check("Insertion sort of reversed input: n(n - 1)/2 comparisons",
+                SortStats.getComparisons() == (long) N * (N - 1) / 2);
+        count(() -> Sort.selectionSort(random.clone(), byVolume));
+        check("Selection sort: at most n - 1 swaps, two writes each",
+                SortStats.getSwaps() <= N - 1 && SortStats.getWrites() == 2 * SortStats.getSwaps());
+        count(() -> Sort.heapSort(random.clone(), byVolume));
+        check("Heap sort is iterative", SortStats.getMaxDepth() == 0 && SortStats.getAllocations() == 0);
+        count(() -> Sort.shellSort(sorted.clone(), byVolume));
+        check("Shell sort of sorted input: no element shifted, no scratch",
+                SortStats.getWrites() == SortStats.getComparisons() && SortStats.getAllocations() == 0
+                        && SortStats.getMaxDepth() == 0);
+
+        double[] keys = new double[N];
+        for (int i = 0; i < N; i++) {
+            keys[i] = random[i].calcVolume();
+        }
+        count(() -> Sort.radixSort(Sort.identityIndex(N), keys));
+        check("Radix sort makes no comparisons", SortStats.getComparisons() == 0 && SortStats.getWrites() > 0);
+        count(() -> Sort.quickSort(Sort.identityIndex(N), keys));
+        check("Index quick sort counts key comparisons", SortStats.getComparisons() > 0
+                && SortStats.getMaxDepth() > 0);
+
+        SortStats.reset();
+        Sort.mergeSort(random.clone(), byVolume);
+        Sort.quickSort(Sort.identityIndex(N), keys);
+        check("Nothing is counted while disabled", SortStats.getComparisons() == 0 && SortStats.getSwaps() == 0
+                && SortStats.getWrites() == 0 && SortStats.getAllocations() == 0 && SortStats.getMaxDepth() == 0);
+    }
+
+    /**
+     * Runs one sort with fresh counters and counting enabled.
+     */
+    private static void count(Runnable sort) {
+        SortStats.reset();
+        SortStats.setEnabled(true);
+        try {
+            sort.run();
+        } finally {
+            SortStats.setEnabled(false);
+        }
+    }
+
+    private static void sort(char type, Shape[] arr, Comparator<Shape> comparator) {
+        switch (type) {
+            case 'B': Sort.bubbleSort(arr, comparator); break;
+            case 'I': Sort.insertionSort(arr, comparator); break;
+            case 'S': Sort.selectionSort(arr, comparator); break;
+            case 'M': Sort.mergeSort(arr, comparator); break;
+            case 'Q': Sort.quickSort(arr, comparator); break;
+            case 'H': Sort.heapSort(arr, comparator); break;
+            case 'P': Sort.parallelMergeSort(arr, comparator); break;
+            case 'T': Sort.naturalMergeSort(arr, comparator); break;
+            case 'L': Sort.shellSort(arr, comparator); break;
+            default: throw new IllegalArgumentException("Unknown sort '" + type + "'");
+        }
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-60s %s | %s%n", label, passed ? "PASS" : "FAIL", SortStats.summary());
+    }
+
+    private static Shape[] randomShapes(int n, Random rnd) {
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            shapes[i] = ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextInt(50), 1 + rnd.nextInt(20));
+        }
+        return shapes;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  and sorting method.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,119 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+
+import managers.ExternalSorter;
+import managers.FileManager;
+import managers.SortManager;
+import shapes.BaseAreaCompare;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Test class for sorting shapes with the external merge sort (-mE). Runs it
+ * through SortManager, then drives ExternalSorter directly with budgets of a
+ * few shapes, so that shapes2.txt spills into several runs and into more
+ * runs than one merge pass takes, and checks the order against an in-memory
+ * merge sort.
+ * 
+ * @author NJobse
+ */
+public class TestSortExternal {
+    private static final String FILE = "res/shapes2.txt";
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRunning Tests: External merge sort");
+        // Small budget so shapes2.txt fits in memory (no spill)
+        System.out.println("\nSorting by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Th", // Compare by height
+                "-Sm", // Sort each chunk using merge sort
+                "-mE", // External mode
+                "-b1" // 1 MB memory budget
+        });
+        System.out.println("\nSorting by Base Area:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Ta", // Compare by base area
+                "-Sq", // Sort each chunk using QuickSort
+                "-mE",
+                "-b1"
+        });
+        System.out.println("\nSorting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Tv", // Compare by volume
+                "-Sh", // Sort each chunk using heap sort
+                "-mE",
+                "-b1"
+        });
+        System.out.println("\nMemory budget too large:");
+        runTest(new String[] { "-fres/shapes2.txt", "-Tv", "-Sm", "-mE", "-b" + (Long.MAX_VALUE >> 19) });
+
+        // 1000 shapes: 10 runs of 100 are merged at once, 200 runs of 5 take two passes
+        System.out.println();
+        boolean passed = true;
+        passed &= runSpillTest("Volume, chunks of 100", new VolumeCompare(), 100, 10);
+        passed &= runSpillTest("Height, chunks of 5", Comparator.naturalOrder(), 5, 200);
+        passed &= runSpillTest("Base Area, chunks of 7", new BaseAreaCompare(), 7, 143);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Sorts shapes2.txt externally with room for chunk shapes in memory, and
+     * checks the run count, that the streamed order is the in-memory merge
+     * sort's exactly (both are stable), and that no run file is left behind.
+     */
+    private static boolean runSpillTest(String label, Comparator<Shape> comparator, int chunk,
+            int expectedRuns) throws IOException {
+        Shape[] expected = FileManager.loadShapes(FILE);
+        Sort.mergeSort(expected, comparator);
+
+        int before = countRunFiles();
+        ExternalSorter sorter = new ExternalSorter(comparator, arr -> Sort.mergeSort(arr, comparator),
+                (long) chunk * ExternalSorter.BYTES_PER_SHAPE);
+        boolean same = true;
+        int i = 0;
+        try (ExternalSorter.SortedShapes sorted = sorter.sort(FILE)) {
+            while (sorted.hasNext()) {
+                Shape shape = sorted.next();
+                same &= i < expected.length && sameShape(shape, expected[i]);
+                i++;
+            }
+        }
+        boolean passed = same && i == expected.length && sorter.getRunCount() == expectedRuns
+                && countRunFiles() == before;
+        System.out.printf("%-28s %4d run(s) (expected %d), %d shapes, same order: %b, runs deleted: %b %s%n",
+                label, sorter.getRunCount(), expectedRuns, i, same, countRunFiles() == before,
+                passed ? "PASS" : "FAIL");
+        return passed;
+    }
+
+    private static boolean sameShape(Shape a, Shape b) {
+        return ShapeTable.kindOf(a) == ShapeTable.kindOf(b) && a.getHeight() == b.getHeight()
+                && ShapeTable.dimensionOf(a) == ShapeTable.dimensionOf(b);
+    }
+
+    private static int countRunFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir"))
+                .list((dir, name) -> name.startsWith("shapes-run"));
+        return names == null ? 0 : names.length;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  sorting method, sorting mode and memory budget.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,160 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import sorts.Sort;
+
+/**
+ * Test class for multi-key ordering (-tVH), which packs the key columns into
+ * one 128-bit key per row. Checks that every algorithm gives exactly the
+ * order of a stable sort with chained comparators, with many ties, special
+ * values, and enough rows that the first column has to be ranked too, and
+ * times packing and sorting against the chained comparators.
+ *
+ * @author NJobse
+ */
+public class TestSortMultiKey {
+    private static final char[] ALGORITHMS = { 'B', 'I', 'S', 'M', 'Q', 'H', 'R' };
+
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Multi-key ordering");
+        System.out.println("\nSorting by Volume, then Height (columnar):");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-TVH", // Volume, ties by height
+                "-Sq", // Quick sort
+                "-Mc"
+        });
+        System.out.println("\nSorting by Height, then Base Area:");
+        runTest(new String[] {
+                "-fres/shapes1.txt",
+                "-Tha", // Height, ties by base area
+                "-Sr" // Radix sort on the packed keys
+        });
+        System.out.println("\nMulti-key with batch mode is rejected:");
+        runTest(new String[] { "-fres/shapes2.txt", "-tVH", "-x" });
+
+        Random rnd = new Random(37);
+        System.out.println();
+        double[] special = { Double.NaN, -0.0, 0.0, 1, -1, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (int n : new int[] { 1, 2, 3, 100, 3000 }) {
+            double[][] columns = { fewValues(n, rnd, 4), fewValues(n, rnd, 3), fewValues(n, rnd, 5) };
+            for (int i = 0; i < n; i += 7) {
+                columns[i % 3][i] = special[i % special.length];
+            }
+            boolean passed = true;
+            for (int keys = 1; keys <= 3; keys++) {
+                double[][] used = Arrays.copyOf(columns, keys);
+                for (char algorithm : ALGORITHMS) {
+                    passed &= Arrays.equals(expectedOrder(used, n), sortedOrder(algorithm, used, n));
+                }
+            }
+            check(n + " rows, 1 to 3 keys, every algorithm", passed);
+        }
+
+        // 22 bits for each column and the row number do not fit in 64, so the first column is ranked as well
+        int n = (1 << 21) + 1;
+        double[][] columns = { randomValues(n, rnd), fewValues(n, rnd, 1 << 22), randomValues(n, rnd) };
+        int[] expected = expectedOrder(columns, n);
+        for (char algorithm : new char[] { 'M', 'Q', 'H', 'R' }) {
+            check(algorithm + " on " + n + " rows, every column ranked",
+                    Arrays.equals(expected, sortedOrder(algorithm, columns, n)));
+        }
+
+        System.out.printf("%n%-28s %10s%n", "2M rows, 3 keys", "ms");
+        double[][] keys = { fewValues(2_000_000, rnd, 1000), fewValues(2_000_000, rnd, 1000),
+                randomValues(2_000_000, rnd) };
+        long start = System.nanoTime();
+        long[] packed = Sort.packKeys(keys, 2_000_000);
+        System.out.printf("%-28s %10.2f%n", "Pack", (System.nanoTime() - start) / 1e6);
+        for (char algorithm : new char[] { 'M', 'Q', 'R' }) {
+            long[] copy = packed.clone();
+            start = System.nanoTime();
+            sort(algorithm, copy, Sort.identityIndex(2_000_000));
+            System.out.printf("%-28s %10.2f%n", "Sort packed (" + algorithm + ")", (System.nanoTime() - start) / 1e6);
+        }
+        Integer[] rows = new Integer[2_000_000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        start = System.nanoTime();
+        Sort.mergeSort(rows, chained(keys));
+        System.out.printf("%-28s %10.2f%n", "Chained comparators (M)", (System.nanoTime() - start) / 1e6);
+    }
+
+    private static int[] sortedOrder(char algorithm, double[][] columns, int n) {
+        int[] order = Sort.identityIndex(n);
+        sort(algorithm, Sort.packKeys(columns, n), order);
+        return order;
+    }
+
+    private static void sort(char algorithm, long[] keys, int[] order) {
+        switch (algorithm) {
+            case 'B': Sort.bubbleSort(keys, order); break;
+            case 'I': Sort.insertionSort(keys, order); break;
+            case 'S': Sort.selectionSort(keys, order); break;
+            case 'M': Sort.mergeSort(keys, order); break;
+            case 'Q': Sort.quickSort(keys, order); break;
+            case 'H': Sort.heapSort(keys, order); break;
+            default:  Sort.radixSort(keys, order); break;
+        }
+    }
+
+    /**
+     * Sorts row numbers with java.util's stable sort and one comparator per column.
+     */
+    private static int[] expectedOrder(double[][] columns, int n) {
+        Integer[] rows = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        Arrays.sort(rows, chained(columns));
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = rows[i];
+        }
+        return order;
+    }
+
+    private static Comparator<Integer> chained(double[][] columns) {
+        Comparator<Integer> comparator = (a, b) -> Double.compare(columns[0][b], columns[0][a]);
+        for (int c = 1; c < columns.length; c++) {
+            double[] column = columns[c];
+            comparator = comparator.thenComparing((a, b) -> Double.compare(column[b], column[a]));
+        }
+        return comparator;
+    }
+
+    private static double[] fewValues(int n, Random rnd, int distinct) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = rnd.nextInt(distinct) * 0.5;
+        }
+        return values;
+    }
+
+    private static double[] randomValues(int n, Random rnd) {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = rnd.nextGaussian() * 1e6;
+        }
+        return values;
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-45s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison types,
+     *                  sorting method and sorting mode.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,110 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Test class for sorting shapes using the TimSort-style Natural Merge Sort.
+ * Checks that it gives exactly the merge sort order, and counts comparisons
+ * on inputs that are already partly sorted.
+ *
+ * @author NJobse
+ */
+public class TestSortNaturalMerge {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Natural Merge Sort");
+        System.out.println("\nSorting by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Th", // Compare by height (natural order)
+                "-St" // Sort using natural merge sort
+        });
+        System.out.println("\nSorting by Base Area:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Ta", // Compare by base area
+                "-St"
+        });
+        System.out.println("\nSorting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Tv", // Compare by volume
+                "-St"
+        });
+
+        int n = 200_000;
+        Random rnd = new Random(17);
+        VolumeCompare byVolume = new VolumeCompare();
+
+        Shape[] random = randomShapes(n, rnd);
+        Shape[] sorted = random.clone();
+        Sort.mergeSort(sorted, byVolume);
+        Shape[] reversed = sorted.clone();
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            Shape t = reversed[i];
+            reversed[i] = reversed[j];
+            reversed[j] = t;
+        }
+        // Four sorted batches appended one after another
+        Shape[] batches = randomShapes(n, rnd);
+        for (int b = 0; b < 4; b++) {
+            Arrays.sort(batches, b * n / 4, (b + 1) * n / 4, byVolume);
+        }
+        // Sorted, then a few hundred new shapes appended
+        Shape[] appended = sorted.clone();
+        System.arraycopy(randomShapes(500, rnd), 0, appended, n - 500, 500);
+
+        System.out.printf("%n%-16s %-10s %14s %14s%n", "Input", "Same", "Merge cmps", "Natural cmps");
+        runComparisonTest("Random", random, byVolume);
+        runComparisonTest("Sorted", sorted, byVolume);
+        runComparisonTest("Reverse sorted", reversed, byVolume);
+        runComparisonTest("4 batches", batches, byVolume);
+        runComparisonTest("Sorted + 500", appended, byVolume);
+    }
+
+    /**
+     * Sorts copies with mergeSort and naturalMergeSort, checks that every
+     * position holds the same object and prints the comparisons each made.
+     */
+    private static void runComparisonTest(String label, Shape[] shapes, Comparator<Shape> comparator) {
+        long[] mergeCount = new long[1], naturalCount = new long[1];
+        Shape[] expected = shapes.clone();
+        Shape[] actual = shapes.clone();
+        Sort.mergeSort(expected, (a, b) -> {
+            mergeCount[0]++;
+            return comparator.compare(a, b);
+        });
+        Sort.naturalMergeSort(actual, (a, b) -> {
+            naturalCount[0]++;
+            return comparator.compare(a, b);
+        });
+        System.out.printf("%-16s %-10b %14d %14d%n", label, Arrays.equals(expected, actual),
+                mergeCount[0], naturalCount[0]);
+    }
+
+    private static Shape[] randomShapes(int n, Random rnd) {
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            // Few distinct values, so equal keys are common
+            shapes[i] = ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextInt(50), 1 + rnd.nextInt(20));
+        }
+        return shapes;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  and sorting method.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
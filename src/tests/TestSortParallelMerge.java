@@ -0,0 +1,81 @@
+package tests;
+
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import shapes.BaseAreaCompare;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Test class for sorting shapes using the fork/join Parallel Merge Sort.
+ * 
+ * @author NJobse
+ */
+public class TestSortParallelMerge {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Parallel Merge Sort");
+        System.out.println("\nSorting by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Th", // Compare by height (natural order)
+                "-Sp" // Sort using parallel merge sort
+        });
+        System.out.println("\nSorting by Base Area:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Ta", // Compare by base area
+                "-Sp"
+        });
+        System.out.println("\nSorting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Tv", // Compare by volume
+                "-Sp"
+        });
+
+        // Large enough to split, with many ties so stability matters
+        Shape[] shapes = randomShapes(200_000, new Random(11));
+        checkSameAsMergeSort("Height", shapes, Comparator.naturalOrder());
+        checkSameAsMergeSort("Base Area", shapes, new BaseAreaCompare());
+        checkSameAsMergeSort("Volume", shapes, new VolumeCompare());
+    }
+
+    /**
+     * Sorts copies of the shapes with mergeSort and parallelMergeSort and
+     * checks that every position holds the same object.
+     */
+    private static void checkSameAsMergeSort(String label, Shape[] shapes, Comparator<Shape> comparator) {
+        Shape[] expected = shapes.clone();
+        Shape[] actual = shapes.clone();
+        Sort.mergeSort(expected, comparator);
+        Sort.parallelMergeSort(actual, comparator);
+        boolean same = true;
+        for (int i = 0; i < shapes.length; i++) {
+            same &= expected[i] == actual[i];
+        }
+        System.out.println("Parallel order identical to mergeSort by " + label + ": " + same);
+    }
+
+    private static Shape[] randomShapes(int n, Random rnd) {
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            // Few distinct values, so equal keys are common
+            shapes[i] = ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextInt(50), 1 + rnd.nextInt(20));
+        }
+        return shapes;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  and sorting method.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,168 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import sorts.Sort;
+
+/**
+ * Test class for the primitive kernels that sort a double[] of keys with a
+ * parallel int[] permutation. Checks every algorithm in both directions on
+ * random, tied, sorted and reversed keys, checks that merge sort is stable
+ * (it must give the order of a stable library sort exactly), and times each
+ * kernel alone and through the index overload -mC calls, which first
+ * gathers the keys into index order.
+ *
+ * @author NJobse
+ */
+public class TestSortPrimitive {
+    private static final char[] ALGORITHMS = { 'B', 'I', 'S', 'M', 'Q', 'H' };
+
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Primitive key + permutation sorts");
+        System.out.println("\nSorting by Volume (columnar):");
+        new SortManager(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Tv", // Compare by volume
+                "-Sh", // Heap sort
+                "-mC" // Sort a ShapeTable index
+        });
+
+        Random rnd = new Random(29);
+        System.out.println();
+        for (int n : new int[] { 0, 1, 2, 17, 1000, 5000 }) {
+            double[] random = randomKeys(n, rnd, 0);
+            double[] tied = randomKeys(n, rnd, 5);
+            double[] ascending = new double[n];
+            for (int i = 0; i < n; i++) {
+                ascending[i] = i;
+            }
+            double[] descending = new double[n];
+            for (int i = 0; i < n; i++) {
+                descending[i] = n - i;
+            }
+            boolean passed = true;
+            for (char algorithm : ALGORITHMS) {
+                for (double[] keys : new double[][] { random, tied, ascending, descending }) {
+                    passed &= isSorted(algorithm, keys, true) && isSorted(algorithm, keys, false);
+                }
+            }
+            check(n + " keys, every algorithm and direction", passed);
+        }
+
+        double[] tied = randomKeys(100_000, rnd, 50);
+        Integer[] rows = new Integer[tied.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        Arrays.sort(rows, Comparator.comparingDouble((Integer row) -> tied[row]).reversed());
+        int[] expected = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            expected[i] = rows[i];
+        }
+        int[] index = Sort.identityIndex(tied.length);
+        Sort.mergeSort(index, tied);
+        check("Merge sort is stable", Arrays.equals(expected, sortIndex('M', tied))
+                && Arrays.equals(expected, index));
+
+        // Quicksort must stay O(n log n) on the inputs that break Lomuto
+        double[] many = new double[2_000_000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = i % 4 == 0 ? i : many.length - i;
+        }
+        check("Quick sort on organ-pipe keys", isSorted('Q', many, false));
+
+        System.out.printf("%n%-8s %10s %14s %14s%n", "Sort", "Rows", "Primitive ms", "Index ms");
+        double[] keys = randomKeys(2_000_000, rnd, 0);
+        for (char algorithm : new char[] { 'M', 'Q', 'H' }) {
+            time(algorithm, keys);
+        }
+        double[] small = Arrays.copyOf(keys, 20_000);
+        for (char algorithm : new char[] { 'B', 'I', 'S' }) {
+            time(algorithm, small);
+        }
+    }
+
+    /**
+     * Sorts a copy of keys with a parallel identity permutation and checks that
+     * the keys are in order and that the permutation still pairs every key with
+     * its original row.
+     */
+    private static boolean isSorted(char algorithm, double[] original, boolean ascending) {
+        double[] keys = original.clone();
+        int[] perm = Sort.identityIndex(keys.length);
+        sort(algorithm, keys, perm, ascending);
+        boolean[] seen = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (seen[perm[i]] || Double.compare(keys[i], original[perm[i]]) != 0) {
+                return false;
+            }
+            seen[perm[i]] = true;
+            if (i > 0) {
+                int order = Double.compare(keys[i - 1], keys[i]);
+                if (ascending ? order > 0 : order < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the row order a descending primitive sort gives, as -mC sorts.
+     */
+    private static int[] sortIndex(char algorithm, double[] original) {
+        double[] keys = original.clone();
+        int[] perm = Sort.identityIndex(keys.length);
+        sort(algorithm, keys, perm, false);
+        return perm;
+    }
+
+    private static void time(char algorithm, double[] keys) {
+        long start = System.nanoTime();
+        sortIndex(algorithm, keys);
+        long primitive = System.nanoTime() - start;
+
+        int[] index = Sort.identityIndex(keys.length);
+        start = System.nanoTime();
+        switch (algorithm) {
+            case 'B': Sort.bubbleSort(index, keys); break;
+            case 'I': Sort.insertionSort(index, keys); break;
+            case 'S': Sort.selectionSort(index, keys); break;
+            case 'M': Sort.mergeSort(index, keys); break;
+            case 'Q': Sort.quickSort(index, keys); break;
+            default:  Sort.heapSort(index, keys); break;
+        }
+        long indexed = System.nanoTime() - start;
+        System.out.printf("%-8s %,10d %14.2f %14.2f%n", algorithm, keys.length, primitive / 1_000_000.0,
+                indexed / 1_000_000.0);
+    }
+
+    private static void sort(char algorithm, double[] keys, int[] perm, boolean ascending) {
+        switch (algorithm) {
+            case 'B': Sort.bubbleSort(keys, perm, ascending); break;
+            case 'I': Sort.insertionSort(keys, perm, ascending); break;
+            case 'S': Sort.selectionSort(keys, perm, ascending); break;
+            case 'M': Sort.mergeSort(keys, perm, ascending); break;
+            case 'Q': Sort.quickSort(keys, perm, ascending); break;
+            default:  Sort.heapSort(keys, perm, ascending); break;
+        }
+    }
+
+    /**
+     * Random keys, or keys drawn from only the given number of distinct values.
+     */
+    private static double[] randomKeys(int n, Random rnd, int distinct) {
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = distinct > 0 ? rnd.nextInt(distinct) : rnd.nextDouble() * 1e6;
+        }
+        return keys;
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-45s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+}
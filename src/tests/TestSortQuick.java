@@ -1,6 +1,13 @@
 package tests;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import managers.ShapeGenerator;
 import managers.SortManager;
+import sorts.Sort;
 
 /**
  * Test class for sorting shapes using Quick Sort.
@@ -8,7 +15,7 @@ import managers.SortManager;
  * @author NJobse
  */
 public class TestSortQuick {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("\nRunning Tests: QuickSort (Using Comparable and Comparator)");
         // Test sorting by height using Comparable
         System.out.println("\nSorting by Height:");
@@ -31,6 +38,84 @@ public class TestSortQuick {
                 "-Tv", // Compare by volume
                 "-Sq" // QuickSort
         });
+        // Inputs that drive a last-element pivot quadratic (or overflow its stack)
+        System.out.println("\nAdversarial Inputs:");
+        int n = 200000;
+        Integer[] sorted = new Integer[n], reversed = new Integer[n], equal = new Integer[n],
+                organPipe = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+            reversed[i] = n - i;
+            equal[i] = 7;
+            organPipe[i] = i < n / 2 ? i : n - i;
+        }
+        runAdversarialTest("Sorted", sorted);
+        runAdversarialTest("Reverse sorted", reversed);
+        runAdversarialTest("All equal", equal);
+        runAdversarialTest("Organ pipe", organPipe);
+
+        // The same inputs for the key (-mK) and index kernels
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = organPipe[i];
+        }
+        runKeyTest("Organ pipe", keys);
+        for (int i = 0; i < n; i++) {
+            keys[i] = i % 4;
+        }
+        runKeyTest("4 distinct", keys);
+
+        // Re-sorting generated files that are already in order, through SortManager
+        Path file = Files.createTempFile("shapes-ordered", ".txt");
+        try {
+            for (ShapeGenerator.Order order : new ShapeGenerator.Order[] {
+                    ShapeGenerator.Order.SORTED, ShapeGenerator.Order.REVERSE, ShapeGenerator.Order.FEW_DISTINCT }) {
+                System.out.println("\nSorting " + order + " shapes by Volume (precomputed keys):");
+                ShapeGenerator generator = new ShapeGenerator(11);
+                generator.setOrder(order, 4); // 4 distinct shapes for FEW_DISTINCT
+                generator.write(file.toString(), n);
+                runTest(new String[] { "-f" + file, "-Tv", "-Sq", "-Mk" });
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void runKeyTest(String name, double[] original) {
+        double[] keys = original.clone();
+        Integer[] arr = new Integer[keys.length];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = i;
+        }
+        long start = System.nanoTime();
+        Sort.quickSort(keys, arr);
+        double ms = (System.nanoTime() - start) / 1_000_000.0;
+        boolean ok = true;
+        for (int i = 0; i < keys.length; i++) {
+            ok &= keys[i] == original[arr[i]] && (i == 0 || keys[i - 1] >= keys[i]);
+        }
+        System.out.printf("%-15s n=%d | key sort sorted: %b | %.2f ms%n", name, keys.length, ok, ms);
+
+        int[] index = Sort.identityIndex(original.length);
+        start = System.nanoTime();
+        Sort.quickSort(index, original);
+        ms = (System.nanoTime() - start) / 1_000_000.0;
+        ok = true;
+        for (int i = 1; i < index.length; i++) {
+            ok &= original[index[i - 1]] >= original[index[i]];
+        }
+        System.out.printf("%-15s n=%d | index sort sorted: %b | %.2f ms%n", name, index.length, ok, ms);
+    }
+
+    private static void runAdversarialTest(String name, Integer[] arr) {
+        long start = System.nanoTime();
+        Sort.quickSort(arr, Comparator.<Integer>naturalOrder());
+        double ms = (System.nanoTime() - start) / 1_000_000.0;
+        boolean ok = true;
+        for (int i = 1; i < arr.length; i++) {
+            ok &= arr[i - 1] <= arr[i];
+        }
+        System.out.printf("%-15s n=%d | sorted: %b | %.2f ms%n", name, arr.length, ok, ms);
     }
 
     private static void runTest(String[] arguments) {
@@ -0,0 +1,98 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import managers.SortManager;
+import shapes.BaseAreaCompare;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+
+/**
+ * Test class for sorting shapes using LSD Radix Sort on the key bits.
+ *
+ * @author NJobse
+ */
+public class TestSortRadix {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Radix Sort");
+        System.out.println("\nSorting by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Th", // Compare by height (natural order)
+                "-Sr" // Sort using radix sort
+        });
+        System.out.println("\nSorting by Base Area (columnar):");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Ta", // Compare by base area
+                "-Sr",
+                "-mC" // Sort a ShapeTable index
+        });
+        System.out.println("\nSorting by Volume (precomputed keys):");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Tv", // Compare by volume
+                "-Sr",
+                "-mK" // Sort precomputed keys
+        });
+
+        // Radix sort is stable, so it must give exactly the mergeSort order
+        Shape[] shapes = randomShapes(200_000, new Random(13));
+        checkSameAsMergeSort("Height", shapes, Comparator.naturalOrder(), 'H');
+        checkSameAsMergeSort("Base Area", shapes, new BaseAreaCompare(), 'A');
+        checkSameAsMergeSort("Volume", shapes, new VolumeCompare(), 'V');
+
+        // Keys whose bit patterns need the sign and NaN handling
+        double[] special = { 1.5, -0.0, Double.NaN, -1.5, 0.0, Double.MIN_VALUE, Double.NEGATIVE_INFINITY,
+                -Double.MIN_VALUE, Double.MAX_VALUE, Double.POSITIVE_INFINITY, -Double.MAX_VALUE, 1.5 };
+        int[] index = Sort.identityIndex(special.length);
+        Sort.radixSort(index, special);
+        boolean ordered = true;
+        for (int i = 1; i < index.length; i++) {
+            ordered &= Double.compare(special[index[i]], special[index[i - 1]]) <= 0;
+        }
+        System.out.println("Special values in descending Double.compare order: " + ordered);
+    }
+
+    /**
+     * Sorts copies of the shapes with mergeSort and radixSort and checks that
+     * every position holds the same object.
+     */
+    private static void checkSameAsMergeSort(String label, Shape[] shapes, Comparator<Shape> comparator,
+            char compareType) {
+        Shape[] expected = shapes.clone();
+        Shape[] actual = shapes.clone();
+        Sort.mergeSort(expected, comparator);
+        double[] keys = new double[actual.length];
+        for (int i = 0; i < actual.length; i++) {
+            Shape s = actual[i];
+            keys[i] = compareType == 'H' ? s.getHeight() : compareType == 'A' ? s.calcBaseArea() : s.calcVolume();
+        }
+        Sort.radixSort(keys, actual);
+        System.out.println("Radix order identical to mergeSort by " + label + ": "
+                + Arrays.equals(expected, actual));
+    }
+
+    private static Shape[] randomShapes(int n, Random rnd) {
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            // Few distinct values, so equal keys are common
+            shapes[i] = ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextInt(50), 1 + rnd.nextInt(20));
+        }
+        return shapes;
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type,
+     *                  and sorting method.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,106 @@
+package tests;
+
+import java.util.Random;
+
+import managers.SortManager;
+import sorts.Sort;
+
+/**
+ * Test class for the rank selection mode (-mR), which finds only the
+ * reported rows with a multi-rank quickselect. Checks those rows against a
+ * full merge sort of the same keys.
+ *
+ * @author NJobse
+ */
+public class TestSortSelect {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Rank selection mode");
+        System.out.println("\nSelecting by Height:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Th", // Compare by height
+                "-mR" // Report ranks only; no -s needed
+        });
+        System.out.println("\nSelecting by Base Area:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Ta", // Compare by base area
+                "-mR"
+        });
+        System.out.println("\nSelecting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt",
+                "-Tv", // Compare by volume
+                "-mR"
+        });
+
+        Random rnd = new Random(23);
+        System.out.printf("%n%-12s %-12s %-8s %12s %12s%n", "Rows", "Keys", "Same", "Select ms", "Sort ms");
+        for (int n : new int[] { 1, 2, 999, 1000, 1001, 54_321, 2_000_000 }) {
+            runComparisonTest(n, "random", randomKeys(n, rnd, 0));
+            runComparisonTest(n, "20 distinct", randomKeys(n, rnd, 20));
+        }
+        double[] sorted = new double[2_000_000];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        runComparisonTest(sorted.length, "ascending", sorted);
+    }
+
+    /**
+     * Selects the reported ranks and fully sorts a second index with the
+     * stable merge sort, then checks that every reported rank holds the same row.
+     */
+    private static void runComparisonTest(int n, String label, double[] keys) {
+        int[] ranks = reportedRanks(n);
+        int[] selected = Sort.identityIndex(n);
+        int[] sorted = Sort.identityIndex(n);
+
+        long start = System.nanoTime();
+        Sort.multiSelect(selected, keys, ranks);
+        double selectMs = (System.nanoTime() - start) / 1_000_000.0;
+        start = System.nanoTime();
+        Sort.mergeSort(sorted, keys);
+        double sortMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        boolean same = true;
+        for (int r : ranks) {
+            same &= selected[r] == sorted[r];
+        }
+        System.out.printf("%-12d %-12s %-8b %12.2f %12.2f%n", n, label, same, selectMs, sortMs);
+    }
+
+    /**
+     * Returns the ranks SortManager reports: first, every 1000th and last.
+     */
+    private static int[] reportedRanks(int n) {
+        int count = (n - 1) / 1000 + 1;
+        boolean lastExtra = (n - 1) % 1000 != 0;
+        int[] ranks = new int[count + (lastExtra ? 1 : 0)];
+        for (int i = 0; i < count; i++) {
+            ranks[i] = i * 1000;
+        }
+        if (lastExtra) {
+            ranks[count] = n - 1;
+        }
+        return ranks;
+    }
+
+    private static double[] randomKeys(int n, Random rnd, int distinct) {
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = distinct > 0 ? rnd.nextInt(distinct) : rnd.nextDouble() * 1000;
+        }
+        return keys;
+    }
+
+    /**
+     * Runs a test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison type
+     *                  and sorting mode.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}
@@ -0,0 +1,153 @@
+package tests;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import managers.SortManager;
+import shapes.Shape;
+import shapes.ShapeTable;
+import shapes.VolumeCompare;
+import sorts.Sort;
+import sorts.SortStats;
+
+/**
+ * Test class for Shell sort. Checks the Comparator, key, primitive and packed
+ * versions on random, tied, sorted and reversed input, that nothing is
+ * allocated, and times it against insertion, heap and merge sort on the
+ * mid-size inputs it is meant for.
+ *
+ * @author NJobse
+ */
+public class TestSortShell {
+    public static void main(String[] args) {
+        System.out.println("\nRunning Tests: Shell Sort");
+        System.out.println("\nSorting by Volume:");
+        runTest(new String[] {
+                "-fres/shapes2.txt", // Load shapes from file
+                "-Tv", // Compare by volume
+                "-Sl" // Sort using Shell sort
+        });
+        System.out.println("\nSorting by Base Area (precomputed keys):");
+        runTest(new String[] { "-fres/shapes2.txt", "-Ta", "-Sl", "-Mk" });
+        System.out.println("\nSorting by Height, then Volume (columnar):");
+        runTest(new String[] { "-fres/shapes2.txt", "-tHV", "-sL", "-mC" });
+
+        Random rnd = new Random(43);
+        VolumeCompare byVolume = new VolumeCompare();
+        System.out.println();
+        for (int n : new int[] { 0, 1, 2, 5, 11, 1000, 100_000 }) {
+            boolean passed = true;
+            for (int distinct : new int[] { 0, 3 }) {
+                Shape[] shapes = randomShapes(n, rnd, distinct);
+                Shape[] expected = shapes.clone();
+                Sort.mergeSort(expected, byVolume);
+                Shape[] reversed = expected.clone();
+                Collections.reverse(Arrays.asList(reversed));
+                for (Shape[] input : new Shape[][] { shapes, expected, reversed }) {
+                    Shape[] copy = input.clone();
+                    Sort.shellSort(copy, byVolume);
+                    passed &= sameVolumes(copy, expected);
+
+                    double[] keys = volumes(input);
+                    copy = input.clone();
+                    Sort.shellSort(keys, copy);
+                    passed &= sameVolumes(copy, expected) && Arrays.equals(keys, volumes(copy));
+
+                    keys = volumes(input);
+                    int[] perm = Sort.identityIndex(n);
+                    Sort.shellSort(keys, perm, false);
+                    for (int i = 0; i < n; i++) {
+                        passed &= keys[i] == expected[i].calcVolume() && input[perm[i]].calcVolume() == keys[i];
+                    }
+                    double[] ascending = volumes(input);
+                    Sort.shellSort(ascending, Sort.identityIndex(n), true);
+                    for (int i = 0; i < n; i++) {
+                        passed &= ascending[i] == expected[n - 1 - i].calcVolume();
+                    }
+
+                    // Packed keys are distinct, so Shell sort must give the stable order
+                    double[][] columns = { volumes(input) };
+                    int[] packed = Sort.identityIndex(n);
+                    Sort.shellSort(Sort.packKeys(columns, n), packed);
+                    int[] stable = Sort.identityIndex(n);
+                    Sort.mergeSort(Sort.packKeys(columns, n), stable);
+                    passed &= Arrays.equals(packed, stable);
+                }
+            }
+            check(n + " shapes, every version", passed);
+        }
+
+        Shape[] random = randomShapes(100_000, rnd, 0);
+        SortStats.reset();
+        SortStats.setEnabled(true);
+        Sort.shellSort(random.clone(), byVolume);
+        Sort.shellSort(volumes(random), random.clone());
+        Sort.shellSort(volumes(random), Sort.identityIndex(random.length), false);
+        SortStats.setEnabled(false);
+        check("Nothing allocated, no recursion", SortStats.getAllocations() == 0 && SortStats.getMaxDepth() == 0);
+
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s%n", "Sort", "Shapes", "Shell ms", "Insert ms",
+                "Heap ms", "Merge ms");
+        for (int n : new int[] { 10_000, 100_000, 500_000 }) {
+            Shape[] shapes = randomShapes(n, rnd, 0);
+            for (int round = 0; round < 2; round++) {
+                System.out.printf("%-8s %,10d %10.2f %10s %10.2f %10.2f%n", "Volume", n,
+                        time('L', shapes, byVolume),
+                        n > 10_000 ? "-" : String.format("%.2f", time('I', shapes, byVolume)),
+                        time('H', shapes, byVolume), time('M', shapes, byVolume));
+            }
+        }
+    }
+
+    private static double time(char algorithm, Shape[] shapes, VolumeCompare comparator) {
+        Shape[] copy = shapes.clone();
+        long start = System.nanoTime();
+        switch (algorithm) {
+            case 'L': Sort.shellSort(copy, comparator); break;
+            case 'I': Sort.insertionSort(copy, comparator); break;
+            case 'H': Sort.heapSort(copy, comparator); break;
+            default:  Sort.mergeSort(copy, comparator); break;
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static boolean sameVolumes(Shape[] a, Shape[] b) {
+        return Arrays.equals(volumes(a), volumes(b));
+    }
+
+    private static double[] volumes(Shape[] shapes) {
+        double[] keys = new double[shapes.length];
+        for (int i = 0; i < shapes.length; i++) {
+            keys[i] = shapes[i].calcVolume();
+        }
+        return keys;
+    }
+
+    /**
+     * Random shapes, or shapes of only the given number of distinct sizes.
+     */
+    private static Shape[] randomShapes(int n, Random rnd, int distinct) {
+        Shape[] shapes = new Shape[n];
+        for (int i = 0; i < n; i++) {
+            shapes[i] = distinct > 0
+                    ? ShapeTable.createShape(ShapeTable.CYLINDER, 1 + rnd.nextInt(distinct), 1)
+                    : ShapeTable.createShape((byte) rnd.nextInt(7), 1 + rnd.nextInt(50), 1 + rnd.nextDouble() * 20);
+        }
+        return shapes;
+    }
+
+    private static void check(String label, boolean passed) {
+        System.out.printf("%-45s %s%n", label, passed ? "PASS" : "FAIL");
+    }
+
+    /**
+     * Runs a sorting test by initializing SortManager with the specified arguments.
+     *
+     * @param arguments Command-line arguments defining file input, comparison types,
+     *                  sorting method and sorting mode.
+     */
+    private static void runTest(String[] arguments) {
+        new SortManager(arguments);
+    }
+}